@@ -19,19 +19,19 @@
 package org.wso2.extension.siddhi.io.http.sink;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
-import io.netty.handler.codec.base64.Base64;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
 import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
 import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiAppContext;
-import io.siddhi.core.event.Event;
 import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.util.config.ConfigReader;
 import io.siddhi.core.util.snapshot.state.State;
 import io.siddhi.core.util.snapshot.state.StateFactory;
@@ -43,21 +43,32 @@ import io.siddhi.query.api.definition.StreamDefinition;
 import org.apache.log4j.Logger;
 import org.wso2.carbon.messaging.Header;
 import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
-import org.wso2.extension.siddhi.io.http.sink.updatetoken.AccessTokenCache;
+import org.wso2.extension.siddhi.io.http.sink.updatetoken.AccessToken;
+import org.wso2.extension.siddhi.io.http.sink.updatetoken.OAuthResponseListener;
+import org.wso2.extension.siddhi.io.http.sink.util.CircuitBreaker;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpRequestCollapser;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpResponseCache;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpScatterGather;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpSinkUtil;
 import org.wso2.extension.siddhi.io.http.source.HttpResponseMessageListener;
+import org.wso2.extension.siddhi.io.http.util.HTTPSourceRegistry;
 import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.extension.siddhi.io.http.util.ResponseCorrelationContext;
+import org.wso2.extension.siddhi.io.http.util.ResponseRoutingTable;
 import org.wso2.transport.http.netty.contract.Constants;
-import org.wso2.transport.http.netty.contract.HttpResponseFuture;
+import org.wso2.transport.http.netty.contract.HttpClientConnector;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
 import org.wso2.transport.http.netty.message.HttpCarbonMessage;
 
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
 
@@ -85,9 +96,9 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
                 @Parameter(
                         name = "publisher.url",
                         description = "The URL to which the outgoing events should be published via HTTP. " +
-                                "This is a mandatory parameter and if this is not specified, an error is logged in " +
-                                "the CLI. If user wants to enable SSL for the events, use `https` instead of `http` " +
-                                "in the publisher.url.\n" +
+                                "This is a mandatory parameter unless scatter.urls is given and if this is not " +
+                                "specified, an error is logged in the CLI. If user wants to enable SSL for the " +
+                                "events, use `https` instead of `http` in the publisher.url.\n" +
                                 "e.g., " +
                                 "`http://localhost:8080/endpoint`, " +
                                 "`https://localhost:8080/endpoint`\n" +
@@ -347,6 +358,321 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
                         type = {DataType.STRING},
                         optional = true,
                         defaultValue = "60000"),
+                @Parameter(
+                        name = "client.connector.cache.size",
+                        description = "Maximum number of destinations for which client connectors are kept when " +
+                                "the publisher.url is dynamic. Events sent to the same scheme, host and port reuse " +
+                                "the connector and its pooled connections. The least recently used connector is " +
+                                "closed when the limit is exceeded.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "client.prewarm.connections",
+                        description = "If this is set to 'true', connections are opened to the publisher url, or to " +
+                                "each of the publisher.urls, when the sink connects, so that the first requests do " +
+                                "not wait for the connection and TLS handshakes. The number of connections is given " +
+                                "by 'client.min.idle.connections.per.pool' of 'client.pool.configuration', and one " +
+                                "connection is opened if it is not given. The connections are opened by sending " +
+                                "HEAD requests. It is not applicable for a dynamic publisher url.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "client.keep.alive.validation.interval",
+                        description = "The interval in milliseconds at which the connections opened by " +
+                                "'client.prewarm.connections' are validated by sending the HEAD requests again. This " +
+                                "keeps them from being evicted as idle and replaces the connections closed by the " +
+                                "server. A value less than 1 disables the validation.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "body.direct.buffer",
+                        description = "Encode the message bodies into pooled direct buffers instead of pooled " +
+                                "heap buffers, which avoids a copy when they are written to the socket.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "http.version",
+                        description = "Version of the http protocol used to send the events, either `1.1` or " +
+                                "`2.0`. With `2.0` concurrent requests are multiplexed as streams over a few " +
+                                "connections. Https urls negotiate http/2 through ALPN during the TLS handshake, " +
+                                "while http urls upgrade the connection from http/1.1 unless http2.prior.knowledge " +
+                                "is enabled.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "1.1"),
+                @Parameter(
+                        name = "http2.prior.knowledge",
+                        description = "Send http/2 requests over cleartext connections (h2c) without the http/1.1 " +
+                                "upgrade, assuming that the server supports http/2. Only applicable for http urls " +
+                                "when the http.version is `2.0`.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "http2.max.concurrent.streams",
+                        description = "Maximum number of concurrent streams of a http/2 connection, after which " +
+                                "a new connection is opened. The transport default is used when it is 0 or less.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "retry.count",
+                        description = "Maximum number of times a request is retried when it fails with a 5xx or " +
+                                "429 response or a connection error. Retries are scheduled without blocking the " +
+                                "publishing thread. The value 0 disables retrying. " +
+                                "It is not applicable for oauth or blocking.io requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "0"),
+                @Parameter(
+                        name = "retry.initial.backoff",
+                        description = "Back off in milliseconds before the first retry. It is doubled for each " +
+                                "further retry up to the retry.max.backoff, and half of it is randomized. A " +
+                                "Retry-After header of the response takes precedence.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "retry.max.backoff",
+                        description = "Maximum back off in milliseconds between two retries.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "retry.budget",
+                        description = "Maximum number of retries the sink can do in a burst. Retries are not done " +
+                                "once the budget is spent, until it is refilled by new requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "retry.budget.ratio",
+                        description = "Fraction of a retry added to the retry budget for each new request. This " +
+                                "bounds the sustained retry traffic to the given fraction of the requests.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.2"),
+                @Parameter(
+                        name = "circuit.breaker.enabled",
+                        description = "Enables a circuit breaker for each endpoint, identified by the scheme, host " +
+                                "and port of the publisher.url. While the breaker of an endpoint is open, events " +
+                                "are sent to the circuit.breaker.fallback.url, or fail fast with a " +
+                                "ConnectionUnavailableException when no fallback url is given. The state of each " +
+                                "breaker is exposed as an MXBean of type 'CircuitBreaker' under the " +
+                                "'org.wso2.extension.siddhi.io.http' JMX domain.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "circuit.breaker.failure.rate.threshold",
+                        description = "Failure rate, between 0 and 1, over the last circuit.breaker.window.size " +
+                                "calls at which the breaker opens. Calls with a 5xx response, an error or a " +
+                                "response slower than circuit.breaker.slow.call.duration are failures.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.5"),
+                @Parameter(
+                        name = "circuit.breaker.slow.call.duration",
+                        description = "Response time in milliseconds above which a call is considered failed. The " +
+                                "value -1 disables latency based failures.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "circuit.breaker.window.size",
+                        description = "Number of most recent calls the failure rate is calculated over.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "20"),
+                @Parameter(
+                        name = "circuit.breaker.minimum.calls",
+                        description = "Minimum number of calls in the window before the breaker can open.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "10"),
+                @Parameter(
+                        name = "circuit.breaker.open.duration",
+                        description = "Time in milliseconds the breaker stays open before probe calls are sent to " +
+                                "the endpoint.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "circuit.breaker.half.open.calls",
+                        description = "Number of probe calls sent while the breaker is half open. The breaker " +
+                                "closes if all of them succeed and opens again otherwise.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
+                @Parameter(
+                        name = "circuit.breaker.fallback.url",
+                        description = "Url the events are sent to while the circuit breaker of their endpoint is " +
+                                "open.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "concurrency.limit.enabled",
+                        description = "Adapts the number of requests in flight to each endpoint, identified by the " +
+                                "scheme, host and port of the publisher.url, to its latency and errors. The limit " +
+                                "is decreased by the concurrency.limit.backoff.ratio on errors, 5xx and 429 " +
+                                "responses and responses slower than concurrency.limit.rtt.tolerance times the " +
+                                "minimum round trip time, and it is increased by one per round trip otherwise. " +
+                                "Events wait while the limit of their endpoint is reached. The limit of each " +
+                                "endpoint is exposed as an MXBean of type 'ConcurrencyLimiter' under the " +
+                                "'org.wso2.extension.siddhi.io.http' JMX domain.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "concurrency.limit.initial",
+                        description = "The number of requests allowed in flight to an endpoint before the limit is " +
+                                "adapted.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "20"),
+                @Parameter(
+                        name = "concurrency.limit.min",
+                        description = "The lowest number of requests allowed in flight to an endpoint.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
+                @Parameter(
+                        name = "concurrency.limit.max",
+                        description = "The highest number of requests allowed in flight to an endpoint. This " +
+                                "should not exceed the maximum active connections of the client pool.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "200"),
+                @Parameter(
+                        name = "concurrency.limit.backoff.ratio",
+                        description = "Ratio, between 0 and 1, the limit is multiplied by when the endpoint is " +
+                                "congested.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.9"),
+                @Parameter(
+                        name = "concurrency.limit.rtt.tolerance",
+                        description = "Multiple of the minimum round trip time above which a response is " +
+                                "considered a sign of congestion. The minimum is tracked over the last 30 to 60 " +
+                                "seconds.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "2"),
+                @Parameter(
+                        name = "rate.limit",
+                        description = "Maximum number of requests per second, enforced with a token bucket so that " +
+                                "bursts of events are spread out instead of being rejected by a quota of the " +
+                                "endpoint. Retries are counted against the limit as well. The value -1 disables " +
+                                "the limit.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "rate.limit.burst",
+                        description = "Maximum number of requests sent at once after the sink was idle, which is " +
+                                "the size of the token bucket. The value -1 sets it to one second worth of " +
+                                "requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "rate.limit.scope",
+                        description = "Whether the rate.limit applies to the whole sink, 'sink', or separately to " +
+                                "each destination identified by the scheme, host and port of the publisher.url, " +
+                                "'destination'.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "sink"),
+                @Parameter(
+                        name = "rate.limit.policy",
+                        description = "What happens to an event when the rate limit is reached. 'block' waits " +
+                                "until the event is due, 'fail' drops the event with an error and " +
+                                "'connection.unavailable' throws a ConnectionUnavailableException so that Siddhi " +
+                                "retries the connection with its back off.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "block"),
+                @Parameter(
+                        name = "scatter.urls",
+                        description = "Comma separated list of URLs each event is sent to concurrently, in place of " +
+                                "a single publisher.url. The responses are gathered within the scatter.timeout, so " +
+                                "that an event takes as long as the slowest URL. Each URL gets its own connection " +
+                                "pool, configured the same as the first URL. It is not supported with oauth or " +
+                                "downloading.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "scatter.response.mode",
+                        description = "How the responses of the scatter.urls are passed to the http-response " +
+                                "sources. 'aggregate' passes a single response once all URLs have responded or the " +
+                                "timeout is reached, with a JSON array holding the 'url', 'statusCode' and 'body' or " +
+                                "'error' of each URL. Its status code is the highest of them, where an error counts " +
+                                "as 502 and a URL which did not respond in time as 504. 'per.url' passes each " +
+                                "response as it arrives, with its URL in the 'scatter.url' transport property, and " +
+                                "drops the responses which arrive after the timeout.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "aggregate"),
+                @Parameter(
+                        name = "scatter.timeout",
+                        description = "Time in milliseconds, shared by all scatter.urls, within which their " +
+                                "responses are gathered.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "response.cache.enabled",
+                        description = "If this is set to 'true', the responses of the GET requests are cached in " +
+                                "memory under their url and headers, and repeated requests are answered from the " +
+                                "cache, by passing the cached response to the http-response source, without sending " +
+                                "them. A response is cached for as long as its Cache-Control max-age allows, or for " +
+                                "the response.cache.ttl if it is given, and responses with Cache-Control no-store " +
+                                "or private are not cached. The authorization header is part of the key, except the " +
+                                "access token of oauth requests, which is replaced by the consumer key and secret, " +
+                                "so that the cache still applies after the access token is renewed. A cached " +
+                                "response with an ETag which is no longer fresh is revalidated with an " +
+                                "If-None-Match request. It is not applicable when downloading is enabled.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "response.cache.max.entries",
+                        description = "The maximum number of responses in the response cache. The least recently " +
+                                "used responses are evicted first.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1000"),
+                @Parameter(
+                        name = "response.cache.max.bytes",
+                        description = "The maximum total size in bytes of the response bodies in the response " +
+                                "cache. The least recently used responses are evicted first.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "10485760"),
+                @Parameter(
+                        name = "response.cache.ttl",
+                        description = "Time in milliseconds a cached response is fresh for, overriding the " +
+                                "Cache-Control max-age of the responses. A negative value uses the max-age.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "request.collapsing.enabled",
+                        description = "If this is set to 'true', a GET request which is identical to a request " +
+                                "in flight, having the same url and headers, including the authorization header, " +
+                                "is not sent. Instead, the response of the request in flight is passed to the " +
+                                "http-response source once for each event which made the request, with the " +
+                                "attributes of that event. Responses are not kept once they are passed on. It is not " +
+                                "applicable for scatter.urls.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
                 @Parameter(
                         name = "sink.id",
                         description = "Identifier of the sink. This is used to co-relate with the corresponding " +
@@ -410,6 +736,16 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
                         type = {DataType.STRING},
                         optional = true,
                         defaultValue = " "),
+                @Parameter(
+                        name = "oauth.refresh.skew",
+                        description = "The time in milliseconds before the expiry of an access token at which it " +
+                                "is refreshed in the background, if the token endpoint returns its expiry time. " +
+                                "It is limited to half of the lifetime of the access token. A negative value " +
+                                "disables the background refresh, hence an access token is only renewed after it " +
+                                "is rejected. It is only applicable for Oauth requests",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
                 @Parameter(
                         name = "blocking.io",
                         description = "If this is set to 'true', after sending a request, http-request sink waits " +
@@ -417,6 +753,16 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
                         type = {DataType.BOOL},
                         optional = true,
                         defaultValue = "false"),
+                @Parameter(
+                        name = "blocking.io.max.concurrency",
+                        description = "The maximum number of requests which can wait for their responses at once " +
+                                "when blocking.io is enabled and events are published from several threads, such as " +
+                                "with an @async sink. Each request waits only for its own response, hence up to this " +
+                                "many request and response exchanges run in parallel, and any further publishing " +
+                                "thread waits until one of them completes.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
         },
         examples = {
                 @Example(syntax =
@@ -496,36 +842,59 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
 public class HttpRequestSink extends HttpSink {
 
     private static final Logger log = Logger.getLogger(HttpRequestSink.class);
+    private static final long RESPONSE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    private static final String[] UNSUPPORTED_OPTIONS = {HttpConstants.PUBLISHER_URLS, HttpConstants.BATCH_SIZE,
+            HttpConstants.PARTITION_KEY, HttpConstants.MAX_IN_FLIGHT_REQUESTS, HttpConstants.MAX_IN_FLIGHT_BYTES,
+            HttpConstants.SPILL_QUEUE_PATH};
     private String sinkId;
+    private ResponseRoutingTable responseRoutingTable;
     private boolean isDownloadEnabled;
-    private StreamDefinition outputStreamDefinition;
+    private List<Attribute> attributes;
+    private volatile ResponseCorrelationContext.Schema correlationSchema;
     private Option downloadPath;
     private Option publisherURLOption;
-    private String consumerKey;
-    private String consumerSecret;
     private String authType;
-    private AccessTokenCache accessTokenCache = AccessTokenCache.getInstance();
-    private String publisherURL;
-    private String tokenURL;
     private boolean isBlockingIO;
-    private CountDownLatch responseLatch;
+    private Semaphore blockingIOPermits;
+    private HttpScatterGather scatterGather;
+    private long scatterTimeout;
+    private final Map<String, HttpClientConnector> scatterClientConnectors = new HashMap<>();
+    private HttpResponseCache responseCache;
+    private HttpRequestCollapser requestCollapser;
 
     @Override
     protected StateFactory init(StreamDefinition outputStreamDefinition, OptionHolder optionHolder,
                                 ConfigReader configReader, SiddhiAppContext siddhiAppContext) {
+        // the requests of the http-request sink are sent by its own publish, which does not use these options
+        for (String unsupportedOption : UNSUPPORTED_OPTIONS) {
+            if (optionHolder.isOptionExists(unsupportedOption)) {
+                throw new SiddhiAppCreationException(unsupportedOption + " is not supported in the http-request " +
+                        "sink of " + outputStreamDefinition.getId() + ".");
+            }
+        }
+        String scatterURLs = optionHolder.validateAndGetStaticValue(HttpConstants.SCATTER_URLS, EMPTY_STRING);
+        if (!EMPTY_STRING.equals(scatterURLs)) {
+            if (optionHolder.isOptionExists(HttpConstants.PUBLISHER_URL)) {
+                throw new SiddhiAppCreationException("Only one of " + HttpConstants.PUBLISHER_URL + " and " +
+                        HttpConstants.SCATTER_URLS + " can be given in the http-request sink of " +
+                        outputStreamDefinition.getId());
+            }
+            // the connection settings of the sink are derived from the first url
+            optionHolder.getOrCreateOption(HttpConstants.PUBLISHER_URL, scatterURLs.split(",")[0].trim());
+        }
         StateFactory stateFactory = super.init(outputStreamDefinition, optionHolder, configReader, siddhiAppContext);
-        this.outputStreamDefinition = outputStreamDefinition;
+        this.attributes = outputStreamDefinition.getAttributeList();
         this.sinkId = optionHolder.validateAndGetStaticValue(HttpConstants.SINK_ID);
+        this.responseRoutingTable = HTTPSourceRegistry.getResponseRoutingTable(sinkId);
         this.isDownloadEnabled = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(HttpConstants
                 .DOWNLOAD_ENABLED, HttpConstants.DEFAULT_DOWNLOAD_ENABLED_VALUE));
         if (isDownloadEnabled) {
             this.downloadPath = optionHolder.validateAndGetOption(HttpConstants.DOWNLOAD_PATH);
         }
-        this.tokenURL = optionHolder.validateAndGetStaticValue(HttpConstants.TOKEN_URL, EMPTY_STRING);
         String userName = optionHolder.validateAndGetStaticValue(HttpConstants.RECEIVER_USERNAME, EMPTY_STRING);
         String password = optionHolder.validateAndGetStaticValue(HttpConstants.RECEIVER_PASSWORD, EMPTY_STRING);
-        this.consumerKey = optionHolder.validateAndGetStaticValue(HttpConstants.CONSUMER_KEY, EMPTY_STRING);
-        this.consumerSecret = optionHolder.validateAndGetStaticValue(HttpConstants.CONSUMER_SECRET, EMPTY_STRING);
+        String consumerKey = optionHolder.validateAndGetStaticValue(HttpConstants.CONSUMER_KEY, EMPTY_STRING);
+        String consumerSecret = optionHolder.validateAndGetStaticValue(HttpConstants.CONSUMER_SECRET, EMPTY_STRING);
         String oauthUsername = optionHolder.validateAndGetStaticValue(HttpConstants.RECEIVER_OAUTH_USERNAME,
                 EMPTY_STRING);
         this.publisherURLOption = optionHolder.validateAndGetOption(HttpConstants.PUBLISHER_URL);
@@ -544,11 +913,92 @@ public class HttpRequestSink extends HttpSink {
         isBlockingIO = Boolean.parseBoolean(
                 optionHolder.validateAndGetStaticValue(HttpConstants.BLOCKING_IO, HttpConstants.FALSE));
         if (isBlockingIO) {
-            responseLatch = new CountDownLatch(1);
+            int maxConcurrency = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                    HttpConstants.BLOCKING_IO_MAX_CONCURRENCY, HttpConstants.DEFAULT_BLOCKING_IO_MAX_CONCURRENCY));
+            if (maxConcurrency <= 0) {
+                throw new SiddhiAppCreationException(HttpConstants.BLOCKING_IO_MAX_CONCURRENCY + " should be " +
+                        "greater than 0 but found " + maxConcurrency + " in the http-request sink with sink.id '" +
+                        sinkId + "'.");
+            }
+            blockingIOPermits = new Semaphore(maxConcurrency, true);
+        }
+        if (!EMPTY_STRING.equals(scatterURLs)) {
+            initScatterGather(optionHolder, siddhiAppContext, scatterURLs);
+        }
+        if (Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(HttpConstants.RESPONSE_CACHE_ENABLED,
+                HttpConstants.FALSE))) {
+            initResponseCache(optionHolder, siddhiAppContext);
+        }
+        if (Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(HttpConstants.REQUEST_COLLAPSING_ENABLED,
+                HttpConstants.FALSE))) {
+            if (scatterGather != null) {
+                throw new SiddhiAppCreationException(HttpConstants.REQUEST_COLLAPSING_ENABLED + " is not supported " +
+                        "with " + HttpConstants.SCATTER_URLS + " in the http-request sink with sink.id '" + sinkId +
+                        "'.");
+            }
+            requestCollapser = new HttpRequestCollapser(siddhiAppContext.getExecutorService(), sinkId);
         }
         return stateFactory;
     }
 
+    private void initResponseCache(OptionHolder optionHolder, SiddhiAppContext siddhiAppContext) {
+        int maxEntries = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.RESPONSE_CACHE_MAX_ENTRIES, HttpConstants.DEFAULT_RESPONSE_CACHE_MAX_ENTRIES));
+        long maxBytes = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.RESPONSE_CACHE_MAX_BYTES, HttpConstants.DEFAULT_RESPONSE_CACHE_MAX_BYTES));
+        long ttl = Long.parseLong(optionHolder.validateAndGetStaticValue(HttpConstants.RESPONSE_CACHE_TTL,
+                HttpConstants.DEFAULT_RESPONSE_CACHE_TTL));
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new SiddhiAppCreationException(HttpConstants.RESPONSE_CACHE_MAX_ENTRIES + " and " +
+                    HttpConstants.RESPONSE_CACHE_MAX_BYTES + " should be greater than 0 but found " + maxEntries +
+                    " and " + maxBytes + " in the http-request sink with sink.id '" + sinkId + "'.");
+        }
+        if (isDownloadEnabled || scatterGather != null) {
+            throw new SiddhiAppCreationException(HttpConstants.RESPONSE_CACHE_ENABLED + " is not supported with " +
+                    "downloading or " + HttpConstants.SCATTER_URLS + " in the http-request sink with sink.id '" +
+                    sinkId + "'.");
+        }
+        responseCache = new HttpResponseCache(maxEntries, maxBytes, ttl < 0 ? -1 : ttl,
+                siddhiAppContext.getExecutorService(), sinkId);
+    }
+
+    private void initScatterGather(OptionHolder optionHolder, SiddhiAppContext siddhiAppContext,
+                                   String scatterURLs) {
+        String responseMode = optionHolder.validateAndGetStaticValue(HttpConstants.SCATTER_RESPONSE_MODE,
+                HttpConstants.SCATTER_RESPONSE_MODE_AGGREGATE);
+        scatterTimeout = Long.parseLong(optionHolder.validateAndGetStaticValue(HttpConstants.SCATTER_TIMEOUT,
+                HttpConstants.DEFAULT_SCATTER_TIMEOUT));
+        if (!HttpConstants.SCATTER_RESPONSE_MODE_AGGREGATE.equals(responseMode) &&
+                !HttpConstants.SCATTER_RESPONSE_MODE_PER_URL.equals(responseMode)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.SCATTER_RESPONSE_MODE + " '" +
+                    responseMode + "' found in the http-request sink with sink.id '" + sinkId + "'. Supported " +
+                    "values are " + HttpConstants.SCATTER_RESPONSE_MODE_AGGREGATE + " and " +
+                    HttpConstants.SCATTER_RESPONSE_MODE_PER_URL + ".");
+        }
+        if (scatterTimeout <= 0) {
+            throw new SiddhiAppCreationException(HttpConstants.SCATTER_TIMEOUT + " should be greater than 0 but " +
+                    "found " + scatterTimeout + " in the http-request sink with sink.id '" + sinkId + "'.");
+        }
+        if (HttpConstants.OAUTH.equals(authType) || isDownloadEnabled) {
+            throw new SiddhiAppCreationException(HttpConstants.SCATTER_URLS + " is not supported with oauth or " +
+                    "downloading in the http-request sink with sink.id '" + sinkId + "'.");
+        }
+        List<Map<String, String>> urls = new ArrayList<>();
+        String[] scatterURLList = scatterURLs.split(",");
+        for (int i = 0; i < scatterURLList.length; i++) {
+            Map<String, String> urlProperties = HttpSinkUtil.getURLProperties(scatterURLList[i].trim());
+            String requestURL = urlProperties.get(Constants.REQUEST_URL);
+            if (!scatterClientConnectors.containsKey(requestURL)) {
+                scatterClientConnectors.put(requestURL, i == 0 ? getClientConnector(urlProperties) :
+                        createClientConnector(urlProperties));
+            }
+            urls.add(urlProperties);
+        }
+        scatterGather = new HttpScatterGather(urls, HttpConstants.SCATTER_RESPONSE_MODE_AGGREGATE.equals(responseMode),
+                scatterTimeout, siddhiAppContext.getScheduledExecutorService(), siddhiAppContext.getExecutorService(),
+                sinkId);
+    }
+
     /**
      * This method will be called when events need to be published via this sink
      *
@@ -561,225 +1011,266 @@ public class HttpRequestSink extends HttpSink {
     public void publish(Object payload, DynamicOptions dynamicOptions, State state)
             throws ConnectionUnavailableException {
         //get the dynamic parameter
-        String headers = httpHeaderOption.getValue(dynamicOptions);
-        List<Header> headersList = HttpSinkUtil.getHeaders(headers);
-        if (publisherURLOption.isStatic()) {
-            publisherURL = publisherURLOption.getValue();
-        } else {
-            publisherURL = publisherURLOption.getValue(dynamicOptions);
+        List<Header> headersList = headerTemplate.getHeaders(dynamicOptions);
+        // each publishing thread waits for the response of its own request only
+        CompletableFuture<Void> responseFuture = isBlockingIO ? acquireResponseFuture() : null;
+        try {
+            if (scatterGather != null) {
+                sendScatterRequest(payload, dynamicOptions, headersList, responseFuture);
+            } else if (authType.equals(HttpConstants.BASIC_AUTH) || authType.equals(HttpConstants.NO_AUTH)) {
+                sendRequest(payload, dynamicOptions, headersList, HttpConstants.MAXIMUM_TRY_COUNT, responseFuture);
+            } else {
+                sendOauthRequest(payload, dynamicOptions, headersList, responseFuture);
+            }
+            if (responseFuture != null) {
+                // the responses are gathered by the deadline, but reading the aggregated bodies may take longer
+                awaitResponse(responseFuture, dynamicOptions,
+                        scatterGather != null ? scatterTimeout + RESPONSE_TIMEOUT : RESPONSE_TIMEOUT);
+            }
+        } finally {
+            if (responseFuture != null) {
+                blockingIOPermits.release();
+            }
         }
+    }
 
-        if (authType.equals(HttpConstants.BASIC_AUTH) || authType.equals(HttpConstants.NO_AUTH)) {
-            sendRequest(payload, dynamicOptions, headersList, HttpConstants.MAXIMUM_TRY_COUNT);
-        } else {
-            sendOauthRequest(payload, dynamicOptions, headersList);
+    private CompletableFuture<Void> acquireResponseFuture() {
+        try {
+            blockingIOPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpSinkAdaptorRuntimeException("Interrupted while waiting for the responses of the other " +
+                    "requests of " + sinkId + ". Message dropped.", e);
         }
+        return new CompletableFuture<>();
     }
 
-    private void sendOauthRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList) {
-        //generate encoded base64 auth for getting refresh token
-        String consumerKeyValue = consumerKey + ":" + consumerSecret;
-        String encodedAuth = "Basic " + encodeBase64(consumerKeyValue);
-        //check the availability of access token in the header
-        setAccessToken(encodedAuth, dynamicOptions, headersList);
-        //send a request to API and get the response
-        int response = sendRequest(payload, dynamicOptions, headersList, HttpConstants.MINIMUM_TRY_COUNT);
-        //if authentication fails then get the new access token
-        if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            handleOAuthFailure(payload, dynamicOptions, headersList, encodedAuth);
-        } else if (response == HttpConstants.SUCCESS_CODE) {
-            log.info("Request sent successfully to " + publisherURL);
-        } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-            log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                    response + "- Internal server error. Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint: " +
-                    publisherURL + "', with response code: " + response + "- Internal server error. Message dropped.");
-        } else {
-            log.error("Error at sending oauth request to API endpoint: " +
-                    publisherURL + "', with response code: " + response + ". Message dropped. Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint: " +
-                    publisherURL + "', with response code: " + response + ". Message dropped. Message dropped.");
+    private void sendOauthRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
+                                  CompletableFuture<Void> responseFuture) throws ConnectionUnavailableException {
+        List<Header> requestHeaders = headersList == null ? new ArrayList<>() : headersList;
+        CompletableFuture<AccessToken> accessToken = getAccessToken(dynamicOptions, getEncodedAuth(), requestHeaders);
+        if (accessToken != null && !accessToken.isDone()) {
+            // the request is sent once the token endpoint responds, without holding the publishing thread
+            accessToken.whenComplete((token, throwable) -> {
+                if (setAccessToken(requestHeaders, token, throwable)) {
+                    resendRequest(payload, dynamicOptions, requestHeaders, HttpConstants.MINIMUM_TRY_COUNT, 0,
+                            responseFuture, null);
+                } else if (responseFuture != null) {
+                    // the failure to get the access token is logged and the message is dropped
+                    responseFuture.complete(null);
+                }
+            });
+        } else if (accessToken == null || accessToken.handle((token, throwable) ->
+                setAccessToken(requestHeaders, token, throwable)).join()) {
+            sendRequest(payload, dynamicOptions, requestHeaders, HttpConstants.MINIMUM_TRY_COUNT, responseFuture);
+        } else if (responseFuture != null) {
+            responseFuture.complete(null);
         }
     }
 
-    private void handleOAuthFailure(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                    String encodedAuth) {
-
-        Boolean checkFromCache = accessTokenCache.checkAvailableKey(encodedAuth);
-        if (checkFromCache) {
-            getNewAccessTokenWithCache(payload, dynamicOptions, headersList, encodedAuth);
-        } else {
-            requestForNewAccessToken(payload, dynamicOptions, headersList, encodedAuth);
-        }
+    private void sendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList, int tryCount,
+                             CompletableFuture<Void> responseFuture) throws ConnectionUnavailableException {
+        sendRequest(payload, dynamicOptions, headersList, tryCount, 0, true, responseFuture, null);
     }
 
-    private void getNewAccessTokenWithCache(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                            String encodedAuth) {
-        String accessToken = accessTokenCache.getAccessToken(encodedAuth);
-        for (Header header : headersList) {
-            if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                header.setValue(accessToken);
-                break;
+    /**
+     * Sends the request of an event. A request which is resent for a retry or a renewed access token is given the
+     * collapsed request it is resent for, if any, so that its final response is passed on to the attached requests.
+     */
+    private void sendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList, int tryCount,
+                             int retryCount, boolean wait, CompletableFuture<Void> responseFuture,
+                             HttpRequestCollapser.InFlightRequest resentRequest)
+            throws ConnectionUnavailableException {
+        Map<String, String> urlProperties = getURLProperties(dynamicOptions);
+        String httpMethod = EMPTY_STRING.equals(httpMethodOption.getValue(dynamicOptions)) ?
+                HttpConstants.METHOD_DEFAULT : httpMethodOption.getValue(dynamicOptions);
+        // the listener of an OAuth request gets only the final response, after the access token is renewed
+        HttpConnectorListener responseListener = resentRequest != null ? resentRequest :
+                new HttpResponseMessageListener(createCorrelationContext(dynamicOptions), sinkId,
+                        responseRoutingTable, isDownloadEnabled, responseFuture);
+        boolean isGet = Constants.HTTP_GET_METHOD.equals(httpMethod);
+        String cacheKey = null;
+        HttpResponseCache.CachedResponse cachedResponse = null;
+        if (responseCache != null && isGet) {
+            // the access token of an oauth request is renewed, hence its client credentials identify it instead
+            cacheKey = HttpSinkUtil.getRequestKey(urlProperties, headersList,
+                    HttpConstants.OAUTH.equals(authType) ? getEncodedAuth() : null);
+            cachedResponse = responseCache.get(cacheKey);
+            if (cachedResponse != null && cachedResponse.isFresh()) {
+                // no request is sent, hence the circuit breaker and the limiters are not involved
+                responseListener.onMessage(cachedResponse.toHttpCarbonMessage());
+                return;
             }
         }
-        //send a request to API with a new access token
-        int response = sendRequest(payload, dynamicOptions, headersList, HttpConstants.MINIMUM_TRY_COUNT);
-        if (response == HttpConstants.SUCCESS_CODE) {
-            log.info("Request sent successfully to " + publisherURL);
-        } else if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            requestForNewAccessToken(payload, dynamicOptions, headersList, encodedAuth);
-        } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-            log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                    response + "- Internal server error. Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                    publisherURL + "', with response code: " + response + "- Internal server error. Message dropped.");
-        } else {
-            log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                    response + ". Message dropped. ");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                    publisherURL + "', with response code: " + response + ". Message dropped.");
+        HttpRequestCollapser.InFlightRequest inFlightRequest = resentRequest;
+        // the retries and the resent requests of an event are not collapsed, as they are already in flight
+        if (inFlightRequest == null && requestCollapser != null && isGet && wait) {
+            // only the requests with the same headers, including the same access token, are collapsed
+            inFlightRequest = requestCollapser.join(HttpSinkUtil.getRequestKey(urlProperties, headersList, null),
+                    responseListener);
+            if (inFlightRequest == null) {
+                // the identical request in flight passes its response on to this event
+                return;
+            }
+            responseListener = inFlightRequest;
         }
-    }
-
-    private void requestForNewAccessToken(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                          String encodedAuth) {
-        Boolean checkRefreshToken = accessTokenCache.checkRefreshAvailableKey(encodedAuth);
-        if (checkRefreshToken) {
-            for (Header header : headersList) {
-                if (header.getName().equals(HttpConstants.RECEIVER_REFRESH_TOKEN)) {
-                    if (accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-                        header.setValue(accessTokenCache.getRefreshtoken(encodedAuth));
-                    }
-                    break;
+        HttpRequestCollapser.InFlightRequest collapsedRequest = inFlightRequest;
+        ByteBuf messageBody = null;
+        try {
+            CircuitBreaker circuitBreaker = getCircuitBreaker(urlProperties);
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                urlProperties = getFallbackURLProperties(urlProperties);
+                circuitBreaker = null;
+                // the response of the fallback url is not cached as the response of the publisher url
+                cacheKey = null;
+            }
+            HttpClientConnector clientConnector = getClientConnector(urlProperties);
+            String contentType = HttpSinkUtil.getContentType(mapType, headersList);
+            HttpMethod httpReqMethod = new HttpMethod(httpMethod);
+            HttpCarbonMessage cMessage = new HttpCarbonMessage(
+                    new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpReqMethod, EMPTY_STRING));
+            cMessage = generateCarbonMessage(headersList, contentType, httpMethod, cMessage, urlProperties);
+            if (!Constants.HTTP_GET_METHOD.equals(httpMethod)) {
+                messageBody = encodeMessageBody(payload);
+                cMessage.addHttpContent(new DefaultLastHttpContent(messageBody));
+            }
+            if (cacheKey != null) {
+                if (cachedResponse != null && cachedResponse.getETag() != null) {
+                    cMessage.setHeader(HttpHeaderNames.IF_NONE_MATCH.toString(), cachedResponse.getETag());
                 }
+                responseListener = responseCache.createResponseListener(cacheKey, cachedResponse, responseListener);
             }
-        }
-        getAccessToken(dynamicOptions, encodedAuth, tokenURL);
-        if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.SUCCESS_CODE) {
-            String newAccessToken = accessTokenCache.getAccessToken(encodedAuth);
-            accessTokenCache.setAccessToken(encodedAuth, newAccessToken);
-            if (accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-                accessTokenCache.setRefreshtoken(encodedAuth, accessTokenCache.getRefreshtoken(encodedAuth));
+            cMessage.completeMessage();
+            if (HttpConstants.OAUTH.equals(authType)) {
+                String encodedAuth = getEncodedAuth();
+                responseListener = new OAuthResponseListener(responseListener, headersList, tryCount,
+                        expiredToken -> renewAccessToken(dynamicOptions, encodedAuth, expiredToken),
+                        nextTryCount -> resendRequest(payload, dynamicOptions, headersList, nextTryCount, retryCount,
+                                responseFuture, collapsedRequest));
             }
-            for (Header header : headersList) {
-                if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                    header.setValue(newAccessToken);
-                    break;
+            if (retryScheduler != null && !isBlockingIO && !HttpConstants.OAUTH.equals(authType)) {
+                if (retryCount == 0) {
+                    retryScheduler.onRequest();
                 }
+                responseListener = retryScheduler.createResponseListener(responseListener, retryCount,
+                        urlProperties.get(Constants.REQUEST_URL),
+                        () -> resendRequest(payload, dynamicOptions, headersList, tryCount, retryCount + 1, null,
+                                collapsedRequest));
             }
-            //send a request to API with a new access token
-            int response = sendRequest(payload, dynamicOptions, headersList, HttpConstants.MAXIMUM_TRY_COUNT);
-            if (response == HttpConstants.SUCCESS_CODE) {
-                log.info("Request sent successfully to " + publisherURL);
-            } else if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + "- Authentication Failure. Please provide a valid Consumer key, Consumer secret" +
-                        " and token endpoint URL . Message dropped");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                        publisherURL + "', with response code: " + response + "- Authentication Failure. Please" +
-                        " provide a valid Consumer key, Consumer secret and token endpoint URL . Message dropped");
-            } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + "- Internal server error. Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                        publisherURL + "', with response code:" + response +
-                        "- Internal server error. Message dropped.");
-            } else {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + ". Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint  " +
-                        publisherURL + "', with response code: " + response + ". Message dropped.");
+            if (circuitBreaker != null) {
+                responseListener = circuitBreaker.createResponseListener(responseListener);
             }
-
-        } else if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            log.error("Failed to generate new access token for the expired access token to " + publisherURL + "', " +
-                    accessTokenCache.getResponseCode(encodedAuth) + ": Authentication Failure. Please provide" +
-                    " a valid Consumer key, Consumer secret and token endpoint URL . Message dropped");
-            throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired access " +
-                    "token to " + publisherURL + "', " + accessTokenCache.getResponseCode(encodedAuth) +
-                    ": Authentication Failure.Please provide a valid Consumer key, Consumer secret" +
-                    " and token endpoint URL . Message dropped");
-        } else {
-            log.error("Failed to generate new access token for the expired access token. Error code: " +
-                    accessTokenCache.getResponseCode(encodedAuth) + ". Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired" +
-                    " access token. Error code: " + accessTokenCache.getResponseCode(encodedAuth) +
-                    ". Message dropped.");
+            sendMessage(clientConnector, cMessage, urlProperties, responseListener, wait);
+        } catch (ConnectionUnavailableException | RuntimeException e) {
+            // the message was not handed over to the transport, which would have released its body
+            ReferenceCountUtil.release(messageBody);
+            if (inFlightRequest != null) {
+                inFlightRequest.abandon(e);
+            }
+            throw e;
         }
     }
 
-    private int sendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList, int tryCount) {
-        if (!publisherURLOption.isStatic()) {
-            super.initClientConnector(dynamicOptions);
-        }
+    /**
+     * Sends the request of an event to all scatter urls concurrently. The message body is encoded once and each url
+     * gets its own duplicate of it.
+     */
+    private void sendScatterRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
+                                    CompletableFuture<Void> responseFuture) {
         String httpMethod = EMPTY_STRING.equals(httpMethodOption.getValue(dynamicOptions)) ?
                 HttpConstants.METHOD_DEFAULT : httpMethodOption.getValue(dynamicOptions);
-        String contentType = HttpSinkUtil.getContentType(mapType, headersList);
-        String messageBody = getMessageBody(payload);
-        HttpMethod httpReqMethod = new HttpMethod(httpMethod);
-        HttpCarbonMessage cMessage = new HttpCarbonMessage(
-                new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpReqMethod, EMPTY_STRING));
-        cMessage = generateCarbonMessage(headersList, contentType, httpMethod, cMessage);
-        if (!Constants.HTTP_GET_METHOD.equals(httpMethod)) {
-            cMessage.addHttpContent(new DefaultLastHttpContent(Unpooled.wrappedBuffer(messageBody
-                    .getBytes(Charset.defaultCharset()))));
+        ByteBuf messageBody = Constants.HTTP_GET_METHOD.equals(httpMethod) ? null : encodeMessageBody(payload);
+        HttpConnectorListener delivery = new HttpResponseMessageListener(createCorrelationContext(dynamicOptions),
+                sinkId, responseRoutingTable, false, null);
+        try {
+            scatterGather.scatter((urlProperties, listener) ->
+                            sendScatterCall(urlProperties, httpMethod, headersList, messageBody, listener), delivery,
+                    () -> {
+                        if (responseFuture != null) {
+                            responseFuture.complete(null);
+                        }
+                    });
+        } finally {
+            ReferenceCountUtil.release(messageBody);
         }
-        cMessage.completeMessage();
-        HttpResponseFuture httpResponseFuture = clientConnector.send(cMessage);
-        HttpResponseMessageListener httpListener;
-        CountDownLatch latch = isBlockingIO ? responseLatch : new CountDownLatch(1);
-        httpListener = new HttpResponseMessageListener(getTrpProperties(dynamicOptions), sinkId,
-                isDownloadEnabled, latch, tryCount, authType, isBlockingIO);
-        httpResponseFuture.setHttpConnectorListener(httpListener);
+    }
 
-        if (isBlockingIO || HttpConstants.OAUTH.equals(authType)) {
-            try {
-                boolean latchCount = latch.await(30, TimeUnit.SECONDS);
-                if (!latchCount) {
-                    log.debug("Time out due to getting getting response from " + publisherURL + ". Message dropped.");
-                    throw new HttpSinkAdaptorRuntimeException("Time out due to getting getting response from "
-                            + publisherURL + ". Message dropped.");
+    private void sendScatterCall(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                                 ByteBuf messageBody, HttpConnectorListener listener)
+            throws ConnectionUnavailableException {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(urlProperties);
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            throw new ConnectionUnavailableException("Circuit breaker of " + urlProperties.get(Constants.REQUEST_URL) +
+                    " is open in " + sinkId);
+        }
+        HttpConnectorListener responseListener = circuitBreaker == null ? listener :
+                circuitBreaker.createResponseListener(listener);
+        sendMessage(scatterClientConnectors.get(urlProperties.get(Constants.REQUEST_URL)), urlProperties, httpMethod,
+                headersList, messageBody, responseListener, true);
+    }
 
-                }
-            } catch (InterruptedException e) {
-                log.debug("Failed to get a response from " + publisherURL + "," + e + ". Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Failed to get a response from " +
-                        publisherURL + ", " + e + ". Message dropped.");
-            }
-            if (isBlockingIO) {
-                responseLatch = new CountDownLatch(1);
-                return HttpConstants.SUCCESS_CODE;
+    private void awaitResponse(CompletableFuture<Void> responseFuture, DynamicOptions dynamicOptions, long timeout) {
+        String publisherURL = getPublisherURL(dynamicOptions);
+        try {
+            responseFuture.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Time out due to getting getting response from " + publisherURL + ". Message dropped.");
+            throw new HttpSinkAdaptorRuntimeException("Time out due to getting getting response from "
+                    + publisherURL + ". Message dropped.");
+        } catch (ExecutionException e) {
+            log.debug("Failed to get a response from " + publisherURL + "," + e.getCause() + ". Message dropped.");
+            throw new HttpSinkAdaptorRuntimeException("Failed to get a response from " +
+                    publisherURL + ", " + e.getCause() + ". Message dropped.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("Failed to get a response from " + publisherURL + "," + e + ". Message dropped.");
+            throw new HttpSinkAdaptorRuntimeException("Failed to get a response from " +
+                    publisherURL + ", " + e + ". Message dropped.");
+        }
+    }
+
+    private void resendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList, int tryCount,
+                               int retryCount, CompletableFuture<Void> responseFuture,
+                               HttpRequestCollapser.InFlightRequest resentRequest) {
+        try {
+            sendRequest(payload, dynamicOptions, headersList, tryCount, retryCount, false, responseFuture,
+                    resentRequest);
+        } catch (ConnectionUnavailableException | RuntimeException e) {
+            log.error("Error at retrying the request of " + sinkId + " to " + getPublisherURL(dynamicOptions) +
+                    ". Message dropped.", e);
+            if (responseFuture != null) {
+                responseFuture.completeExceptionally(e);
             }
-            HttpCarbonMessage response = httpListener.getHttpResponseMessage();
-            return response.getNettyHttpResponse().status().code();
-        } else {
-            return HttpConstants.SUCCESS_CODE;
         }
     }
 
+    private String getPublisherURL(DynamicOptions dynamicOptions) {
+        return publisherURLOption.isStatic() ? publisherURLOption.getValue() :
+                publisherURLOption.getValue(dynamicOptions);
+    }
+
     @Override
     public String[] getSupportedDynamicOptions() {
         return new String[]{HttpConstants.HEADERS, HttpConstants.METHOD, HttpConstants.PUBLISHER_URL,
                 HttpConstants.DOWNLOAD_PATH, HttpConstants.PUBLISHER_URL, HttpConstants.RECEIVER_REFRESH_TOKEN};
     }
 
-    private Map<String, Object> getTrpProperties(DynamicOptions dynamicOptions) {
-        Event event = dynamicOptions.getEvent();
-        Object[] data = event.getData();
-        List<Attribute> attributes = outputStreamDefinition.getAttributeList();
-        Map<String, Object> trpProperties = new HashMap<>();
-        for (int i = 0; i < attributes.size(); i++) {
-            trpProperties.put(attributes.get(i).getName(), data[i]);
-        }
-        if (isDownloadEnabled) {
-            trpProperties.put(HttpConstants.DOWNLOAD_PATH, downloadPath.getValue(dynamicOptions));
-        }
-        return trpProperties;
+    private ResponseCorrelationContext createCorrelationContext(DynamicOptions dynamicOptions) {
+        return new ResponseCorrelationContext(getCorrelationSchema(), dynamicOptions.getEvent().getData(),
+                isDownloadEnabled ? downloadPath.getValue(dynamicOptions) : null);
     }
 
-    private String encodeBase64(String consumerKeyValue) {
-        ByteBuf byteBuf = Unpooled.wrappedBuffer(consumerKeyValue.getBytes(StandardCharsets.UTF_8));
-        ByteBuf encodedByteBuf = Base64.encode(byteBuf);
-        return encodedByteBuf.toString(StandardCharsets.UTF_8);
+    /**
+     * Returns the schema of the attributes requested by the http-response sources of the sink, which is created
+     * again only when a source is registered or removed.
+     */
+    private ResponseCorrelationContext.Schema getCorrelationSchema() {
+        String[] requestedNames = responseRoutingTable.getRequestedTransportPropertyNames();
+        ResponseCorrelationContext.Schema schema = correlationSchema;
+        if (schema == null || schema.getCapturedNames() != requestedNames) {
+            schema = new ResponseCorrelationContext.Schema(attributes, requestedNames);
+            correlationSchema = schema;
+        }
+        return schema;
     }
 }
@@ -35,6 +35,7 @@ import io.siddhi.core.util.transport.OptionHolder;
 import io.siddhi.query.api.definition.StreamDefinition;
 import org.apache.log4j.Logger;
 import org.wso2.carbon.messaging.Header;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpHeaderTemplate;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpSinkUtil;
 import org.wso2.extension.siddhi.io.http.util.HTTPSourceRegistry;
 import org.wso2.extension.siddhi.io.http.util.HttpConstants;
@@ -115,6 +116,7 @@ public class HttpResponseSink extends Sink {
     private Option messageIdOption;
     private String sourceId;
     private Option httpHeaderOption;
+    private HttpHeaderTemplate headerTemplate;
     private String mapType;
 
     /**
@@ -172,6 +174,7 @@ public class HttpResponseSink extends Sink {
         this.messageIdOption = optionHolder.validateAndGetOption(HttpConstants.MESSAGE_ID);
         this.sourceId = optionHolder.validateAndGetStaticValue(HttpConstants.SOURCE_ID);
         this.httpHeaderOption = optionHolder.getOrCreateOption(HttpConstants.HEADERS, HttpConstants.DEFAULT_HEADER);
+        this.headerTemplate = new HttpHeaderTemplate(httpHeaderOption, false);
         this.mapType = outputStreamDefinition.getAnnotations().get(0).getAnnotations().get(0).getElements().get(0)
                 .getValue();
         return null;
@@ -180,8 +183,7 @@ public class HttpResponseSink extends Sink {
     @Override
     public void publish(Object payload, DynamicOptions dynamicOptions, State state)
             throws ConnectionUnavailableException {
-        String headers = httpHeaderOption.getValue(dynamicOptions);
-        List<Header> headersList = HttpSinkUtil.getHeaders(headers);
+        List<Header> headersList = headerTemplate.getHeaders(dynamicOptions);
         String messageId = messageIdOption.getValue(dynamicOptions);
         String contentType = HttpSinkUtil.getContentType(mapType, headersList);
         HTTPSourceRegistry.
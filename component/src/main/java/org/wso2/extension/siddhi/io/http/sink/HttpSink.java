@@ -19,6 +19,7 @@
 package org.wso2.extension.siddhi.io.http.sink;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.base64.Base64;
 import io.netty.handler.codec.http.DefaultHttpRequest;
@@ -26,6 +27,7 @@ import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
 import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
@@ -34,7 +36,6 @@ import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiAppContext;
 import io.siddhi.core.exception.ConnectionUnavailableException;
 import io.siddhi.core.exception.SiddhiAppCreationException;
-import io.siddhi.core.exception.SiddhiAppRuntimeException;
 import io.siddhi.core.stream.ServiceDeploymentInfo;
 import io.siddhi.core.stream.output.sink.Sink;
 import io.siddhi.core.util.config.ConfigReader;
@@ -47,31 +48,57 @@ import io.siddhi.query.api.definition.StreamDefinition;
 import org.apache.log4j.Logger;
 import org.wso2.carbon.messaging.Header;
 import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
-import org.wso2.extension.siddhi.io.http.sink.updatetoken.AccessTokenCache;
-import org.wso2.extension.siddhi.io.http.sink.updatetoken.DefaultListener;
+import org.wso2.extension.siddhi.io.http.sink.updatetoken.AccessToken;
 import org.wso2.extension.siddhi.io.http.sink.updatetoken.HttpsClient;
+import org.wso2.extension.siddhi.io.http.sink.updatetoken.OAuthResponseListener;
+import org.wso2.extension.siddhi.io.http.sink.updatetoken.OAuthTokenManager;
+import org.wso2.extension.siddhi.io.http.sink.util.CircuitBreaker;
+import org.wso2.extension.siddhi.io.http.sink.util.CircuitBreakerRegistry;
+import org.wso2.extension.siddhi.io.http.sink.util.ConcurrencyLimiter;
+import org.wso2.extension.siddhi.io.http.sink.util.ConcurrencyLimiterRegistry;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpClientConnectorCache;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpConnectionWarmer;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpEventBatcher;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpHeaderTemplate;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpMessageBodyEncoder;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpPartitionLanes;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpRateLimiter;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpRetryScheduler;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpSinkUtil;
+import org.wso2.extension.siddhi.io.http.sink.util.InFlightRequestLimiter;
+import org.wso2.extension.siddhi.io.http.sink.util.LoadBalancer;
+import org.wso2.extension.siddhi.io.http.sink.util.SpillQueue;
+import org.wso2.extension.siddhi.io.http.sink.util.SpilledRequest;
 import org.wso2.extension.siddhi.io.http.util.HttpConstants;
 import org.wso2.extension.siddhi.io.http.util.HttpIoUtil;
 import org.wso2.transport.http.netty.contract.Constants;
 import org.wso2.transport.http.netty.contract.HttpClientConnector;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
 import org.wso2.transport.http.netty.contract.HttpResponseFuture;
 import org.wso2.transport.http.netty.contract.config.ChunkConfig;
 import org.wso2.transport.http.netty.contract.config.ProxyServerConfiguration;
 import org.wso2.transport.http.netty.contract.config.SenderConfiguration;
 import org.wso2.transport.http.netty.contractimpl.DefaultHttpWsConnectorFactory;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
 import org.wso2.transport.http.netty.message.HttpCarbonMessage;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.io.IOException;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.wso2.extension.siddhi.io.http.util.HttpConstants.EMPTY_STRING;
 import static org.wso2.extension.siddhi.io.http.util.HttpConstants.PORT_HOST_SEPARATOR;
@@ -96,9 +123,9 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.SOCKET_IDEAL_
                 @Parameter(
                         name = "publisher.url",
                         description = "The URL to which the outgoing events should be published via HTTP. " +
-                                "This is a mandatory parameter and if this is not specified, an error is logged in " +
-                                "the CLI. If user wants to enable SSL for the events, use `https` instead of `http` " +
-                                "in the publisher.url." +
+                                "This is a mandatory parameter unless publisher.urls is given and if this is not " +
+                                "specified, an error is logged in the CLI. If user wants to enable SSL for the " +
+                                "events, use `https` instead of `http` in the publisher.url." +
                                 "e.g., " +
                                 "`http://localhost:8080/endpoint`, "
                                 + "`https://localhost:8080/endpoint`",
@@ -355,6 +382,408 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.SOCKET_IDEAL_
                         type = {DataType.STRING},
                         optional = true,
                         defaultValue = "60000"),
+                @Parameter(
+                        name = "client.connector.cache.size",
+                        description = "Maximum number of destinations for which client connectors are kept when " +
+                                "the publisher.url is dynamic. Events sent to the same scheme, host and port reuse " +
+                                "the connector and its pooled connections. The least recently used connector is " +
+                                "evicted when the limit is exceeded, and closed once the requests in flight on it " +
+                                "would have reached the socket.idle.timeout.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "client.prewarm.connections",
+                        description = "If this is set to 'true', connections are opened to the publisher url, or to " +
+                                "each of the publisher.urls, when the sink connects, so that the first requests do " +
+                                "not wait for the connection and TLS handshakes. The number of connections is given " +
+                                "by 'client.min.idle.connections.per.pool' of 'client.pool.configuration', and one " +
+                                "connection is opened if it is not given. The connections are opened by sending " +
+                                "HEAD requests. It is not applicable for a dynamic publisher url.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "client.keep.alive.validation.interval",
+                        description = "The interval in milliseconds at which the connections opened by " +
+                                "'client.prewarm.connections' are validated by sending the HEAD requests again. This " +
+                                "keeps them from being evicted as idle and replaces the connections closed by the " +
+                                "server. A value less than 1 disables the validation.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "body.direct.buffer",
+                        description = "Encode the message bodies into pooled direct buffers instead of pooled " +
+                                "heap buffers, which avoids a copy when they are written to the socket.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "http.version",
+                        description = "Version of the http protocol used to send the events, either `1.1` or " +
+                                "`2.0`. With `2.0` concurrent requests are multiplexed as streams over a few " +
+                                "connections. Https urls negotiate http/2 through ALPN during the TLS handshake, " +
+                                "while http urls upgrade the connection from http/1.1 unless http2.prior.knowledge " +
+                                "is enabled.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "1.1"),
+                @Parameter(
+                        name = "http2.prior.knowledge",
+                        description = "Send http/2 requests over cleartext connections (h2c) without the http/1.1 " +
+                                "upgrade, assuming that the server supports http/2. Only applicable for http urls " +
+                                "when the http.version is `2.0`.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "http2.max.concurrent.streams",
+                        description = "Maximum number of concurrent streams of a http/2 connection, after which " +
+                                "a new connection is opened. The transport default is used when it is 0 or less.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "batch.size",
+                        description = "Maximum number of events sent in a single http request. When the value is " +
+                                "greater than 1 the payloads of the events are collected and sent together once " +
+                                "the batch is full, the batch.max.bytes is reached or the batch.linger.time is " +
+                                "elapsed. Only events with the same publisher.url, method and headers are sent in " +
+                                "the same batch. Batching is not supported with the keyvalue mapping.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
+                @Parameter(
+                        name = "batch.max.bytes",
+                        description = "Maximum size of the message body of a batch in bytes. An event which does " +
+                                "not fit into the pending batch is sent with the next batch. The value -1 disables " +
+                                "the size limit.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "batch.linger.time",
+                        description = "Maximum time in milliseconds the first event of a batch waits before the " +
+                                "batch is sent, even if it is not full.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "1000"),
+                @Parameter(
+                        name = "batch.format",
+                        description = "How the payloads of a batch are combined into the message body. " +
+                                "'json.array' sends the events as a json array, 'ndjson' sends newline delimited " +
+                                "json with the 'application/x-ndjson' content type unless a content type header is " +
+                                "given, and 'text' joins the payloads with new lines.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "json.array for json mapping, text otherwise"),
+                @Parameter(
+                        name = "max.in.flight.requests",
+                        description = "Maximum number of requests which are sent but not responded yet. When the " +
+                                "limit is reached the in.flight.limit.policy is applied to the next event. The " +
+                                "value -1 disables the limit. An oauth request is in flight until its final " +
+                                "response, including the renewal of its access token and its resend.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "max.in.flight.bytes",
+                        description = "Maximum total size in bytes of the request bodies which are sent but not " +
+                                "responded yet. A request is always sent when nothing is in flight. The value -1 " +
+                                "disables the limit.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "in.flight.limit.policy",
+                        description = "What happens to an event when the in flight limit is reached. 'block' waits " +
+                                "until a response is received, 'fail' drops the event with an error and " +
+                                "'connection.unavailable' throws a ConnectionUnavailableException so that Siddhi " +
+                                "retries the connection with its back off.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "block"),
+                @Parameter(
+                        name = "retry.count",
+                        description = "Maximum number of times a request is retried when it fails with a 5xx or " +
+                                "429 response or a connection error. Retries are scheduled without blocking the " +
+                                "publishing thread. The value 0 disables retrying. " +
+                                "It is not applicable for oauth requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "0"),
+                @Parameter(
+                        name = "retry.initial.backoff",
+                        description = "Back off in milliseconds before the first retry. It is doubled for each " +
+                                "further retry up to the retry.max.backoff, and half of it is randomized. A " +
+                                "Retry-After header of the response takes precedence, up to the retry.max.backoff.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "retry.max.backoff",
+                        description = "Maximum back off in milliseconds between two retries.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "retry.budget",
+                        description = "Maximum number of retries the sink can do in a burst. Retries are not done " +
+                                "once the budget is spent, until it is refilled by new requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "100"),
+                @Parameter(
+                        name = "retry.budget.ratio",
+                        description = "Fraction of a retry added to the retry budget for each new request. This " +
+                                "bounds the sustained retry traffic to the given fraction of the requests.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.2"),
+                @Parameter(
+                        name = "circuit.breaker.enabled",
+                        description = "Enables a circuit breaker for each endpoint, identified by the scheme, host " +
+                                "and port of the publisher.url. While the breaker of an endpoint is open, events " +
+                                "are sent to the circuit.breaker.fallback.url, or fail fast with a " +
+                                "ConnectionUnavailableException when no fallback url is given. The state of each " +
+                                "breaker is exposed as an MXBean of type 'CircuitBreaker' under the " +
+                                "'org.wso2.extension.siddhi.io.http' JMX domain.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "circuit.breaker.failure.rate.threshold",
+                        description = "Failure rate, between 0 and 1, over the last circuit.breaker.window.size " +
+                                "calls at which the breaker opens. Calls with a 5xx response, an error or a " +
+                                "response slower than circuit.breaker.slow.call.duration are failures.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.5"),
+                @Parameter(
+                        name = "circuit.breaker.slow.call.duration",
+                        description = "Response time in milliseconds above which a call is considered failed. The " +
+                                "value -1 disables latency based failures.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "circuit.breaker.window.size",
+                        description = "Number of most recent calls the failure rate is calculated over.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "20"),
+                @Parameter(
+                        name = "circuit.breaker.minimum.calls",
+                        description = "Minimum number of calls in the window before the breaker can open.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "10"),
+                @Parameter(
+                        name = "circuit.breaker.open.duration",
+                        description = "Time in milliseconds the breaker stays open before probe calls are sent to " +
+                                "the endpoint.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "circuit.breaker.half.open.calls",
+                        description = "Number of probe calls sent while the breaker is half open. The breaker " +
+                                "closes if all of them succeed and opens again otherwise.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
+                @Parameter(
+                        name = "circuit.breaker.fallback.url",
+                        description = "Url the events are sent to while the circuit breaker of their endpoint is " +
+                                "open.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "concurrency.limit.enabled",
+                        description = "Adapts the number of requests in flight to each endpoint, identified by the " +
+                                "scheme, host and port of the publisher.url, to its latency and errors. The limit " +
+                                "is decreased by the concurrency.limit.backoff.ratio on errors, 5xx and 429 " +
+                                "responses and responses slower than concurrency.limit.rtt.tolerance times the " +
+                                "minimum round trip time, and it is increased by one per round trip otherwise. " +
+                                "Events wait while the limit of their endpoint is reached. The limit of each " +
+                                "endpoint is exposed as an MXBean of type 'ConcurrencyLimiter' under the " +
+                                "'org.wso2.extension.siddhi.io.http' JMX domain.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false"),
+                @Parameter(
+                        name = "concurrency.limit.initial",
+                        description = "The number of requests allowed in flight to an endpoint before the limit is " +
+                                "adapted.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "20"),
+                @Parameter(
+                        name = "concurrency.limit.min",
+                        description = "The lowest number of requests allowed in flight to an endpoint.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1"),
+                @Parameter(
+                        name = "concurrency.limit.max",
+                        description = "The highest number of requests allowed in flight to an endpoint. This " +
+                                "should not exceed the maximum active connections of the client pool.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "200"),
+                @Parameter(
+                        name = "concurrency.limit.backoff.ratio",
+                        description = "Ratio, between 0 and 1, the limit is multiplied by when the endpoint is " +
+                                "congested.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "0.9"),
+                @Parameter(
+                        name = "concurrency.limit.rtt.tolerance",
+                        description = "Multiple of the minimum round trip time above which a response is " +
+                                "considered a sign of congestion. The minimum is tracked over the last 30 to 60 " +
+                                "seconds.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "2"),
+                @Parameter(
+                        name = "rate.limit",
+                        description = "Maximum number of requests per second, enforced with a token bucket so that " +
+                                "bursts of events are spread out instead of being rejected by a quota of the " +
+                                "endpoint. Retries are counted against the limit as well. The value -1 disables " +
+                                "the limit.",
+                        type = {DataType.DOUBLE},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "rate.limit.burst",
+                        description = "Maximum number of requests sent at once after the sink was idle, which is " +
+                                "the size of the token bucket. The value -1 sets it to one second worth of " +
+                                "requests.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "-1"),
+                @Parameter(
+                        name = "rate.limit.scope",
+                        description = "Whether the rate.limit applies to the whole sink, 'sink', or separately to " +
+                                "each destination identified by the scheme, host and port of the publisher.url, " +
+                                "'destination'.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "sink"),
+                @Parameter(
+                        name = "rate.limit.policy",
+                        description = "What happens to an event when the rate limit is reached. 'block' waits " +
+                                "until the event is due, 'fail' drops the event with an error and " +
+                                "'connection.unavailable' throws a ConnectionUnavailableException so that Siddhi " +
+                                "retries the connection with its back off.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "block"),
+                @Parameter(
+                        name = "publisher.urls",
+                        description = "Comma separated list of URLs the events are load balanced over, in place of " +
+                                "a single publisher.url. Each URL gets its own connection pool. " +
+                                "e.g., `http://host1:8080/endpoint,http://host2:8080/endpoint`",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "load.balancing.strategy",
+                        description = "Strategy used to select the URL of publisher.urls each event is sent to. " +
+                                "`round.robin` selects them in turn, `least.outstanding` selects the one with the " +
+                                "least requests awaiting a response, `ewma.latency` selects the one with the least " +
+                                "moving average of the response latency weighted by its outstanding requests, and " +
+                                "`consistent.hash` selects the one the value of load.balancing.hash.attribute " +
+                                "hashes to, so that events with the same value go to the same URL.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "round.robin"),
+                @Parameter(
+                        name = "load.balancing.hash.attribute",
+                        description = "Attribute of the stream whose value is hashed to select the URL when the " +
+                                "load.balancing.strategy is `consistent.hash`.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "load.balancing.ejection.failures",
+                        description = "Number of consecutive failed requests, with an error or a 5xx response, " +
+                                "after which a URL of publisher.urls is ejected and not selected for the " +
+                                "load.balancing.ejection.duration. Ejection is disabled when it is 0 or less.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "3"),
+                @Parameter(
+                        name = "load.balancing.ejection.duration",
+                        description = "Time in milliseconds an ejected URL is not selected for.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
+                @Parameter(
+                        name = "spill.queue.path",
+                        description = "Directory of a disk backed queue the requests are spilled to instead of " +
+                                "being dropped, when the circuit breaker of their endpoint is open without a " +
+                                "fallback url, when the in flight window is full, or when they finally fail after " +
+                                "all retries. Spilled requests are sent again in order once the endpoint " +
+                                "recovers, and new events are queued behind them until the queue is drained. The " +
+                                "queue is kept in '<path>/<siddhi app name>/<stream id>' and survives restarts, " +
+                                "hence sinks of the same stream must be given different paths. The queue is locked " +
+                                "while it is open, and a sink whose queue is in use by another sink fails to " +
+                                "deploy. The queue is disabled when no path is given and it is not applicable for " +
+                                "oauth requests.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "spill.queue.segment.size",
+                        description = "Size in bytes of each memory mapped segment file of the spill queue. A " +
+                                "request larger than a segment cannot be spilled.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "16777216"),
+                @Parameter(
+                        name = "spill.queue.max.size",
+                        description = "Maximum disk space in bytes used by the spill queue. Requests are dropped " +
+                                "once it is full.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "1073741824"),
+                @Parameter(
+                        name = "spill.queue.drain.interval",
+                        description = "Interval in milliseconds at which the sink checks whether the spilled " +
+                                "requests can be sent again.",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "5000"),
+                @Parameter(
+                        name = "partition.key",
+                        description = "The attribute whose events are delivered in order. The events with the same " +
+                                "value of the attribute are sent one at a time, in the order they are published, " +
+                                "including their retries, while the events of different values are sent in " +
+                                "parallel over 'partition.lanes' lanes. A waiting event which cannot be sent as " +
+                                "the connection is unavailable blocks its lane, and it is sent again before the " +
+                                "next event of the lane. It is not supported with 'batch.size'.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = " "),
+                @Parameter(
+                        name = "partition.lanes",
+                        description = "The number of lanes the values of the 'partition.key' are striped over. A " +
+                                "lane has one request in flight, hence this bounds the number of requests in " +
+                                "flight in the keyed ordering mode.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "16"),
+                @Parameter(
+                        name = "partition.lane.queue.size",
+                        description = "The maximum number of events waiting in a lane in the keyed ordering mode. " +
+                                "Publishing waits while the lane of an event is full.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1000"),
                 @Parameter(
                         name = "oauth.username",
                         description = "The username to be included in the authentication header of the oauth " +
@@ -402,6 +831,16 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.SOCKET_IDEAL_
                         type = {DataType.STRING},
                         optional = true,
                         defaultValue = " "),
+                @Parameter(
+                        name = "oauth.refresh.skew",
+                        description = "The time in milliseconds before the expiry of an access token at which it " +
+                                "is refreshed in the background, if the token endpoint returns its expiry time. " +
+                                "It is limited to half of the lifetime of the access token. A negative value " +
+                                "disables the background refresh, hence an access token is only renewed after it " +
+                                "is rejected. It is only applicable for Oauth requests",
+                        type = {DataType.LONG},
+                        optional = true,
+                        defaultValue = "30000"),
         },
         examples = {
                 @Example(syntax =
@@ -492,6 +931,7 @@ public class HttpSink extends Sink {
     HttpClientConnector clientConnector;
     String mapType;
     Option httpHeaderOption;
+    HttpHeaderTemplate headerTemplate;
     Option httpMethodOption;
     private String streamID;
     private Map<String, String> httpURLProperties;
@@ -517,6 +957,9 @@ public class HttpSink extends Sink {
     private String proxyPassword;
     private String clientBootstrapConfiguration;
     private String clientPoolConfiguration;
+    private String httpVersion;
+    private boolean http2PriorKnowledge;
+    private int http2MaxConcurrentStreams;
     private String bootstrapWorker;
     private String bootstrapBoss;
     private String bootstrapClient;
@@ -526,8 +969,30 @@ public class HttpSink extends Sink {
     private String oauthUserPassword;
     private Option refreshToken;
     private String authType;
-    private AccessTokenCache accessTokenCache = AccessTokenCache.getInstance();
+    private OAuthTokenManager tokenManager = OAuthTokenManager.getInstance();
     private String tokenURL;
+    private long oauthRefreshSkew;
+    private boolean tokenClientAcquired;
+    private HttpClientConnectorCache clientConnectorCache;
+    private HttpEventBatcher eventBatcher;
+    private InFlightRequestLimiter inFlightRequestLimiter;
+    HttpRetryScheduler retryScheduler;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+    private HttpRateLimiter rateLimiter;
+    private Map<String, String> fallbackURLProperties;
+    private HttpClientConnector fallbackClientConnector;
+    private String batchFormat;
+    private LoadBalancer loadBalancer;
+    private int hashAttributeIndex = -1;
+    private SpillQueue spillQueue;
+    HttpMessageBodyEncoder bodyEncoder;
+    private long spillQueueDrainInterval;
+    private ScheduledFuture<?> spillQueueDrainTask;
+    private HttpConnectionWarmer connectionWarmer;
+    private HttpPartitionLanes partitionLanes;
+    private int partitionKeyIndex = -1;
+    private final AtomicBoolean drainingSpillQueue = new AtomicBoolean(false);
 
     private DefaultHttpWsConnectorFactory httpConnectorFactory;
 
@@ -576,7 +1041,17 @@ public class HttpSink extends Sink {
         this.streamID = siddhiAppContext.getName() + PORT_HOST_SEPARATOR + outputStreamDefinition.toString();
         this.mapType = outputStreamDefinition.getAnnotations().get(0).getAnnotations().get(0).getElements().get(0)
                 .getValue();
-        this.publisherURLOption = optionHolder.validateAndGetOption(HttpConstants.PUBLISHER_URL);
+        String publisherURLs = optionHolder.validateAndGetStaticValue(HttpConstants.PUBLISHER_URLS, EMPTY_STRING);
+        if (EMPTY_STRING.equals(publisherURLs)) {
+            this.publisherURLOption = optionHolder.validateAndGetOption(HttpConstants.PUBLISHER_URL);
+        } else if (optionHolder.isOptionExists(HttpConstants.PUBLISHER_URL)) {
+            throw new SiddhiAppCreationException("Only one of " + HttpConstants.PUBLISHER_URL + " and " +
+                    HttpConstants.PUBLISHER_URLS + " can be given in " + HttpConstants.HTTP_SINK_ID + " in " +
+                    streamID);
+        } else {
+            this.publisherURLOption = optionHolder.getOrCreateOption(HttpConstants.PUBLISHER_URL,
+                    publisherURLs.split(",")[0].trim());
+        }
         this.httpHeaderOption = optionHolder.getOrCreateOption(HttpConstants.HEADERS, HttpConstants.DEFAULT_HEADER);
         this.httpMethodOption = optionHolder.getOrCreateOption(HttpConstants.METHOD, HttpConstants.DEFAULT_METHOD);
         this.consumerKey = optionHolder.validateAndGetStaticValue(HttpConstants.CONSUMER_KEY, EMPTY_STRING);
@@ -589,6 +1064,10 @@ public class HttpSink extends Sink {
                 EMPTY_STRING);
         this.refreshToken = optionHolder.getOrCreateOption(HttpConstants.RECEIVER_REFRESH_TOKEN, EMPTY_STRING);
         this.tokenURL = optionHolder.validateAndGetStaticValue(HttpConstants.TOKEN_URL, EMPTY_STRING);
+        this.oauthRefreshSkew = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.OAUTH_REFRESH_SKEW, HttpConstants.DEFAULT_OAUTH_REFRESH_SKEW));
+        this.bodyEncoder = new HttpMessageBodyEncoder(Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(
+                HttpConstants.BODY_DIRECT_BUFFER, HttpConstants.FALSE)));
         clientStoreFile = optionHolder.validateAndGetStaticValue(HttpConstants.CLIENT_TRUSTSTORE_PATH_PARAM,
                 HttpSinkUtil.trustStorePath(configReader));
         clientStorePass = optionHolder.validateAndGetStaticValue(HttpConstants.CLIENT_TRUSTSTORE_PASSWORD_PARAM,
@@ -613,6 +1092,18 @@ public class HttpSink extends Sink {
                 .validateAndGetStaticValue(HttpConstants.CLIENT_BOOTSTRAP_CONFIGURATION, EMPTY_STRING);
         clientPoolConfiguration = optionHolder
                 .validateAndGetStaticValue(HttpConstants.CLIENT_POOL_CONFIGURATION, EMPTY_STRING);
+        httpVersion = optionHolder.validateAndGetStaticValue(HttpConstants.CLIENT_HTTP_VERSION,
+                HttpConstants.HTTP_VERSION_1_1);
+        http2PriorKnowledge = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(
+                HttpConstants.HTTP2_PRIOR_KNOWLEDGE, HttpConstants.FALSE));
+        http2MaxConcurrentStreams = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.HTTP2_MAX_CONCURRENT_STREAMS, HttpConstants.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS));
+        if (!HttpConstants.HTTP_VERSION_1_1.equals(httpVersion) &&
+                !HttpConstants.HTTP_VERSION_2_0.equals(httpVersion)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.CLIENT_HTTP_VERSION + " '" + httpVersion +
+                    "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported values are " +
+                    HttpConstants.HTTP_VERSION_1_1 + " and " + HttpConstants.HTTP_VERSION_2_0 + ".");
+        }
         //read trp globe configuration
         bootstrapWorker = configReader
                 .readConfig(HttpConstants.CLIENT_BOOTSTRAP_WORKER_GROUP_SIZE, EMPTY_STRING);
@@ -629,12 +1120,46 @@ public class HttpSink extends Sink {
         } else {
             authType = HttpConstants.NO_AUTH;
         }
+        try {
+            // the oauth requests add and update the authorization headers, hence they get copies of the headers
+            headerTemplate = new HttpHeaderTemplate(httpHeaderOption, HttpConstants.OAUTH.equals(authType));
+        } catch (HttpSinkAdaptorRuntimeException e) {
+            throw new SiddhiAppCreationException("Invalid headers in " + HttpConstants.HTTP_SINK_ID + " in " +
+                    streamID + ". " + e.getMessage(), e);
+        }
 
+        validateAuthConfigurations();
         initConnectorFactory();
         if (publisherURLOption.isStatic()) {
-            initClientConnector(null);
+            initClientConnector();
+        } else {
+            int clientConnectorCacheSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                    HttpConstants.CLIENT_CONNECTOR_CACHE_SIZE, HttpConstants.DEFAULT_CLIENT_CONNECTOR_CACHE_SIZE));
+            // an evicted connector is closed once the requests in flight on it would have timed out
+            clientConnectorCache = new HttpClientConnectorCache(clientConnectorCacheSize,
+                    this::createClientConnector, siddhiAppContext.getScheduledExecutorService(),
+                    socketIdleTimeout > 0 ? socketIdleTimeout : HttpConstants.DEFAULT_CLIENT_SOCKET_IDLE_TIMEOUT);
         }
-        return null;
+        if (!EMPTY_STRING.equals(publisherURLs)) {
+            initLoadBalancer(optionHolder, outputStreamDefinition, publisherURLs);
+        }
+        initConnectionWarmer(optionHolder);
+        initEventBatcher(optionHolder);
+        initPartitionLanes(optionHolder, outputStreamDefinition);
+        initInFlightRequestLimiter(optionHolder);
+        initRetryScheduler(optionHolder);
+        initCircuitBreaker(optionHolder);
+        initConcurrencyLimiter(optionHolder);
+        initRateLimiter(optionHolder);
+        initSpillQueue(optionHolder, outputStreamDefinition.getId());
+        if (HttpConstants.OAUTH.equals(authType)) {
+            HttpsClient.acquire();
+            tokenClientAcquired = true;
+        }
+        if (spillQueue == null) {
+            return null;
+        }
+        return SpillQueueState::new;
     }
 
     @Override
@@ -653,265 +1178,396 @@ public class HttpSink extends Sink {
     @Override
     public void publish(Object payload, DynamicOptions dynamicOptions, State state)
             throws ConnectionUnavailableException {
-        //get the dynamic parameter
-        String headers = httpHeaderOption.getValue(dynamicOptions);
-        List<Header> headersList = HttpSinkUtil.getHeaders(headers);
-
-        if (authType.equals(HttpConstants.BASIC_AUTH) || authType.equals(HttpConstants.NO_AUTH)) {
-            sendRequest(payload, dynamicOptions, headersList);
-        } else {
-            sendOauthRequest(payload, dynamicOptions, headersList);
+        if (eventBatcher != null) {
+            String url = publisherURLOption.isStatic() ? publisherURLOption.getValue() :
+                    publisherURLOption.getValue(dynamicOptions);
+            if (hashAttributeIndex >= 0) {
+                // events hashed to different endpoints are not batched together
+                url = loadBalancer.select(getHashKey(dynamicOptions)).getRequestURL();
+            }
+            eventBatcher.add((String) payload, dynamicOptions, new HttpEventBatcher.BatchKey(url,
+                    httpMethodOption.getValue(dynamicOptions), httpHeaderOption.getValue(dynamicOptions)));
+            return;
         }
+        send(payload, dynamicOptions, headerTemplate.getHeaders(dynamicOptions));
     }
 
-    private void sendOauthRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList) {
-        //generate encoded base64 auth for getting refresh token
-        String consumerKeyValue = consumerKey + ":" + consumerSecret;
-        String encodedAuth = "Basic " + encodeBase64(consumerKeyValue)
-                .replaceAll(HttpConstants.NEW_LINE, HttpConstants.EMPTY_STRING);
-        //check the availability of access token in the header
-        setAccessToken(encodedAuth, dynamicOptions, headersList);
-        //send a request to API and get the response
-        int response = sendRequest(payload, dynamicOptions, headersList);
-        //if authentication fails then get the new access token
-        if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            handleOAuthFailure(payload, dynamicOptions, headersList, encodedAuth);
-        } else if (response == HttpConstants.SUCCESS_CODE) {
-            log.info("Request sent successfully to " + publisherURL);
-        } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-            log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                    response + "- Internal server error. Message dropped");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint, " +
-                    publisherURL + "', with response code: " + response + "- Internal server error. Message dropped.");
+    private void send(Object payload, DynamicOptions dynamicOptions, List<Header> headersList)
+            throws ConnectionUnavailableException {
+        if (partitionLanes != null) {
+            partitionLanes.submit(dynamicOptions.getEvent().getData(partitionKeyIndex),
+                    completion -> send(payload, dynamicOptions, headersList, completion));
         } else {
-            log.error("Error at sending oauth request to API endpoint " +
-                    publisherURL + "', with response code: " + response + ". Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                    publisherURL + "', and response code: " + response + ". Message dropped.");
+            send(payload, dynamicOptions, headersList, null);
         }
     }
 
-    private void handleOAuthFailure(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                    String encodedAuth) {
-        Boolean checkFromCache = accessTokenCache.checkAvailableKey(encodedAuth);
-        if (checkFromCache) {
-            getNewAccessTokenWithCache(payload, dynamicOptions, headersList, encodedAuth);
+    private void send(Object payload, DynamicOptions dynamicOptions, List<Header> headersList, Runnable completion)
+            throws ConnectionUnavailableException {
+        if (authType.equals(HttpConstants.BASIC_AUTH) || authType.equals(HttpConstants.NO_AUTH)) {
+            sendRequest(payload, dynamicOptions, headersList, completion);
         } else {
-            requestForNewAccessToken(payload, dynamicOptions, headersList, encodedAuth);
+            sendOauthRequest(payload, dynamicOptions, headersList, completion);
         }
     }
 
-    private void getNewAccessTokenWithCache(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                            String encodedAuth) {
-        String accessToken = accessTokenCache.getAccessToken(encodedAuth);
-        for (Header header : headersList) {
-            if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                header.setValue(accessToken);
-                break;
+    private void publishBatch(String messageBody, DynamicOptions dynamicOptions)
+            throws ConnectionUnavailableException {
+        List<Header> headersList = headerTemplate.getHeaders(dynamicOptions);
+        if (HttpConstants.BATCH_FORMAT_NDJSON.equals(batchFormat)) {
+            if (headersList == null) {
+                headersList = new ArrayList<>();
+            }
+            if (headersList.stream().noneMatch(header ->
+                    HttpConstants.HTTP_CONTENT_TYPE.equalsIgnoreCase(header.getName()))) {
+                headersList = new ArrayList<>(headersList);
+                headersList.add(new Header(HttpConstants.HTTP_CONTENT_TYPE, HttpConstants.APPLICATION_NDJSON));
             }
         }
-        //send a request to API with a new access token
-        int response = sendRequest(payload, dynamicOptions, headersList);
-        if (response == HttpConstants.SUCCESS_CODE) {
-            log.info("Request sent successfully to " + publisherURL);
-        } else if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            requestForNewAccessToken(payload, dynamicOptions, headersList, encodedAuth);
-        } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-            log.error("Error at sending oauth request to API endpoint, " + publisherURL + "', with response code: " +
-                    response + "- Internal server error. Message dropped");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint, " +
-                    publisherURL + "', with response code: " + response + "- Internal server error. Message dropped");
-        } else {
-            log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                    response + ". Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " + publisherURL +
-                    "', with response code: " + response + ". Message dropped.");
-        }
+        send(messageBody, dynamicOptions, headersList);
     }
 
-    private void requestForNewAccessToken(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
-                                          String encodedAuth) {
-        Boolean checkRefreshToken = accessTokenCache.checkRefreshAvailableKey(encodedAuth);
-        if (checkRefreshToken) {
-            for (Header header : headersList) {
-                if (header.getName().equals(HttpConstants.RECEIVER_REFRESH_TOKEN)) {
-                    if (accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-                        header.setValue(accessTokenCache.getRefreshtoken(encodedAuth));
-                    }
-                    break;
-                }
+    private void sendOauthRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
+                                  Runnable completion) throws ConnectionUnavailableException {
+        String encodedAuth = getEncodedAuth();
+        Map<String, String> urlProperties = loadBalancer == null ? getURLProperties(dynamicOptions) :
+                loadBalancer.select(getHashKey(dynamicOptions)).getURLProperties();
+        String httpMethod = EMPTY_STRING.equals(httpMethodOption.getValue(dynamicOptions)) ?
+                HttpConstants.METHOD_DEFAULT : httpMethodOption.getValue(dynamicOptions);
+        ByteBuf messageBody = Constants.HTTP_GET_METHOD.equals(httpMethod) ? null : encodeMessageBody(payload);
+        if (inFlightRequestLimiter != null) {
+            try {
+                inFlightRequestLimiter.acquire(messageBody == null ? 0 : messageBody.readableBytes());
+            } catch (ConnectionUnavailableException | RuntimeException e) {
+                ReferenceCountUtil.release(messageBody);
+                throw e;
             }
         }
-        getAccessToken(dynamicOptions, encodedAuth, tokenURL);
-        if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.SUCCESS_CODE) {
-            String newAccessToken = accessTokenCache.getAccessToken(encodedAuth);
-            accessTokenCache.setAccessToken(encodedAuth, newAccessToken);
-            if (accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-                accessTokenCache.setRefreshtoken(encodedAuth, accessTokenCache.getRefreshtoken(encodedAuth));
-            }
-            for (Header header : headersList) {
-                if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                    header.setValue(newAccessToken);
-                    break;
+        OAuthRequest request = new OAuthRequest(urlProperties, httpMethod,
+                headersList == null ? new ArrayList<>() : headersList, messageBody, dynamicOptions, encodedAuth,
+                completion);
+        CompletableFuture<AccessToken> accessToken = getAccessToken(dynamicOptions, encodedAuth, request.headersList);
+        if (accessToken != null && !accessToken.isDone()) {
+            // the request is sent once the token endpoint responds, without holding the publishing thread
+            accessToken.whenComplete((token, throwable) -> {
+                if (setAccessToken(request.headersList, token, throwable)) {
+                    request.resend(HttpConstants.MINIMUM_TRY_COUNT);
+                } else {
+                    request.complete();
                 }
+            });
+        } else if (accessToken == null || accessToken.handle((token, throwable) ->
+                setAccessToken(request.headersList, token, throwable)).join()) {
+            try {
+                request.send(HttpConstants.MINIMUM_TRY_COUNT, true);
+            } catch (ConnectionUnavailableException | RuntimeException e) {
+                request.complete();
+                throw e;
             }
-            //send a request to API with a new access token
-            int response = sendRequest(payload, dynamicOptions, headersList);
-            if (response == HttpConstants.SUCCESS_CODE) {
-                log.info("Request sent successfully to " + publisherURL);
-            } else if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + "- Authentication Failure. Please provide a valid Consumer key, Consumer secret" +
-                        " and token endpoint URL . Message dropped");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                        publisherURL + "', with response code: " + response + "- Authentication Failure." +
-                        " Please provide a valid Consumer key, Consumer secret and token endpoint URL." +
-                        " Message dropped");
-            } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + "- Internal server error. Message dropped");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint "
-                        + publisherURL + "', with response code: " + response +
-                        "- Internal server error. Message dropped");
-            } else {
-                log.error("Error at sending oauth request to API endpoint " + publisherURL + "', with response code: " +
-                        response + ". Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Error at sending oauth request to API endpoint " +
-                        publisherURL + "', with response code: " + response + ". Message dropped.");
-            }
-        } else if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-            log.error("Failed to generate new access token for the expired access token to " + publisherURL + "', " +
-                    accessTokenCache.getResponseCode(encodedAuth) + ": Authentication Failure.cPlease provide a " +
-                    "valid Consumer key, Consumer secret and token endpoint URL . Message dropped");
-            throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired access " +
-                    "token to " + publisherURL + "', " + accessTokenCache.getResponseCode(encodedAuth) +
-                    ": Authentication Failure.Please provide a valid Consumer key, Consumer secret" +
+        } else {
+            request.complete();
+        }
+    }
+
+    /**
+     * Returns the base64 encoded client credentials, used to get access tokens from the token endpoint.
+     */
+    String getEncodedAuth() {
+        String consumerKeyValue = consumerKey + ":" + consumerSecret;
+        return "Basic " + encodeBase64(consumerKeyValue).replaceAll(HttpConstants.NEW_LINE, HttpConstants.EMPTY_STRING);
+    }
+
+    /**
+     * Returns the access token to send an event with. An event without an authorization header gets the cached
+     * access token, or a new one if none has been obtained yet. The authorization header of an event is replaced only
+     * by a cached access token.
+     *
+     * @param dynamicOptions the dynamic options of the event.
+     * @param encodedAuth    the encoded client credentials.
+     * @param headersList    the headers of the event.
+     * @return the future access token, or null if the event is sent with its own authorization header.
+     */
+    CompletableFuture<AccessToken> getAccessToken(DynamicOptions dynamicOptions, String encodedAuth,
+                                                  List<Header> headersList) {
+        if (OAuthResponseListener.getAccessToken(headersList) == null) {
+            return renewAccessToken(dynamicOptions, encodedAuth, null);
+        }
+        AccessToken accessToken = tokenManager.getAccessToken(encodedAuth);
+        return accessToken == null ? null : CompletableFuture.completedFuture(accessToken);
+    }
+
+    /**
+     * Sets the access token obtained for an event to its headers, or logs the failure to obtain it.
+     *
+     * @param headersList the headers of the event.
+     * @param accessToken the response of the token endpoint, or null if the request failed.
+     * @param throwable   the failure of the request to the token endpoint, or null if it responded.
+     * @return whether the access token is set and the event can be sent.
+     */
+    boolean setAccessToken(List<Header> headersList, AccessToken accessToken, Throwable throwable) {
+        if (throwable != null) {
+            log.error("Failed to generate new access token for the expired access token to " + tokenURL +
+                    ". Message dropped.", throwable);
+            return false;
+        } else if (accessToken.isSuccess()) {
+            OAuthResponseListener.setAccessToken(headersList, accessToken);
+            return true;
+        } else if (accessToken.getResponseCode() == HttpConstants.AUTHENTICATION_FAIL_CODE) {
+            log.error("Failed to generate new access token for the expired access token to " + tokenURL +
+                    "', with response code: " + accessToken.getResponseCode() +
+                    "- Authentication Failure.Please provide a valid Consumer key, Consumer secret" +
                     " and token endpoint URL . Message dropped");
+        } else if (accessToken.getResponseCode() == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
+            log.error("Failed to generate new access token for the expired access token to " + tokenURL +
+                    "', with response code: " + accessToken.getResponseCode() +
+                    "- Internal server error. Message dropped");
         } else {
             log.error("Failed to generate new access token for the expired access token. Error code: " +
-                    accessTokenCache.getResponseCode(encodedAuth) + ". Message dropped.");
-            throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired" +
-                    " access token. Error code: " + accessTokenCache.getResponseCode(encodedAuth)
-                    + ". Message dropped.");
+                    accessToken.getResponseCode() + ". Message dropped.");
         }
+        return false;
+    }
+
+    /**
+     * Renews the access token of the credentials through the token manager, so that concurrent renewals of the
+     * same credentials send a single request to the token endpoint.
+     *
+     * @param dynamicOptions the dynamic options of the event.
+     * @param encodedAuth    the encoded client credentials.
+     * @param expiredToken   the access token which was rejected, or null if the event has no access token.
+     * @return the future response of the token endpoint.
+     */
+    public CompletableFuture<AccessToken> renewAccessToken(DynamicOptions dynamicOptions, String encodedAuth,
+                                                           String expiredToken) {
+        return tokenManager.renewAccessToken(encodedAuth, expiredToken, oauthRefreshSkew,
+                () -> requestAccessToken(dynamicOptions, encodedAuth));
     }
 
-    public void getAccessToken(DynamicOptions dynamicOptions, String encodedAuth, String tokenURL) {
-        this.tokenURL = tokenURL;
+    private AccessToken requestAccessToken(DynamicOptions dynamicOptions, String encodedAuth) {
         HttpsClient httpsClient = new HttpsClient();
+        AccessToken cachedToken = tokenManager.getAccessToken(encodedAuth);
         if (!HttpConstants.EMPTY_STRING.equals(oauthUsername) &&
                 !HttpConstants.EMPTY_STRING.equals(oauthUserPassword)) {
-            httpsClient.getPasswordGrantAccessToken(tokenURL, clientStoreFile,
+            return httpsClient.getPasswordGrantAccessToken(tokenURL, clientStoreFile,
                     clientStorePass, oauthUsername, oauthUserPassword, encodedAuth);
-        } else if (!HttpConstants.EMPTY_STRING.equals(refreshToken.getValue(dynamicOptions)) ||
-                accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-            httpsClient.getRefreshGrantAccessToken(tokenURL, clientStoreFile,
+        } else if (!HttpConstants.EMPTY_STRING.equals(refreshToken.getValue(dynamicOptions))) {
+            return httpsClient.getRefreshGrantAccessToken(tokenURL, clientStoreFile,
                     clientStorePass, encodedAuth, refreshToken.getValue(dynamicOptions));
+        } else if (cachedToken != null && cachedToken.getRefreshToken() != null) {
+            return httpsClient.getRefreshGrantAccessToken(tokenURL, clientStoreFile,
+                    clientStorePass, encodedAuth, cachedToken.getRefreshToken());
         } else {
-            httpsClient.getClientGrantAccessToken(tokenURL, clientStoreFile,
+            return httpsClient.getClientGrantAccessToken(tokenURL, clientStoreFile,
                     clientStorePass, encodedAuth);
         }
     }
 
-    public void setAccessToken(String encodedAuth, DynamicOptions dynamicOptions,
-                               List<Header> headersList) {
-        //check the availability of the authorization
-        String accessToken;
-        boolean authAvailability = false;
-        for (Header header : headersList) {
-            if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                authAvailability = true;
-                break;
-            }
+    private void sendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList,
+                             Runnable completion) throws ConnectionUnavailableException {
+        Map<String, String> urlProperties = loadBalancer == null ? getURLProperties(dynamicOptions) :
+                loadBalancer.select(getHashKey(dynamicOptions)).getURLProperties();
+        String httpMethod = EMPTY_STRING.equals(httpMethodOption.getValue(dynamicOptions)) ?
+                HttpConstants.METHOD_DEFAULT : httpMethodOption.getValue(dynamicOptions);
+        ByteBuf messageBody = Constants.HTTP_GET_METHOD.equals(httpMethod) ? null : encodeMessageBody(payload);
+        try {
+            sendRequest(urlProperties, httpMethod, headersList, messageBody, 0, completion);
+        } finally {
+            ReferenceCountUtil.release(messageBody);
         }
+    }
 
-        if (!authAvailability) {
-            //generate encoded base64 auth for getting refresh token
-            getAccessToken(dynamicOptions, encodedAuth, tokenURL);
-            if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.SUCCESS_CODE) {
-                headersList.add(new Header(HttpConstants.AUTHORIZATION_HEADER,
-                        accessTokenCache.getAccessToken(encodedAuth)));
-                if (accessTokenCache.getRefreshtoken(encodedAuth) != null) {
-                    headersList.add(new Header(HttpConstants.RECEIVER_REFRESH_TOKEN,
-                            accessTokenCache.getRefreshtoken(encodedAuth)));
+    /**
+     * Sends a request. Each attempt sends its own duplicate of the message body, and a reference of the body is kept
+     * along with the in flight permit until the request completes when it is needed for retries or spilling. The
+     * completion, if given, is run once the request is completed.
+     */
+    private void sendRequest(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                             ByteBuf messageBody, int retryCount, Runnable completion)
+            throws ConnectionUnavailableException {
+        long requestBytes = messageBody == null ? 0 : messageBody.readableBytes();
+        if (spillQueue != null && retryCount == 0 && !spillQueue.isEmpty()) {
+            // new requests wait behind the spilled ones, so that they are delivered in order
+            spill(urlProperties, httpMethod, headersList, messageBody);
+            runCompletion(completion);
+            return;
+        }
+        Map<String, String> publisherURLProperties = urlProperties;
+        CircuitBreaker circuitBreaker = getCircuitBreaker(urlProperties);
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (spillQueue != null && fallbackURLProperties == null) {
+                spill(urlProperties, httpMethod, headersList, messageBody);
+                if (retryCount > 0) {
+                    completeRequest(messageBody, requestBytes, completion);
+                } else {
+                    runCompletion(completion);
                 }
-            } else if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.AUTHENTICATION_FAIL_CODE) {
-                log.error("Failed to generate new access token for the expired access token to " + publisherURL +
-                        "', with response code: " + accessTokenCache.getResponseCode(encodedAuth) +
-                        "- Authentication Failure.Please provide a valid Consumer key, Consumer secret" +
-                        " and token endpoint URL . Message dropped");
-                throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired" +
-                        " access token to " + publisherURL + "', with response code: " +
-                        accessTokenCache.getResponseCode(encodedAuth) + "- Authentication Failure." +
-                        "Please provide a valid Consumer key, Consumer secret and token endpoint URL ." +
-                        " Message dropped");
-            } else if (accessTokenCache.getResponseCode(encodedAuth) == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
-                log.error("Failed to generate new access token for the expired access token to " + publisherURL +
-                        "', with response code: " + accessTokenCache.getResponseCode(encodedAuth) +
-                        "- Internal server error. Message dropped");
-                throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired" +
-                        " access token to " + publisherURL + "', with response code: " +
-                        accessTokenCache.getResponseCode(encodedAuth) + "- Internal server error. Message dropped");
-            } else {
-                log.error("Failed to generate new access token for the expired access token. Error code: " +
-                        accessTokenCache.getResponseCode(encodedAuth) + ". Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Failed to generate new access token for the expired" +
-                        " access token. Error code: " + accessTokenCache.getResponseCode(encodedAuth) +
-                        ". Message dropped.");
+                return;
             }
-        } else {
-            //check the cache and update new access token into header
-            if (accessTokenCache.checkAvailableKey(encodedAuth)) {
-                accessToken = accessTokenCache.getAccessToken(encodedAuth);
-                for (Header header : headersList) {
-                    if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
-                        header.setValue(accessToken);
-                        break;
+            urlProperties = getFallbackURLProperties(urlProperties);
+            circuitBreaker = null;
+        }
+        HttpClientConnector clientConnector = getClientConnector(urlProperties);
+        LoadBalancer.Endpoint endpoint = loadBalancer == null ? null :
+                loadBalancer.getEndpoint(urlProperties.get(Constants.REQUEST_URL));
+        if (inFlightRequestLimiter != null || retryScheduler != null || circuitBreaker != null ||
+                spillQueue != null || endpoint != null || completion != null || concurrencyLimiterRegistry != null ||
+                rateLimiter != null) {
+            String requestURL = urlProperties.get(Constants.REQUEST_URL);
+            if (retryCount == 0) {
+                if (inFlightRequestLimiter != null) {
+                    if (spillQueue == null) {
+                        inFlightRequestLimiter.acquire(requestBytes);
+                    } else if (!inFlightRequestLimiter.tryAcquire(requestBytes)) {
+                        spill(urlProperties, httpMethod, headersList, messageBody);
+                        runCompletion(completion);
+                        return;
                     }
                 }
+                if (retryScheduler != null) {
+                    retryScheduler.onRequest();
+                }
+                if (retryScheduler != null || spillQueue != null) {
+                    ReferenceCountUtil.retain(messageBody);
+                }
             }
+            try {
+                HttpConnectorListener responseListener = null;
+                if (inFlightRequestLimiter != null || retryScheduler != null || spillQueue != null ||
+                        completion != null) {
+                    responseListener = new RequestListener(publisherURLProperties, httpMethod, headersList,
+                            messageBody, requestBytes, completion);
+                }
+                if (retryScheduler != null) {
+                    Map<String, String> resendURLProperties = publisherURLProperties;
+                    responseListener = retryScheduler.createResponseListener(responseListener, retryCount,
+                            requestURL, () -> resendRequest(resendURLProperties, httpMethod, headersList,
+                                    messageBody, requestBytes, retryCount + 1, completion));
+                }
+                if (endpoint != null) {
+                    responseListener = loadBalancer.createResponseListener(endpoint, responseListener);
+                }
+                if (circuitBreaker != null) {
+                    responseListener = circuitBreaker.createResponseListener(responseListener);
+                }
+                sendMessage(clientConnector, urlProperties, httpMethod, headersList, messageBody, responseListener,
+                        retryCount == 0);
+            } catch (ConnectionUnavailableException | RuntimeException e) {
+                if (retryCount == 0) {
+                    completeRequest(messageBody, requestBytes, completion);
+                }
+                throw e;
+            }
+        } else {
+            clientConnector.send(createCarbonMessage(urlProperties, httpMethod, headersList,
+                    messageBody == null ? null : messageBody.retainedDuplicate()));
         }
     }
 
-    private int sendRequest(Object payload, DynamicOptions dynamicOptions, List<Header> headersList) {
-        if (!publisherURLOption.isStatic()) {
-            initClientConnector(dynamicOptions);
+    private void resendRequest(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                               ByteBuf messageBody, long requestBytes, int retryCount, Runnable completion) {
+        try {
+            sendRequest(urlProperties, httpMethod, headersList, messageBody, retryCount, completion);
+        } catch (ConnectionUnavailableException | RuntimeException e) {
+            completeRequest(messageBody, requestBytes, completion);
+            log.error("Error at retrying the request of " + streamID + ". Message dropped.", e);
         }
-        String httpMethod = EMPTY_STRING.equals(httpMethodOption.getValue(dynamicOptions)) ?
-                HttpConstants.METHOD_DEFAULT : httpMethodOption.getValue(dynamicOptions);
+    }
+
+    /**
+     * Releases the in flight permit and the message body kept for a request once it is completed, and runs its
+     * completion. The size of the body is given by the caller, as the body is already released when it is not kept.
+     */
+    private void completeRequest(ByteBuf messageBody, long requestBytes, Runnable completion) {
+        if (inFlightRequestLimiter != null) {
+            inFlightRequestLimiter.release(requestBytes);
+        }
+        if (retryScheduler != null || spillQueue != null) {
+            ReferenceCountUtil.release(messageBody);
+        }
+        runCompletion(completion);
+    }
+
+    private static void runCompletion(Runnable completion) {
+        if (completion != null) {
+            completion.run();
+        }
+    }
+
+    HttpCarbonMessage createCarbonMessage(Map<String, String> urlProperties, String httpMethod,
+                                          List<Header> headersList, ByteBuf messageBody) {
         String contentType = HttpSinkUtil.getContentType(mapType, headersList);
-        String messageBody = getMessageBody(payload);
         HttpMethod httpReqMethod = new HttpMethod(httpMethod);
         HttpCarbonMessage cMessage = new HttpCarbonMessage(
                 new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpReqMethod, EMPTY_STRING));
-        cMessage = generateCarbonMessage(headersList, contentType, httpMethod, cMessage);
+        cMessage = generateCarbonMessage(headersList, contentType, httpMethod, cMessage, urlProperties);
         if (!Constants.HTTP_GET_METHOD.equals(httpMethod)) {
-            cMessage.addHttpContent(new DefaultLastHttpContent(Unpooled.wrappedBuffer(messageBody
-                    .getBytes(Charset.defaultCharset()))));
+            cMessage.addHttpContent(new DefaultLastHttpContent(messageBody));
         }
         cMessage.completeMessage();
-        if (HttpConstants.OAUTH.equals(authType)) {
-            CountDownLatch latch = new CountDownLatch(1);
-            DefaultListener listener = new DefaultListener(latch, authType);
-            HttpResponseFuture responseFuture = clientConnector.send(cMessage);
-            responseFuture.setHttpConnectorListener(listener);
-            try {
-                boolean latchCount = latch.await(30, TimeUnit.SECONDS);
-                if (!latchCount) {
-                    log.debug("Time out due to getting getting response from " + publisherURL + ". Message dropped.");
-                    throw new HttpSinkAdaptorRuntimeException("Time out due to getting getting response from "
-                            + publisherURL + ". Message dropped.");
-                }
-            } catch (InterruptedException e) {
-                log.debug("Failed to get a response from " + publisherURL + "," + e + ". Message dropped.");
-                throw new HttpSinkAdaptorRuntimeException("Failed to get a response from " +
-                        publisherURL + ", " + e + ". Message dropped.");
+        return cMessage;
+    }
+
+    /**
+     * Appends a request to the spill queue, or drops it if the queue is full.
+     */
+    private void spill(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                       ByteBuf messageBody) {
+        SpilledRequest request = new SpilledRequest(urlProperties.get(Constants.REQUEST_URL), httpMethod,
+                headersList, messageBody == null ? null : ByteBufUtil.getBytes(messageBody));
+        try {
+            if (!spillQueue.offer(request.toBytes())) {
+                log.error("Spill queue of " + streamID + " is full or the request is larger than a segment. " +
+                        "Message dropped.");
             }
-            HttpCarbonMessage response = listener.getHttpResponseMessage();
-            return response.getNettyHttpResponse().status().code();
-        } else {
-            clientConnector.send(cMessage);
-            return HttpConstants.SUCCESS_CODE;
+        } catch (IOException e) {
+            log.error("Failed to spill the request of " + streamID + " to the disk. Message dropped.", e);
+        }
+    }
+
+    private void drainSpillQueue() {
+        if (!spillQueue.isEmpty() && drainingSpillQueue.compareAndSet(false, true)) {
+            sendSpilledRequest();
+        }
+    }
+
+    /**
+     * Sends the request at the head of the spill queue. The request is removed from the queue only once it is
+     * delivered and the next request is sent right after, so that the requests are delivered in order and a failing
+     * endpoint gets a single request per drain interval.
+     */
+    private void sendSpilledRequest() {
+        byte[] record = spillQueue.peek();
+        if (record == null) {
+            drainingSpillQueue.set(false);
+            return;
+        }
+        SpilledRequest request;
+        try {
+            request = SpilledRequest.fromBytes(record);
+        } catch (RuntimeException e) {
+            log.error("Failed to read a spilled request of " + streamID + ". Message dropped.", e);
+            spillQueue.remove();
+            sendSpilledRequest();
+            return;
+        }
+        try {
+            Map<String, String> urlProperties = getURLProperties(request.getPublisherURL());
+            CircuitBreaker circuitBreaker = getCircuitBreaker(urlProperties);
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                drainingSpillQueue.set(false);
+                return;
+            }
+            HttpCarbonMessage cMessage = createCarbonMessage(urlProperties, request.getHttpMethod(),
+                    request.getHeaders(), Unpooled.wrappedBuffer(request.getMessageBody()));
+            HttpConnectorListener responseListener = new SpillDrainListener();
+            if (circuitBreaker != null) {
+                responseListener = circuitBreaker.createResponseListener(responseListener);
+            }
+            HttpResponseFuture responseFuture = getClientConnector(urlProperties).send(cMessage);
+            responseFuture.setHttpConnectorListener(responseListener);
+        } catch (RuntimeException e) {
+            drainingSpillQueue.set(false);
+            log.error("Failed to send the spilled requests of " + streamID + ".", e);
         }
     }
 
@@ -925,6 +1581,13 @@ public class HttpSink extends Sink {
         if (publisherURLOption.isStatic()) {
             log.info(streamID + " has successfully connected to " + publisherURL);
         }
+        if (spillQueue != null && spillQueueDrainTask == null) {
+            spillQueueDrainTask = siddhiAppContext.getScheduledExecutorService().scheduleWithFixedDelay(
+                    this::drainSpillQueue, spillQueueDrainInterval, spillQueueDrainInterval, TimeUnit.MILLISECONDS);
+        }
+        if (connectionWarmer != null && httpConnectorFactory != null) {
+            connectionWarmer.start(getDestinations(), siddhiAppContext.getScheduledExecutorService());
+        }
     }
 
     /**
@@ -932,10 +1595,28 @@ public class HttpSink extends Sink {
      */
     @Override
     public void disconnect() {
+        if (eventBatcher != null) {
+            try {
+                eventBatcher.flush();
+            } catch (ConnectionUnavailableException e) {
+                log.error("Failed to publish the pending batch of events of " + streamID + " while disconnecting. " +
+                        "Message dropped.", e);
+            }
+        }
+        if (spillQueueDrainTask != null) {
+            spillQueueDrainTask.cancel(false);
+            spillQueueDrainTask = null;
+        }
+        if (connectionWarmer != null) {
+            connectionWarmer.stop();
+        }
         if (clientConnector != null) {
             clientConnector = null;
             log.info("Server connector for url " + publisherURL + " disconnected.");
         }
+        if (clientConnectorCache != null) {
+            clientConnectorCache.clear();
+        }
 
         if (httpConnectorFactory != null) {
             httpConnectorFactory.shutdownNow();
@@ -949,6 +1630,23 @@ public class HttpSink extends Sink {
      */
     @Override
     public void destroy() {
+        if (retryScheduler != null) {
+            retryScheduler.stop();
+        }
+        if (circuitBreakerRegistry != null) {
+            circuitBreakerRegistry.clear();
+        }
+        if (concurrencyLimiterRegistry != null) {
+            concurrencyLimiterRegistry.clear();
+        }
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+        if (tokenClientAcquired) {
+            // the connectors of the token endpoints are closed when the last oauth sink is destroyed
+            tokenClientAcquired = false;
+            HttpsClient.release();
+        }
         if (clientConnector != null) {
             clientConnector = null;
             log.info("Server connector for url " + publisherURL + " disconnected.");
@@ -958,29 +1656,31 @@ public class HttpSink extends Sink {
     /**
      * The method is responsible of generating carbon message to send.
      *
-     * @param headers     the headers set.
-     * @param contentType the content type. Value is if user has to given it as a header or if not it is map type.
-     * @param httpMethod  http method type.
-     * @param cMessage    carbon message to be send to the endpoint.
+     * @param headers       the headers set.
+     * @param contentType   the content type. Value is if user has to given it as a header or if not it is map type.
+     * @param httpMethod    http method type.
+     * @param cMessage      carbon message to be send to the endpoint.
+     * @param urlProperties properties of the publisher url the message is sent to.
      * @return generated carbon message.
      */
     HttpCarbonMessage generateCarbonMessage(List<Header> headers, String contentType,
-                                            String httpMethod, HttpCarbonMessage cMessage) {
+                                            String httpMethod, HttpCarbonMessage cMessage,
+                                            Map<String, String> urlProperties) {
         /*
          * set carbon message properties which is to be used in carbon transport.
          */
         // Set protocol type http or https
-        cMessage.setProperty(Constants.PROTOCOL, httpURLProperties.get(Constants.PROTOCOL));
+        cMessage.setProperty(Constants.PROTOCOL, urlProperties.get(Constants.PROTOCOL));
         // Set uri
-        cMessage.setProperty(Constants.TO, httpURLProperties.get(Constants.TO));
+        cMessage.setProperty(Constants.TO, urlProperties.get(Constants.TO));
         // set Host
-        cMessage.setProperty(Constants.HTTP_HOST, httpURLProperties.get(Constants.HTTP_HOST));
+        cMessage.setProperty(Constants.HTTP_HOST, urlProperties.get(Constants.HTTP_HOST));
         //set port
-        cMessage.setProperty(Constants.HTTP_PORT, Integer.valueOf(httpURLProperties.get(Constants.HTTP_PORT)));
+        cMessage.setProperty(Constants.HTTP_PORT, Integer.valueOf(urlProperties.get(Constants.HTTP_PORT)));
         // Set method
         cMessage.setProperty(Constants.HTTP_METHOD, httpMethod);
         //Set request URL
-        cMessage.setProperty(Constants.REQUEST_URL, httpURLProperties.get(Constants.REQUEST_URL));
+        cMessage.setProperty(Constants.REQUEST_URL, urlProperties.get(Constants.REQUEST_URL));
         HttpHeaders httpHeaders = cMessage.getHeaders();
         //if Authentication enabled
         if (!(userName.equals(EMPTY_STRING)) && !(userPassword.equals
@@ -1011,14 +1711,15 @@ public class HttpSink extends Sink {
         return cMessage;
     }
 
-    String getMessageBody(Object payload) {
+    /**
+     * Encodes the payload of an event into a pooled buffer, which has to be released by the receiver. The key value
+     * pairs of the keyvalue mapping are form url encoded.
+     */
+    ByteBuf encodeMessageBody(Object payload) {
         if (HttpConstants.MAP_KEYVALUE.equals(mapType)) {
-            Map<String, Object> params = (HashMap) payload;
-            return params.entrySet().stream()
-                    .map(p -> encodeMessage(p.getKey()) + "=" + encodeMessage(p.getValue()))
-                    .reduce("", (p1, p2) -> p1 + "&" + p2);
+            return bodyEncoder.encode((Map<String, Object>) payload);
         } else {
-            return (String) payload;
+            return bodyEncoder.encode((String) payload);
         }
     }
 
@@ -1037,12 +1738,495 @@ public class HttpSink extends Sink {
         }
     }
 
-    void initClientConnector(DynamicOptions dynamicOptions) {
+    void initClientConnector() {
+        publisherURL = publisherURLOption.getValue();
+        this.httpURLProperties = HttpSinkUtil.getURLProperties(publisherURL);
+        clientConnector = createClientConnector(httpURLProperties);
+    }
+
+    /**
+     * Returns the properties of the publisher url of the event. Urls of a dynamic publisher.url are parsed once and
+     * served from the client connector cache afterwards.
+     *
+     * @param dynamicOptions dynamic options of the event.
+     * @return properties of the publisher url.
+     */
+    Map<String, String> getURLProperties(DynamicOptions dynamicOptions) {
+        if (publisherURLOption.isStatic()) {
+            return httpURLProperties;
+        }
+        return clientConnectorCache.getURLProperties(publisherURLOption.getValue(dynamicOptions));
+    }
+
+    /**
+     * Returns the properties of the given publisher url of a spilled request.
+     *
+     * @param publisherURL the publisher url.
+     * @return properties of the publisher url.
+     */
+    private Map<String, String> getURLProperties(String publisherURL) {
+        if (loadBalancer != null) {
+            LoadBalancer.Endpoint endpoint = loadBalancer.getEndpoint(publisherURL);
+            return endpoint == null ? loadBalancer.select(null).getURLProperties() : endpoint.getURLProperties();
+        }
         if (publisherURLOption.isStatic()) {
-            publisherURL = publisherURLOption.getValue();
+            return httpURLProperties;
+        }
+        return clientConnectorCache.getURLProperties(publisherURL);
+    }
+
+    /**
+     * Returns the client connector for the destination of the given url properties.
+     *
+     * @param urlProperties properties of the publisher url.
+     * @return client connector of the destination.
+     */
+    HttpClientConnector getClientConnector(Map<String, String> urlProperties) {
+        if (urlProperties == fallbackURLProperties) {
+            return fallbackClientConnector;
+        }
+        if (loadBalancer != null) {
+            LoadBalancer.Endpoint endpoint = loadBalancer.getEndpoint(urlProperties.get(Constants.REQUEST_URL));
+            if (endpoint != null) {
+                return endpoint.getClientConnector();
+            }
+        }
+        if (publisherURLOption.isStatic()) {
+            return clientConnector;
+        }
+        return clientConnectorCache.getClientConnector(urlProperties);
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint of the given url properties.
+     *
+     * @param urlProperties properties of the publisher url.
+     * @return the circuit breaker of the endpoint, or null if circuit breaking is disabled.
+     */
+    CircuitBreaker getCircuitBreaker(Map<String, String> urlProperties) {
+        if (circuitBreakerRegistry == null) {
+            return null;
+        }
+        return circuitBreakerRegistry.getCircuitBreaker(urlProperties);
+    }
+
+    /**
+     * Sends a message to the endpoint of the given url properties within the rate limit of the sink and the
+     * concurrency limit of the endpoint, if they are enabled.
+     *
+     * @param clientConnector  the client connector of the endpoint.
+     * @param cMessage         the message.
+     * @param urlProperties    properties of the url the message is sent to.
+     * @param responseListener the listener of the response, can be null.
+     * @param wait             whether to wait while the limits are reached, which is false for the requests sent
+     *                         from the transport and the scheduler threads.
+     * @throws ConnectionUnavailableException when the rate limit is reached and its policy is connection.unavailable,
+     *                                        in which case the message is not sent and its content is not released.
+     */
+    void sendMessage(HttpClientConnector clientConnector, HttpCarbonMessage cMessage, Map<String, String> urlProperties,
+                     HttpConnectorListener responseListener, boolean wait) throws ConnectionUnavailableException {
+        if (rateLimiter != null) {
+            if (wait) {
+                rateLimiter.acquire(urlProperties);
+            } else {
+                rateLimiter.admit(urlProperties);
+            }
+        }
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiterRegistry == null ? null :
+                concurrencyLimiterRegistry.getConcurrencyLimiter(urlProperties);
+        if (concurrencyLimiter == null) {
+            HttpResponseFuture responseFuture = clientConnector.send(cMessage);
+            responseFuture.setHttpConnectorListener(responseListener);
+            return;
+        }
+        if (wait) {
+            concurrencyLimiter.acquire();
         } else {
-            publisherURL = publisherURLOption.getValue(dynamicOptions);
+            concurrencyLimiter.admit();
+        }
+        HttpResponseFuture responseFuture;
+        try {
+            responseFuture = clientConnector.send(cMessage);
+        } catch (RuntimeException e) {
+            concurrencyLimiter.release();
+            throw e;
+        }
+        responseFuture.setHttpConnectorListener(concurrencyLimiter.createResponseListener(responseListener));
+    }
+
+    /**
+     * Sends a message holding a duplicate of the given body within the limits of the sink and the endpoint. The
+     * duplicate is created only once the request is admitted by the sink, and released if the message is rejected by
+     * the limits or fails to be handed over to the transport, which releases it otherwise.
+     *
+     * @param clientConnector  the client connector of the endpoint.
+     * @param urlProperties    properties of the url the message is sent to.
+     * @param httpMethod       the http method.
+     * @param headersList      the headers of the message.
+     * @param messageBody      the body of the message, or null if it has none.
+     * @param responseListener the listener of the response, can be null.
+     * @param wait             whether to wait while the limits are reached.
+     * @throws ConnectionUnavailableException when the rate limit is reached and its policy is connection.unavailable.
+     */
+    void sendMessage(HttpClientConnector clientConnector, Map<String, String> urlProperties, String httpMethod,
+                     List<Header> headersList, ByteBuf messageBody, HttpConnectorListener responseListener,
+                     boolean wait) throws ConnectionUnavailableException {
+        ByteBuf requestBody = messageBody == null ? null : messageBody.retainedDuplicate();
+        try {
+            sendMessage(clientConnector, createCarbonMessage(urlProperties, httpMethod, headersList, requestBody),
+                    urlProperties, responseListener, wait);
+        } catch (ConnectionUnavailableException | RuntimeException e) {
+            ReferenceCountUtil.release(requestBody);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the url properties of the fallback url, which requests rejected by an open circuit breaker are sent to.
+     *
+     * @param urlProperties properties of the publisher url whose circuit breaker is open.
+     * @return properties of the fallback url.
+     * @throws ConnectionUnavailableException if no fallback url is given, so that the request fails fast.
+     */
+    Map<String, String> getFallbackURLProperties(Map<String, String> urlProperties)
+            throws ConnectionUnavailableException {
+        if (fallbackURLProperties == null) {
+            throw new ConnectionUnavailableException("Circuit breaker of " + urlProperties.get(Constants.PROTOCOL) +
+                    HttpConstants.PROTOCOL_HOST_SEPARATOR + urlProperties.get(Constants.HTTP_HOST) +
+                    PORT_HOST_SEPARATOR + urlProperties.get(Constants.HTTP_PORT) + " is open in " + streamID);
+        }
+        return fallbackURLProperties;
+    }
+
+    private void initCircuitBreaker(OptionHolder optionHolder) {
+        boolean circuitBreakerEnabled = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_ENABLED, HttpConstants.FALSE));
+        if (!circuitBreakerEnabled) {
+            return;
+        }
+        double failureRateThreshold = Double.parseDouble(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+                HttpConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD));
+        long slowCallDuration = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_SLOW_CALL_DURATION,
+                HttpConstants.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION));
+        int windowSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_WINDOW_SIZE, HttpConstants.DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE));
+        int minimumCalls = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_MINIMUM_CALLS, HttpConstants.DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS));
+        long openDuration = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_OPEN_DURATION, HttpConstants.DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION));
+        int halfOpenCalls = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CIRCUIT_BREAKER_HALF_OPEN_CALLS,
+                HttpConstants.DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS));
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || windowSize <= 0 || minimumCalls <= 0 ||
+                openDuration <= 0 || halfOpenCalls <= 0) {
+            throw new SiddhiAppCreationException("Invalid circuit breaker configuration found in " +
+                    HttpConstants.HTTP_SINK_ID + " in " + streamID + ". The failure rate threshold should be " +
+                    "between 0 and 1 and the window size, minimum calls, open duration and half open calls " +
+                    "should be greater than 0.");
+        }
+        String fallbackURL = optionHolder.validateAndGetStaticValue(HttpConstants.CIRCUIT_BREAKER_FALLBACK_URL,
+                EMPTY_STRING);
+        if (!EMPTY_STRING.equals(fallbackURL)) {
+            fallbackURLProperties = Collections.unmodifiableMap(HttpSinkUtil.getURLProperties(fallbackURL));
+            fallbackClientConnector = createClientConnector(fallbackURLProperties);
+        }
+        circuitBreakerRegistry = new CircuitBreakerRegistry(streamID, failureRateThreshold, slowCallDuration,
+                windowSize, minimumCalls, openDuration, halfOpenCalls);
+    }
+
+    private void initConcurrencyLimiter(OptionHolder optionHolder) {
+        boolean concurrencyLimitEnabled = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_ENABLED, HttpConstants.FALSE));
+        if (!concurrencyLimitEnabled) {
+            return;
+        }
+        int initialLimit = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_INITIAL, HttpConstants.DEFAULT_CONCURRENCY_LIMIT_INITIAL));
+        int minLimit = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_MIN, HttpConstants.DEFAULT_CONCURRENCY_LIMIT_MIN));
+        int maxLimit = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_MAX, HttpConstants.DEFAULT_CONCURRENCY_LIMIT_MAX));
+        double backoffRatio = Double.parseDouble(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_BACKOFF_RATIO, HttpConstants.DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO));
+        double rttTolerance = Double.parseDouble(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CONCURRENCY_LIMIT_RTT_TOLERANCE, HttpConstants.DEFAULT_CONCURRENCY_LIMIT_RTT_TOLERANCE));
+        if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit || backoffRatio <= 0 ||
+                backoffRatio >= 1 || rttTolerance <= 1) {
+            throw new SiddhiAppCreationException("Invalid concurrency limit configuration found in " +
+                    HttpConstants.HTTP_SINK_ID + " in " + streamID + ". The limits should satisfy 0 < minimum <= " +
+                    "initial <= maximum, the backoff ratio should be between 0 and 1 and the rtt tolerance should " +
+                    "be greater than 1.");
+        }
+        concurrencyLimiterRegistry = new ConcurrencyLimiterRegistry(streamID, initialLimit, minLimit, maxLimit,
+                backoffRatio, rttTolerance);
+    }
+
+    private void initRateLimiter(OptionHolder optionHolder) {
+        double rate = Double.parseDouble(optionHolder.validateAndGetStaticValue(HttpConstants.RATE_LIMIT,
+                HttpConstants.DEFAULT_RATE_LIMIT));
+        if (rate <= 0) {
+            return;
+        }
+        int burst = Integer.parseInt(optionHolder.validateAndGetStaticValue(HttpConstants.RATE_LIMIT_BURST,
+                HttpConstants.DEFAULT_RATE_LIMIT_BURST));
+        if (burst <= 0) {
+            burst = (int) Math.max(1, Math.ceil(rate));
+        }
+        String scope = optionHolder.validateAndGetStaticValue(HttpConstants.RATE_LIMIT_SCOPE,
+                HttpConstants.RATE_LIMIT_SCOPE_SINK);
+        if (!HttpConstants.RATE_LIMIT_SCOPE_SINK.equals(scope) &&
+                !HttpConstants.RATE_LIMIT_SCOPE_DESTINATION.equals(scope)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.RATE_LIMIT_SCOPE + " '" + scope +
+                    "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported values are " +
+                    HttpConstants.RATE_LIMIT_SCOPE_SINK + " and " + HttpConstants.RATE_LIMIT_SCOPE_DESTINATION + ".");
+        }
+        String policy = optionHolder.validateAndGetStaticValue(HttpConstants.RATE_LIMIT_POLICY,
+                HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK);
+        if (!HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK.equals(policy) &&
+                !HttpConstants.IN_FLIGHT_LIMIT_POLICY_FAIL.equals(policy) &&
+                !HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE.equals(policy)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.RATE_LIMIT_POLICY + " '" + policy +
+                    "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported values are " +
+                    HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK + ", " + HttpConstants.IN_FLIGHT_LIMIT_POLICY_FAIL +
+                    " and " + HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE + ".");
+        }
+        rateLimiter = new HttpRateLimiter(rate, burst,
+                HttpConstants.RATE_LIMIT_SCOPE_DESTINATION.equals(scope), policy, streamID);
+    }
+
+    private void initEventBatcher(OptionHolder optionHolder) {
+        int batchSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(HttpConstants.BATCH_SIZE,
+                HttpConstants.DEFAULT_BATCH_SIZE));
+        if (batchSize <= 1) {
+            return;
+        }
+        if (HttpConstants.MAP_KEYVALUE.equals(mapType)) {
+            throw new SiddhiAppCreationException(HttpConstants.BATCH_SIZE + " is not supported with the " +
+                    HttpConstants.MAP_KEYVALUE + " mapping in " + HttpConstants.HTTP_SINK_ID + " in " + streamID);
+        }
+        long batchMaxBytes = Long.parseLong(optionHolder.validateAndGetStaticValue(HttpConstants.BATCH_MAX_BYTES,
+                HttpConstants.DEFAULT_BATCH_MAX_BYTES));
+        long batchLingerTime = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.BATCH_LINGER_TIME, HttpConstants.DEFAULT_BATCH_LINGER_TIME));
+        if (batchLingerTime <= 0) {
+            throw new SiddhiAppCreationException(HttpConstants.BATCH_LINGER_TIME + " should be greater than 0 " +
+                    "but found " + batchLingerTime + " in " + HttpConstants.HTTP_SINK_ID + " in " + streamID);
+        }
+        batchFormat = optionHolder.validateAndGetStaticValue(HttpConstants.BATCH_FORMAT,
+                HttpConstants.MAP_JSON.equals(mapType) ? HttpConstants.BATCH_FORMAT_JSON_ARRAY :
+                        HttpConstants.BATCH_FORMAT_TEXT);
+        if (!HttpConstants.BATCH_FORMAT_JSON_ARRAY.equals(batchFormat) &&
+                !HttpConstants.BATCH_FORMAT_NDJSON.equals(batchFormat) &&
+                !HttpConstants.BATCH_FORMAT_TEXT.equals(batchFormat)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.BATCH_FORMAT + " '" + batchFormat +
+                    "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported values are " +
+                    HttpConstants.BATCH_FORMAT_JSON_ARRAY + ", " + HttpConstants.BATCH_FORMAT_NDJSON + " and " +
+                    HttpConstants.BATCH_FORMAT_TEXT + ".");
+        }
+        eventBatcher = new HttpEventBatcher(batchSize, batchMaxBytes, batchLingerTime, batchFormat,
+                siddhiAppContext.getScheduledExecutorService(), this::publishBatch);
+    }
+
+    private void initInFlightRequestLimiter(OptionHolder optionHolder) {
+        int maxInFlightRequests = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.MAX_IN_FLIGHT_REQUESTS, HttpConstants.DEFAULT_MAX_IN_FLIGHT_REQUESTS));
+        long maxInFlightBytes = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.MAX_IN_FLIGHT_BYTES, HttpConstants.DEFAULT_MAX_IN_FLIGHT_BYTES));
+        if (maxInFlightRequests <= 0 && maxInFlightBytes <= 0) {
+            return;
+        }
+        String policy = optionHolder.validateAndGetStaticValue(HttpConstants.IN_FLIGHT_LIMIT_POLICY,
+                HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK);
+        if (!HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK.equals(policy) &&
+                !HttpConstants.IN_FLIGHT_LIMIT_POLICY_FAIL.equals(policy) &&
+                !HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE.equals(policy)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.IN_FLIGHT_LIMIT_POLICY + " '" + policy +
+                    "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported values are " +
+                    HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK + ", " + HttpConstants.IN_FLIGHT_LIMIT_POLICY_FAIL +
+                    " and " + HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE + ".");
+        }
+        inFlightRequestLimiter = new InFlightRequestLimiter(maxInFlightRequests, maxInFlightBytes, policy, streamID);
+    }
+
+    private void initRetryScheduler(OptionHolder optionHolder) {
+        int retryCount = Integer.parseInt(optionHolder.validateAndGetStaticValue(HttpConstants.RETRY_COUNT,
+                HttpConstants.DEFAULT_RETRY_COUNT));
+        if (retryCount <= 0) {
+            return;
+        }
+        long initialBackoff = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.RETRY_INITIAL_BACKOFF, HttpConstants.DEFAULT_RETRY_INITIAL_BACKOFF));
+        long maxBackoff = Long.parseLong(optionHolder.validateAndGetStaticValue(HttpConstants.RETRY_MAX_BACKOFF,
+                HttpConstants.DEFAULT_RETRY_MAX_BACKOFF));
+        int retryBudget = Integer.parseInt(optionHolder.validateAndGetStaticValue(HttpConstants.RETRY_BUDGET,
+                HttpConstants.DEFAULT_RETRY_BUDGET));
+        double retryBudgetRatio = Double.parseDouble(optionHolder.validateAndGetStaticValue(
+                HttpConstants.RETRY_BUDGET_RATIO, HttpConstants.DEFAULT_RETRY_BUDGET_RATIO));
+        if (initialBackoff <= 0 || maxBackoff < initialBackoff) {
+            throw new SiddhiAppCreationException(HttpConstants.RETRY_INITIAL_BACKOFF + " should be greater than 0 " +
+                    "and not greater than " + HttpConstants.RETRY_MAX_BACKOFF + " in " + HttpConstants.HTTP_SINK_ID +
+                    " in " + streamID);
+        }
+        if (HttpConstants.OAUTH.equals(authType)) {
+            log.warn(HttpConstants.RETRY_COUNT + " is ignored for oauth requests, which are only sent again with a " +
+                    "renewed access token, in " + streamID);
+            return;
+        }
+        retryScheduler = new HttpRetryScheduler(retryCount, initialBackoff, maxBackoff, retryBudget,
+                retryBudgetRatio, siddhiAppContext.getExecutorService(), streamID);
+    }
+
+    private Object getHashKey(DynamicOptions dynamicOptions) {
+        if (hashAttributeIndex < 0) {
+            return null;
+        }
+        return dynamicOptions.getEvent().getData(hashAttributeIndex);
+    }
+
+    private void initLoadBalancer(OptionHolder optionHolder, StreamDefinition outputStreamDefinition,
+                                  String publisherURLs) {
+        String strategy = optionHolder.validateAndGetStaticValue(HttpConstants.LOAD_BALANCING_STRATEGY,
+                HttpConstants.LOAD_BALANCING_STRATEGY_ROUND_ROBIN);
+        if (!HttpConstants.LOAD_BALANCING_STRATEGY_ROUND_ROBIN.equals(strategy) &&
+                !HttpConstants.LOAD_BALANCING_STRATEGY_LEAST_OUTSTANDING.equals(strategy) &&
+                !HttpConstants.LOAD_BALANCING_STRATEGY_EWMA_LATENCY.equals(strategy) &&
+                !HttpConstants.LOAD_BALANCING_STRATEGY_CONSISTENT_HASH.equals(strategy)) {
+            throw new SiddhiAppCreationException("Invalid " + HttpConstants.LOAD_BALANCING_STRATEGY + " '" +
+                    strategy + "' found in " + HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Supported " +
+                    "values are " + HttpConstants.LOAD_BALANCING_STRATEGY_ROUND_ROBIN + ", " +
+                    HttpConstants.LOAD_BALANCING_STRATEGY_LEAST_OUTSTANDING + ", " +
+                    HttpConstants.LOAD_BALANCING_STRATEGY_EWMA_LATENCY + " and " +
+                    HttpConstants.LOAD_BALANCING_STRATEGY_CONSISTENT_HASH + ".");
+        }
+        if (HttpConstants.LOAD_BALANCING_STRATEGY_CONSISTENT_HASH.equals(strategy)) {
+            String hashAttribute = optionHolder.validateAndGetStaticValue(
+                    HttpConstants.LOAD_BALANCING_HASH_ATTRIBUTE, EMPTY_STRING);
+            hashAttributeIndex = Arrays.asList(outputStreamDefinition.getAttributeNameArray()).indexOf(hashAttribute);
+            if (hashAttributeIndex < 0) {
+                throw new SiddhiAppCreationException(HttpConstants.LOAD_BALANCING_HASH_ATTRIBUTE + " '" +
+                        hashAttribute + "' is not an attribute of the stream in " + HttpConstants.HTTP_SINK_ID +
+                        " in " + streamID);
+            }
+        }
+        int ejectionFailures = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.LOAD_BALANCING_EJECTION_FAILURES,
+                HttpConstants.DEFAULT_LOAD_BALANCING_EJECTION_FAILURES));
+        long ejectionDuration = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.LOAD_BALANCING_EJECTION_DURATION,
+                HttpConstants.DEFAULT_LOAD_BALANCING_EJECTION_DURATION));
+        List<LoadBalancer.Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(new LoadBalancer.Endpoint(httpURLProperties, clientConnector));
+        String[] urls = publisherURLs.split(",");
+        for (int i = 1; i < urls.length; i++) {
+            Map<String, String> urlProperties = HttpSinkUtil.getURLProperties(urls[i].trim());
+            endpoints.add(new LoadBalancer.Endpoint(urlProperties, createClientConnector(urlProperties)));
+        }
+        loadBalancer = new LoadBalancer(endpoints, strategy, ejectionFailures, ejectionDuration, streamID);
+    }
+
+    private void initPartitionLanes(OptionHolder optionHolder, StreamDefinition outputStreamDefinition) {
+        String partitionKey = optionHolder.validateAndGetStaticValue(HttpConstants.PARTITION_KEY, EMPTY_STRING);
+        if (EMPTY_STRING.equals(partitionKey)) {
+            return;
+        }
+        partitionKeyIndex = Arrays.asList(outputStreamDefinition.getAttributeNameArray()).indexOf(partitionKey);
+        if (partitionKeyIndex < 0) {
+            throw new SiddhiAppCreationException(HttpConstants.PARTITION_KEY + " '" + partitionKey + "' is not an " +
+                    "attribute of the stream in " + HttpConstants.HTTP_SINK_ID + " in " + streamID);
         }
+        if (eventBatcher != null) {
+            throw new SiddhiAppCreationException(HttpConstants.PARTITION_KEY + " is not supported with " +
+                    HttpConstants.BATCH_SIZE + " in " + HttpConstants.HTTP_SINK_ID + " in " + streamID);
+        }
+        int laneCount = Integer.parseInt(optionHolder.validateAndGetStaticValue(HttpConstants.PARTITION_LANES,
+                HttpConstants.DEFAULT_PARTITION_LANES));
+        int queueSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.PARTITION_LANE_QUEUE_SIZE, HttpConstants.DEFAULT_PARTITION_LANE_QUEUE_SIZE));
+        if (laneCount <= 0 || queueSize <= 0) {
+            throw new SiddhiAppCreationException(HttpConstants.PARTITION_LANES + " and " +
+                    HttpConstants.PARTITION_LANE_QUEUE_SIZE + " should be greater than 0 in " +
+                    HttpConstants.HTTP_SINK_ID + " in " + streamID);
+        }
+        partitionLanes = new HttpPartitionLanes(laneCount, queueSize, siddhiAppContext.getExecutorService(),
+                streamID);
+    }
+
+    private void initConnectionWarmer(OptionHolder optionHolder) {
+        if (!Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(HttpConstants.CLIENT_PREWARM_CONNECTIONS,
+                HttpConstants.FALSE))) {
+            return;
+        }
+        long validationInterval = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.CLIENT_KEEP_ALIVE_VALIDATION_INTERVAL,
+                HttpConstants.DEFAULT_CLIENT_KEEP_ALIVE_VALIDATION_INTERVAL));
+        if (!publisherURLOption.isStatic()) {
+            log.warn(HttpConstants.CLIENT_PREWARM_CONNECTIONS + " is ignored for the dynamic " +
+                    HttpConstants.PUBLISHER_URL + " in " + streamID);
+            return;
+        }
+        Object minIdleConnections = HttpSinkUtil.populateTransportConfiguration(EMPTY_STRING,
+                clientPoolConfiguration).get(HttpConstants.CLIENT_MIN_IDLE_CONNECTIONS_PER_POOL);
+        int connections = minIdleConnections == null ? 1 : Math.max(1, (Integer) minIdleConnections);
+        connectionWarmer = new HttpConnectionWarmer(connections, validationInterval, streamID, this::sendProbe);
+    }
+
+    private List<Map<String, String>> getDestinations() {
+        if (loadBalancer == null) {
+            return Collections.singletonList(httpURLProperties);
+        }
+        List<Map<String, String>> destinations = new ArrayList<>();
+        for (LoadBalancer.Endpoint endpoint : loadBalancer.getEndpoints()) {
+            destinations.add(endpoint.getURLProperties());
+        }
+        return destinations;
+    }
+
+    /**
+     * Sends a HEAD request with the static headers of the sink, which opens or validates a pooled connection.
+     */
+    private HttpResponseFuture sendProbe(Map<String, String> urlProperties) {
+        HttpCarbonMessage cMessage = new HttpCarbonMessage(
+                new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.HEAD, EMPTY_STRING));
+        List<Header> headersList = httpHeaderOption.isStatic() ? headerTemplate.getHeaders(null) : null;
+        cMessage = generateCarbonMessage(headersList, EMPTY_STRING, HttpMethod.HEAD.name(), cMessage, urlProperties);
+        cMessage.completeMessage();
+        return getClientConnector(urlProperties).send(cMessage);
+    }
+
+    private void initSpillQueue(OptionHolder optionHolder, String streamId) {
+        String spillQueuePath = optionHolder.validateAndGetStaticValue(HttpConstants.SPILL_QUEUE_PATH, EMPTY_STRING);
+        if (EMPTY_STRING.equals(spillQueuePath)) {
+            return;
+        }
+        int segmentSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                HttpConstants.SPILL_QUEUE_SEGMENT_SIZE, HttpConstants.DEFAULT_SPILL_QUEUE_SEGMENT_SIZE));
+        long maxSize = Long.parseLong(optionHolder.validateAndGetStaticValue(HttpConstants.SPILL_QUEUE_MAX_SIZE,
+                HttpConstants.DEFAULT_SPILL_QUEUE_MAX_SIZE));
+        spillQueueDrainInterval = Long.parseLong(optionHolder.validateAndGetStaticValue(
+                HttpConstants.SPILL_QUEUE_DRAIN_INTERVAL, HttpConstants.DEFAULT_SPILL_QUEUE_DRAIN_INTERVAL));
+        if (segmentSize <= 0 || maxSize < segmentSize || spillQueueDrainInterval <= 0) {
+            throw new SiddhiAppCreationException("Invalid spill queue configuration found in " +
+                    HttpConstants.HTTP_SINK_ID + " in " + streamID + ". The segment size and drain interval should " +
+                    "be greater than 0 and the maximum size should not be less than the segment size.");
+        }
+        if (HttpConstants.OAUTH.equals(authType)) {
+            log.warn(HttpConstants.SPILL_QUEUE_PATH + " is ignored for oauth requests, whose access tokens " +
+                    "would expire in the spill queue, in " + streamID);
+            return;
+        }
+        Path directory = Paths.get(spillQueuePath, siddhiAppContext.getName(), streamId);
+        try {
+            spillQueue = new SpillQueue(directory, segmentSize, maxSize);
+        } catch (IOException e) {
+            throw new SiddhiAppCreationException("Failed to open the spill queue at " + directory + " of " +
+                    HttpConstants.HTTP_SINK_ID + " in " + streamID + ". Sinks of the same stream must be given " +
+                    "different " + HttpConstants.SPILL_QUEUE_PATH + " values.", e);
+        }
+    }
+
+    private void validateAuthConfigurations() {
         if (authType.equals(HttpConstants.OAUTH)) {
             if (EMPTY_STRING.equals(consumerSecret) || EMPTY_STRING.equals(consumerKey)) {
                 throw new SiddhiAppCreationException(HttpConstants.CONSUMER_KEY + " and " +
@@ -1054,20 +2238,6 @@ public class HttpSink extends Sink {
                         "field in " + HttpConstants.HTTP_SINK_ID + " in " + streamID);
             }
         }
-        String scheme = HttpSinkUtil.getScheme(publisherURL);
-        this.httpURLProperties = HttpSinkUtil.getURLProperties(publisherURL);
-        //Generate basic sender configurations
-        SenderConfiguration senderConfig = HttpSinkUtil
-                .getSenderConfigurations(httpURLProperties, clientStoreFile, clientStorePass, configReader);
-        if (EMPTY_STRING.equals(publisherURL)) {
-            throw new SiddhiAppCreationException("Receiver URL found empty but it is Mandatory field in " +
-                    "" + HttpConstants.HTTP_SINK_ID + " in " + streamID);
-        }
-        if (HttpConstants.SCHEME_HTTPS.equals(scheme) && ((clientStoreFile == null) || (clientStorePass == null))) {
-            throw new ExceptionInInitializerError("Client trustStore file path or password are empty while " +
-                    "default scheme is 'https'. Please provide client " +
-                    "trustStore file path and password in " + streamID);
-        }
         //if username and password both not equal to null consider as basic auth enabled if only one is null take it
         // as exception
         if ((EMPTY_STRING.equals(userName) ^
@@ -1082,6 +2252,23 @@ public class HttpSink extends Sink {
             this.authorizationHeader = HttpConstants.AUTHORIZATION_METHOD + Base64.encode
                     (Unpooled.copiedBuffer(val));
         }
+    }
+
+    HttpClientConnector createClientConnector(Map<String, String> urlProperties) {
+        String requestURL = urlProperties.get(Constants.REQUEST_URL);
+        String scheme = urlProperties.get(Constants.PROTOCOL);
+        //Generate basic sender configurations
+        SenderConfiguration senderConfig = HttpSinkUtil
+                .getSenderConfigurations(urlProperties, clientStoreFile, clientStorePass, configReader);
+        if (EMPTY_STRING.equals(requestURL)) {
+            throw new SiddhiAppCreationException("Receiver URL found empty but it is Mandatory field in " +
+                    "" + HttpConstants.HTTP_SINK_ID + " in " + streamID);
+        }
+        if (HttpConstants.SCHEME_HTTPS.equals(scheme) && ((clientStoreFile == null) || (clientStorePass == null))) {
+            throw new ExceptionInInitializerError("Client trustStore file path or password are empty while " +
+                    "default scheme is 'https'. Please provide client " +
+                    "trustStore file path and password in " + streamID);
+        }
         //if proxy username and password not equal to null then create proxy configurations
         if (!EMPTY_STRING.equals(proxyHost) && !EMPTY_STRING.equals(proxyPort)) {
             try {
@@ -1125,6 +2312,16 @@ public class HttpSink extends Sink {
             senderConfig.setMaxRedirectCount(Integer.parseInt(maxRedirectCount));
         }
         */
+        if (HttpConstants.HTTP_VERSION_2_0.equals(httpVersion)) {
+            senderConfig.setHttpVersion(httpVersion);
+            // https connections negotiate the protocol with ALPN, hence prior knowledge only applies to h2c
+            if (http2PriorKnowledge && HttpConstants.SCHEME_HTTP.equals(scheme)) {
+                senderConfig.setForceHttp2(true);
+            }
+            if (http2MaxConcurrentStreams > 0) {
+                senderConfig.getPoolConfiguration().setHttp2MaxActiveStreamsPerConnection(http2MaxConcurrentStreams);
+            }
+        }
         if (!EMPTY_STRING.equals(parametersList)) {
             senderConfig.setParameters(HttpIoUtil.populateParameters(parametersList));
         }
@@ -1133,16 +2330,7 @@ public class HttpSink extends Sink {
         Map<String, Object> properties = HttpSinkUtil
                 .populateTransportConfiguration(clientBootstrapConfiguration, clientPoolConfiguration);
 
-        clientConnector = httpConnectorFactory.createHttpClientConnector(properties, senderConfig);
-    }
-
-    private String encodeMessage(Object s) {
-        try {
-            return URLEncoder.encode((String) s, HttpConstants.DEFAULT_ENCODING);
-        } catch (UnsupportedEncodingException e) {
-            throw new SiddhiAppRuntimeException("Execution of Siddhi app " + siddhiAppContext.getName() +
-                    " failed due to " + e.getMessage(), e);
-        }
+        return httpConnectorFactory.createHttpClientConnector(properties, senderConfig);
     }
 
     private String encodeBase64(String consumerKeyValue) {
@@ -1150,4 +2338,234 @@ public class HttpSink extends Sink {
         ByteBuf encodedByteBuf = Base64.encode(byteBuf);
         return encodedByteBuf.toString(StandardCharsets.UTF_8);
     }
+
+    /**
+     * An OAuth request, which is sent again with a renewed access token when its access token is rejected. The message
+     * body is kept along with the in flight permit until the final response or error is received.
+     */
+    private class OAuthRequest {
+        private final Map<String, String> urlProperties;
+        private final String httpMethod;
+        private final List<Header> headersList;
+        private final ByteBuf messageBody;
+        private final DynamicOptions dynamicOptions;
+        private final String encodedAuth;
+        private final Runnable completion;
+
+        OAuthRequest(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                     ByteBuf messageBody, DynamicOptions dynamicOptions, String encodedAuth, Runnable completion) {
+            this.urlProperties = urlProperties;
+            this.httpMethod = httpMethod;
+            this.headersList = headersList;
+            this.messageBody = messageBody;
+            this.dynamicOptions = dynamicOptions;
+            this.encodedAuth = encodedAuth;
+            this.completion = completion;
+        }
+
+        void send(int tryCount, boolean wait) throws ConnectionUnavailableException {
+            Map<String, String> requestURLProperties = urlProperties;
+            CircuitBreaker circuitBreaker = getCircuitBreaker(requestURLProperties);
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                requestURLProperties = getFallbackURLProperties(requestURLProperties);
+                circuitBreaker = null;
+            }
+            LoadBalancer.Endpoint endpoint = loadBalancer == null ? null :
+                    loadBalancer.getEndpoint(requestURLProperties.get(Constants.REQUEST_URL));
+            HttpConnectorListener responseListener = new OAuthResponseListener(
+                    new OAuthRequestListener(this, requestURLProperties.get(Constants.REQUEST_URL)), headersList,
+                    tryCount, expiredToken -> renewAccessToken(dynamicOptions, encodedAuth, expiredToken),
+                    this::resend);
+            if (endpoint != null) {
+                responseListener = loadBalancer.createResponseListener(endpoint, responseListener);
+            }
+            if (circuitBreaker != null) {
+                responseListener = circuitBreaker.createResponseListener(responseListener);
+            }
+            sendMessage(getClientConnector(requestURLProperties), requestURLProperties, httpMethod, headersList,
+                    messageBody, responseListener, wait);
+        }
+
+        void resend(int tryCount) {
+            try {
+                send(tryCount, false);
+            } catch (ConnectionUnavailableException | RuntimeException e) {
+                log.error("Error at sending oauth request to API endpoint " +
+                        urlProperties.get(Constants.REQUEST_URL) + ". Message dropped.", e);
+                complete();
+            }
+        }
+
+        void complete() {
+            if (inFlightRequestLimiter != null) {
+                inFlightRequestLimiter.release(messageBody == null ? 0 : messageBody.readableBytes());
+            }
+            ReferenceCountUtil.release(messageBody);
+            runCompletion(completion);
+        }
+    }
+
+    /**
+     * Logs the final response of an OAuth request and completes it.
+     */
+    private class OAuthRequestListener implements HttpConnectorListener {
+        private final OAuthRequest request;
+        private final String requestURL;
+
+        OAuthRequestListener(OAuthRequest request, String requestURL) {
+            this.request = request;
+            this.requestURL = requestURL;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            int response = httpMessage.getNettyHttpResponse().status().code();
+            if (response == HttpConstants.SUCCESS_CODE) {
+                log.info("Request sent successfully to " + requestURL);
+            } else if (response == HttpConstants.AUTHENTICATION_FAIL_CODE) {
+                log.error("Error at sending oauth request to API endpoint " + requestURL + "', with response code: " +
+                        response + "- Authentication Failure. Please provide a valid Consumer key, Consumer secret" +
+                        " and token endpoint URL. Message dropped");
+            } else if (response == HttpConstants.INTERNAL_SERVER_FAIL_CODE) {
+                log.error("Error at sending oauth request to API endpoint " + requestURL + "', with response code: " +
+                        response + "- Internal server error. Message dropped");
+            } else {
+                log.error("Error at sending oauth request to API endpoint " + requestURL + "', with response code: " +
+                        response + ". Message dropped.");
+            }
+            request.complete();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.error("Error at sending oauth request to API endpoint " + requestURL + ". Message dropped.", throwable);
+            request.complete();
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+
+    /**
+     * Completes a request once its final response or error is received, spilling it if it failed and the spill queue
+     * is enabled.
+     */
+    private class RequestListener implements HttpConnectorListener {
+        private final Map<String, String> urlProperties;
+        private final String httpMethod;
+        private final List<Header> headersList;
+        private final ByteBuf messageBody;
+        private final long requestBytes;
+        private final Runnable completion;
+
+        RequestListener(Map<String, String> urlProperties, String httpMethod, List<Header> headersList,
+                        ByteBuf messageBody, long requestBytes, Runnable completion) {
+            this.urlProperties = urlProperties;
+            this.httpMethod = httpMethod;
+            this.headersList = headersList;
+            this.messageBody = messageBody;
+            this.requestBytes = requestBytes;
+            this.completion = completion;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            if (spillQueue != null &&
+                    HttpRetryScheduler.isRetryable(httpMessage.getNettyHttpResponse().status().code())) {
+                spill(urlProperties, httpMethod, headersList, messageBody);
+            }
+            completeRequest(messageBody, requestBytes, completion);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (spillQueue != null) {
+                log.warn("Error at sending the request to " + urlProperties.get(Constants.REQUEST_URL) + " in " +
+                        streamID + ". Spilling the request to the disk.", throwable);
+                spill(urlProperties, httpMethod, headersList, messageBody);
+            } else {
+                log.error("Error at sending the request of " + streamID + " to " +
+                        urlProperties.get(Constants.REQUEST_URL) + ". Message dropped.", throwable);
+            }
+            completeRequest(messageBody, requestBytes, completion);
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+
+    /**
+     * Removes a spilled request from the queue once it is delivered and sends the next one, or stops draining the
+     * queue until the next drain interval if it fails.
+     */
+    private class SpillDrainListener implements HttpConnectorListener {
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            discard(httpMessage);
+            if (HttpRetryScheduler.isRetryable(httpMessage.getNettyHttpResponse().status().code())) {
+                drainingSpillQueue.set(false);
+            } else {
+                spillQueue.remove();
+                sendSpilledRequest();
+            }
+        }
+
+        /**
+         * Releases the body of the response of a spilled request, which is not passed on.
+         */
+        private void discard(HttpCarbonMessage httpMessage) {
+            try {
+                // the body is read off the transport thread, which delivers its content
+                siddhiAppContext.getExecutorService().execute(() -> HttpSinkUtil.discardBody(httpMessage));
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                log.debug("Could not release the response body of a spilled request of " + streamID + ".");
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            drainingSpillQueue.set(false);
+            log.debug("Failed to send a spilled request of " + streamID + ". Retrying in " +
+                    spillQueueDrainInterval + " milliseconds.", throwable);
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+
+    /**
+     * Holds the position of the spill queue, so that the spilled requests are sent again from that position when the
+     * siddhi app is restored.
+     */
+    private class SpillQueueState extends State {
+
+        @Override
+        public boolean canDestroy() {
+            return false;
+        }
+
+        @Override
+        public Map<String, Object> snapshot() {
+            Map<String, Object> state = new HashMap<>();
+            synchronized (spillQueue) {
+                state.put(HttpConstants.SPILL_QUEUE_READ_SEGMENT, spillQueue.getReadSegmentId());
+                state.put(HttpConstants.SPILL_QUEUE_READ_POSITION, spillQueue.getReadPosition());
+            }
+            return state;
+        }
+
+        @Override
+        public void restore(Map<String, Object> state) {
+            spillQueue.seek((Long) state.get(HttpConstants.SPILL_QUEUE_READ_SEGMENT),
+                    (Integer) state.get(HttpConstants.SPILL_QUEUE_READ_POSITION));
+        }
+    }
 }
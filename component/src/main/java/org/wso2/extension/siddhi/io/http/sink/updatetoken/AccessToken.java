@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.updatetoken;
+
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+
+/**
+ * {@code AccessToken} is the response of the token endpoint to an access token request.
+ */
+public class AccessToken {
+    private final int responseCode;
+    private final String accessToken;
+    private final String refreshToken;
+    private final long expiryTime;
+
+    public AccessToken(int responseCode, String accessToken, String refreshToken, long expiryTime) {
+        this.responseCode = responseCode;
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.expiryTime = expiryTime;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * Returns the access token as the value of the authorization header.
+     *
+     * @return the bearer access token, or null if the request failed.
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * Returns the time at which the access token expires.
+     *
+     * @return the expiry time in milliseconds since the epoch, or 0 if the token endpoint did not return it.
+     */
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    public boolean isExpired(long currentTime) {
+        return expiryTime > 0 && currentTime >= expiryTime;
+    }
+
+    public boolean isSuccess() {
+        return responseCode == HttpConstants.SUCCESS_CODE;
+    }
+}
@@ -20,8 +20,7 @@ package org.wso2.extension.siddhi.io.http.sink.updatetoken;
 
 import io.netty.handler.codec.http.HttpHeaderValues;
 import org.json.JSONObject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpFormUrlEncoder;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpSinkUtil;
 import org.wso2.extension.siddhi.io.http.util.HttpConstants;
 import org.wso2.transport.http.netty.contract.Constants;
@@ -30,22 +29,23 @@ import org.wso2.transport.http.netty.contract.HttpWsConnectorFactory;
 import org.wso2.transport.http.netty.contract.config.SenderConfiguration;
 import org.wso2.transport.http.netty.contractimpl.DefaultHttpWsConnectorFactory;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.wso2.transport.http.netty.contract.Constants.HTTPS_SCHEME;
 
 
 /**
  * {@code HttpsClient} Handle the HTTP client.
+ * The client connectors of the token endpoints are shared by the oauth sinks, which acquire them on init and release
+ * them on destroy. The connectors are closed when the last oauth sink releases them.
  */
 public class HttpsClient {
-    private static final Logger LOG = LoggerFactory.getLogger(HttpsClient.class);
-    private AccessTokenCache accessTokenCache = AccessTokenCache.getInstance();
-    private Map<String, String> tokenURLProperties;
+    private static final HttpWsConnectorFactory connectorFactory = new DefaultHttpWsConnectorFactory();
+    private static final Map<String, HttpClientConnector> clientConnectors = new HashMap<>();
+    private static int references;
 
     private static SenderConfiguration getSenderConfigurationForHttp(String trustStorePath, String trustStorePassword) {
         SenderConfiguration senderConfiguration = new SenderConfiguration();
@@ -56,19 +56,44 @@ public class HttpsClient {
         return senderConfiguration;
     }
 
-    private static String encodeMessage(Object s) {
-        try {
-            return URLEncoder.encode((String) s, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            LOG.error("Unable to encode the message while generating new access token: " + e);
-            return HttpConstants.EMPTY_STRING;
+    /**
+     * Acquires the client connectors of the token endpoints for an oauth sink.
+     */
+    public static synchronized void acquire() {
+        references++;
+    }
+
+    /**
+     * Releases the client connectors of the token endpoints acquired by an oauth sink, and closes them if no other
+     * oauth sink has acquired them.
+     */
+    public static synchronized void release() {
+        if (references > 0 && --references == 0) {
+            for (HttpClientConnector clientConnector : clientConnectors.values()) {
+                clientConnector.close();
+            }
+            clientConnectors.clear();
         }
     }
 
-    private static String getPayload(Map<String, String> refreshTokenBody) {
-        return refreshTokenBody.entrySet().stream()
-                .map(p -> encodeMessage(p.getKey()) + "=" + encodeMessage(p.getValue()))
-                .reduce("", (p1, p2) -> p1 + "&" + p2);
+    /**
+     * Returns the client connector of the token endpoint, which is shared by all token requests to it so that they
+     * reuse the event loops and the pooled keep-alive connections of a single connector. The trust store password is
+     * part of the key as a digest, so that a connector is not shared with a trust store it was not opened with.
+     */
+    static synchronized HttpClientConnector getClientConnector(Map<String, String> tokenURLProperties,
+                                                               String trustStorePath, String trustStorePassword) {
+        String destination = tokenURLProperties.get(HttpConstants.PROTOCOL) + HttpConstants.PROTOCOL_HOST_SEPARATOR +
+                tokenURLProperties.get(Constants.HTTP_HOST) + HttpConstants.PORT_HOST_SEPARATOR +
+                tokenURLProperties.get(Constants.HTTP_PORT) + HttpConstants.PORT_HOST_SEPARATOR + trustStorePath +
+                HttpConstants.PORT_HOST_SEPARATOR + HttpSinkUtil.digest(trustStorePassword);
+        return clientConnectors.computeIfAbsent(destination, key -> connectorFactory.createHttpClientConnector(
+                new HashMap<>(), getSenderConfigurationForHttp(trustStorePath, trustStorePassword)));
+    }
+
+    private static long getExpiryTime(JSONObject jsonObject) {
+        long expiresIn = jsonObject.optLong(HttpConstants.EXPIRES_IN, 0);
+        return expiresIn > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn) : 0;
     }
 
     private static HashMap<String, String> setHeaders(String encodedAuth) {
@@ -79,18 +104,16 @@ public class HttpsClient {
         return headers;
     }
 
-    public void getPasswordGrantAccessToken(String tokenUrl, String trustStorePath, String trustStorePassword,
+    public AccessToken getPasswordGrantAccessToken(String tokenUrl, String trustStorePath, String trustStorePassword,
                                             String username, String password, String encodedAuth) {
-        tokenURLProperties = HttpSinkUtil.getURLProperties(tokenUrl);
-        HttpWsConnectorFactory factory = new DefaultHttpWsConnectorFactory();
-        HttpClientConnector httpClientConnector = factory
-                .createHttpClientConnector(new HashMap<>(), getSenderConfigurationForHttp(trustStorePath,
-                        trustStorePassword));
+        Map<String, String> tokenURLProperties = HttpSinkUtil.getURLProperties(tokenUrl);
+        HttpClientConnector httpClientConnector = getClientConnector(tokenURLProperties, trustStorePath,
+                trustStorePassword);
         final Map<String, String> refreshTokenBody = new HashMap<>();
         refreshTokenBody.put(HttpConstants.GRANT_TYPE, HttpConstants.GRANT_PASSWORD);
         refreshTokenBody.put(HttpConstants.USERNAME, username);
         refreshTokenBody.put(HttpConstants.PASSWORD, password);
-        String payload = getPayload(refreshTokenBody);
+        String payload = HttpFormUrlEncoder.encode(refreshTokenBody);
         Map<String, String> headers = setHeaders(encodedAuth);
         ArrayList<String> response = HttpRequest.sendPostRequest(httpClientConnector,
                 tokenURLProperties.get(HttpConstants.PROTOCOL), tokenURLProperties.get(Constants.HTTP_HOST),
@@ -102,26 +125,23 @@ public class HttpsClient {
         if (statusCode == HttpConstants.SUCCESS_CODE) {
             String accessToken = jsonObject.getString(HttpConstants.ACCESS_TOKEN);
             String newRefreshToken = jsonObject.getString(HttpConstants.REFRESH_TOKEN);
-            accessTokenCache.setAccessToken(encodedAuth, HttpConstants.BEARER + accessToken);
-            accessTokenCache.setRefreshtoken(encodedAuth, newRefreshToken);
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, HttpConstants.BEARER + accessToken, newRefreshToken,
+                    getExpiryTime(jsonObject));
         } else {
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, null, null, 0);
         }
     }
 
-    public void getRefreshGrantAccessToken(String url, String trustStorePath, String trustStorePassword,
+    public AccessToken getRefreshGrantAccessToken(String url, String trustStorePath, String trustStorePassword,
                                            String encodedAuth, String refreshToken) {
-        tokenURLProperties = HttpSinkUtil.getURLProperties(url);
-        HttpWsConnectorFactory factory = new DefaultHttpWsConnectorFactory();
-        HttpClientConnector httpClientConnector = factory
-                .createHttpClientConnector(new HashMap<>(), getSenderConfigurationForHttp(trustStorePath,
-                        trustStorePassword));
+        Map<String, String> tokenURLProperties = HttpSinkUtil.getURLProperties(url);
+        HttpClientConnector httpClientConnector = getClientConnector(tokenURLProperties, trustStorePath,
+                trustStorePassword);
         final Map<String, String> refreshTokenBody = new HashMap<>();
         Map<String, String> headers = setHeaders(encodedAuth);
         refreshTokenBody.put(HttpConstants.GRANT_TYPE, HttpConstants.GRANT_REFRESHTOKEN);
         refreshTokenBody.put(HttpConstants.GRANT_REFRESHTOKEN, refreshToken);
-        String payload = getPayload(refreshTokenBody);
+        String payload = HttpFormUrlEncoder.encode(refreshTokenBody);
         ArrayList<String> response = HttpRequest.sendPostRequest(httpClientConnector,
                 tokenURLProperties.get(HttpConstants.PROTOCOL), tokenURLProperties.get(Constants.HTTP_HOST),
                 Integer.parseInt(tokenURLProperties.get(Constants.HTTP_PORT)),
@@ -131,27 +151,24 @@ public class HttpsClient {
         if (statusCode == HttpConstants.SUCCESS_CODE) {
             String accessToken = jsonObject.getString(HttpConstants.ACCESS_TOKEN);
             String newRefreshToken = jsonObject.getString(HttpConstants.REFRESH_TOKEN);
-            accessTokenCache.setAccessToken(encodedAuth, HttpConstants.BEARER + accessToken);
-            accessTokenCache.setRefreshtoken(encodedAuth, newRefreshToken);
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, HttpConstants.BEARER + accessToken, newRefreshToken,
+                    getExpiryTime(jsonObject));
         } else if (statusCode == HttpConstants.AUTHENTICATION_FAIL_CODE
                 || statusCode == HttpConstants.PERSISTENT_ACCESS_FAIL_CODE) {
-            getClientGrantAccessToken(url, trustStorePath, trustStorePassword, encodedAuth);
+            return getClientGrantAccessToken(url, trustStorePath, trustStorePassword, encodedAuth);
         } else {
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, null, null, 0);
         }
     }
 
-    public void getClientGrantAccessToken(String url, String trustStorePath, String trustStorePassword,
+    public AccessToken getClientGrantAccessToken(String url, String trustStorePath, String trustStorePassword,
                                           String encodedAuth) {
-        tokenURLProperties = HttpSinkUtil.getURLProperties(url);
-        HttpWsConnectorFactory factory = new DefaultHttpWsConnectorFactory();
-        HttpClientConnector httpClientConnector = factory
-                .createHttpClientConnector(new HashMap<>(), getSenderConfigurationForHttp(trustStorePath,
-                        trustStorePassword));
+        Map<String, String> tokenURLProperties = HttpSinkUtil.getURLProperties(url);
+        HttpClientConnector httpClientConnector = getClientConnector(tokenURLProperties, trustStorePath,
+                trustStorePassword);
         final Map<String, String> refreshTokenBody = new HashMap<>();
         refreshTokenBody.put(HttpConstants.GRANT_TYPE, HttpConstants.GRANT_CLIENTTOKEN);
-        String payload = getPayload(refreshTokenBody);
+        String payload = HttpFormUrlEncoder.encode(refreshTokenBody);
         Map<String, String> headers = setHeaders(encodedAuth);
         ArrayList<String> response = HttpRequest.sendPostRequest(httpClientConnector,
                 tokenURLProperties.get(HttpConstants.PROTOCOL), tokenURLProperties.get(Constants.HTTP_HOST),
@@ -161,10 +178,10 @@ public class HttpsClient {
         int statusCode = Integer.parseInt(response.get(0));
         if (statusCode == HttpConstants.SUCCESS_CODE) {
             String accessToken = jsonObject.getString(HttpConstants.ACCESS_TOKEN);
-            accessTokenCache.setAccessToken(encodedAuth, HttpConstants.BEARER + accessToken);
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, HttpConstants.BEARER + accessToken, null,
+                    getExpiryTime(jsonObject));
         } else {
-            accessTokenCache.setResponseCode(encodedAuth, statusCode);
+            return new AccessToken(statusCode, null, null, 0);
         }
     }
 }
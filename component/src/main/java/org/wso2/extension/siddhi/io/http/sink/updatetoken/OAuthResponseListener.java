@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.updatetoken;
+
+import org.apache.log4j.Logger;
+import org.wso2.carbon.messaging.Header;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * {@code OAuthResponseListener} renews the access token of an OAuth request which is rejected with a 401 response,
+ * and sends the request again with the new access token once it is obtained. Neither the publishing thread nor the
+ * transport thread waits for the token endpoint.
+ * Other responses, the response of the last try and the 401 response of a request whose access token could not be
+ * renewed are passed to the delegate listener.
+ */
+public class OAuthResponseListener implements HttpConnectorListener {
+    private static final Logger log = Logger.getLogger(OAuthResponseListener.class);
+    private final HttpConnectorListener delegate;
+    private final List<Header> headersList;
+    private final int tryCount;
+    private final Function<String, CompletableFuture<AccessToken>> tokenRenewal;
+    private final IntConsumer resend;
+
+    /**
+     * Creates the listener of a try of an OAuth request.
+     *
+     * @param delegate     the listener of the final response.
+     * @param headersList  the headers of the request, which are updated with the renewed access token.
+     * @param tryCount     the number of the try, starting from {@link HttpConstants#MINIMUM_TRY_COUNT}.
+     * @param tokenRenewal renews the given rejected access token.
+     * @param resend       sends the request again with the given try count.
+     */
+    public OAuthResponseListener(HttpConnectorListener delegate, List<Header> headersList, int tryCount,
+                                 Function<String, CompletableFuture<AccessToken>> tokenRenewal, IntConsumer resend) {
+        this.delegate = delegate;
+        this.headersList = headersList;
+        this.tryCount = tryCount;
+        this.tokenRenewal = tokenRenewal;
+        this.resend = resend;
+    }
+
+    @Override
+    public void onMessage(HttpCarbonMessage httpMessage) {
+        if (httpMessage.getNettyHttpResponse().status().code() != HttpConstants.AUTHENTICATION_FAIL_CODE ||
+                tryCount > HttpConstants.MAXIMUM_TRY_COUNT) {
+            delegate.onMessage(httpMessage);
+            return;
+        }
+        tokenRenewal.apply(getAccessToken(headersList)).whenComplete((accessToken, throwable) -> {
+            if (throwable != null) {
+                log.error("Failed to generate new access token for the expired access token.", throwable);
+                delegate.onMessage(httpMessage);
+            } else if (!accessToken.isSuccess()) {
+                log.error("Failed to generate new access token for the expired access token. Error code: " +
+                        accessToken.getResponseCode() + ".");
+                delegate.onMessage(httpMessage);
+            } else {
+                setAccessToken(headersList, accessToken);
+                resend.accept(tryCount + 1);
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        delegate.onError(throwable);
+    }
+
+    @Override
+    public void onPushPromise(Http2PushPromise pushPromise) {
+
+    }
+
+    /**
+     * Returns the access token in the headers of a request.
+     *
+     * @param headersList the headers of the request.
+     * @return the value of the authorization header, or null if there is none.
+     */
+    public static String getAccessToken(List<Header> headersList) {
+        for (Header header : headersList) {
+            if (header.getName().equals(HttpConstants.AUTHORIZATION_HEADER)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the access token and the refresh token to the headers of a request, adding the headers if they are not
+     * present.
+     *
+     * @param headersList the headers of the request.
+     * @param accessToken the access token.
+     */
+    public static void setAccessToken(List<Header> headersList, AccessToken accessToken) {
+        setHeader(headersList, HttpConstants.AUTHORIZATION_HEADER, accessToken.getAccessToken());
+        if (accessToken.getRefreshToken() != null) {
+            setHeader(headersList, HttpConstants.RECEIVER_REFRESH_TOKEN, accessToken.getRefreshToken());
+        }
+    }
+
+    private static void setHeader(List<Header> headersList, String name, String value) {
+        for (Header header : headersList) {
+            if (header.getName().equals(name)) {
+                header.setValue(value);
+                return;
+            }
+        }
+        headersList.add(new Header(name, value));
+    }
+}
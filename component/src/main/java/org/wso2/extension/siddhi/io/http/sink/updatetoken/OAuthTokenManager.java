@@ -0,0 +1,173 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.updatetoken;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@code OAuthTokenManager} holds the access tokens of the http sinks, shared by all sinks with the same client
+ * credentials.
+ * Concurrent requests for a new access token of the same credentials are coalesced into a single request to the
+ * token endpoint, and the other callers share the future response of that request.
+ * An access token with a known expiry time is refreshed in the background, the refresh skew before it expires, so
+ * that publishing does not wait for the token endpoint. The skew is limited to half of the lifetime of the access
+ * token, so that short lived access tokens are not refreshed as soon as they are obtained. The refresh is skipped if
+ * the access token has not been used since it was obtained, hence the tokens of idle or destroyed sinks are left to
+ * expire.
+ */
+public class OAuthTokenManager {
+    private static final Logger log = Logger.getLogger(OAuthTokenManager.class);
+    private static final OAuthTokenManager instance = new OAuthTokenManager();
+    private final Map<String, TokenEntry> accessTokens = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<AccessToken>> tokenRequests = new ConcurrentHashMap<>();
+    private final HashedWheelTimer refreshTimer = new HashedWheelTimer(
+            new DefaultThreadFactory("oauth-token-refresh", true));
+    private final ExecutorService tokenRequestExecutor = Executors.newCachedThreadPool(
+            new DefaultThreadFactory("oauth-token-request", true));
+
+    private OAuthTokenManager() {
+    }
+
+    public static OAuthTokenManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the last access token obtained for the credentials.
+     *
+     * @param key the encoded client credentials.
+     * @return the access token, or null if no access token has been obtained or it has expired.
+     */
+    public AccessToken getAccessToken(String key) {
+        TokenEntry entry = accessTokens.get(key);
+        if (entry == null || entry.accessToken.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        entry.used = true;
+        return entry.accessToken;
+    }
+
+    /**
+     * Requests a new access token for the credentials, unless a request is already in flight, in which case its
+     * future response is returned instead. If the cached access token differs from the expired one, it has already been
+     * renewed by another caller and it is returned without a request.
+     * The request is sent from a token request thread, hence the caller is never blocked by the token endpoint.
+     *
+     * @param key          the encoded client credentials.
+     * @param expiredToken the access token which was rejected, or null to request an access token only if none has
+     *                     been obtained yet.
+     * @param refreshSkew  the time before the expiry of the new access token at which it is refreshed, or a
+     *                     negative value to not refresh it.
+     * @param tokenRequest sends the request to the token endpoint.
+     * @return the future response of the token endpoint, which is already completed if no request is needed.
+     */
+    public CompletableFuture<AccessToken> renewAccessToken(String key, String expiredToken, long refreshSkew,
+                                                           Supplier<AccessToken> tokenRequest) {
+        AccessToken current = getAccessToken(key);
+        if (current != null && !current.getAccessToken().equals(expiredToken)) {
+            return CompletableFuture.completedFuture(current);
+        }
+        CompletableFuture<AccessToken> future = new CompletableFuture<>();
+        CompletableFuture<AccessToken> inFlight = tokenRequests.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        tokenRequestExecutor.execute(() -> {
+            try {
+                // another request may have completed after the cached access token was read
+                AccessToken renewed = getAccessToken(key);
+                AccessToken accessToken = renewed != null && !renewed.getAccessToken().equals(expiredToken) ?
+                        renewed : tokenRequest.get();
+                if (accessToken.isSuccess() && accessToken != renewed) {
+                    store(key, accessToken, refreshSkew, tokenRequest);
+                }
+                // the new access token is cached before the request is removed, so later callers do not renew again
+                tokenRequests.remove(key, future);
+                future.complete(accessToken);
+            } catch (RuntimeException e) {
+                tokenRequests.remove(key, future);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void store(String key, AccessToken accessToken, long refreshSkew, Supplier<AccessToken> tokenRequest) {
+        TokenEntry entry = new TokenEntry(accessToken);
+        TokenEntry previous = accessTokens.put(key, entry);
+        if (previous != null && previous.refreshTimeout != null) {
+            previous.refreshTimeout.cancel();
+        }
+        if (accessToken.getExpiryTime() > 0 && refreshSkew >= 0) {
+            long delay = getRefreshDelay(accessToken.getExpiryTime(), refreshSkew, System.currentTimeMillis());
+            entry.refreshTimeout = refreshTimer.newTimeout(timeout -> refresh(key, entry, refreshSkew, tokenRequest),
+                    delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the time until an access token is refreshed.
+     *
+     * @param expiryTime  the expiry time of the access token in milliseconds since the epoch.
+     * @param refreshSkew the time before the expiry at which the access token is refreshed.
+     * @param currentTime the current time in milliseconds since the epoch.
+     * @return the delay in milliseconds, which is at least half of the remaining lifetime of the access token.
+     */
+    static long getRefreshDelay(long expiryTime, long refreshSkew, long currentTime) {
+        long lifetime = Math.max(0, expiryTime - currentTime);
+        return lifetime - Math.min(refreshSkew, lifetime / 2);
+    }
+
+    private void refresh(String key, TokenEntry entry, long refreshSkew, Supplier<AccessToken> tokenRequest) {
+        if (accessTokens.get(key) != entry || !entry.used) {
+            return;
+        }
+        renewAccessToken(key, entry.accessToken.getAccessToken(), refreshSkew, tokenRequest)
+                .whenComplete((accessToken, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Failed to refresh the access token before it expires. It will be renewed when " +
+                                "it is rejected.", throwable);
+                    } else if (!accessToken.isSuccess()) {
+                        log.warn("Failed to refresh the access token before it expires, with response code: " +
+                                accessToken.getResponseCode() + ". It will be renewed when it is rejected.");
+                    }
+                });
+    }
+
+    private static class TokenEntry {
+        private final AccessToken accessToken;
+        private volatile boolean used;
+        private volatile Timeout refreshTimeout;
+
+        TokenEntry(AccessToken accessToken) {
+            this.accessToken = accessToken;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+/**
+ * {@code CircuitBreaker} tracks the outcome of the requests sent to a single endpoint and stops sending requests to
+ * it while it is failing.
+ * The breaker is closed while the failure rate over the last window of calls is below the threshold. A call fails
+ * when it gets a 5xx response or an error, or when its response takes longer than the slow call duration. Once the
+ * threshold is reached the breaker opens and rejects calls for the open duration. Then it is half open and admits a
+ * limited number of probe calls, which close the breaker if they all succeed and open it again otherwise.
+ */
+public class CircuitBreaker implements CircuitBreakerMXBean {
+    private static final Logger log = Logger.getLogger(CircuitBreaker.class);
+    private final String endpoint;
+    private final double failureRateThreshold;
+    private final long slowCallDuration;
+    private final int minimumCalls;
+    private final long openDuration;
+    private final int halfOpenCalls;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long stateChangedTime;
+    private int halfOpenAdmitted;
+    private int halfOpenSucceeded;
+    private long rejectedCalls;
+
+    public CircuitBreaker(String endpoint, double failureRateThreshold, long slowCallDuration, int windowSize,
+                          int minimumCalls, long openDuration, int halfOpenCalls) {
+        this.endpoint = endpoint;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Checks whether a call to the endpoint is allowed.
+     *
+     * @return true if the call can be sent, false if the breaker rejects it.
+     */
+    public synchronized boolean tryAcquire() {
+        long currentTime = System.currentTimeMillis();
+        if (state == State.OPEN && currentTime - stateChangedTime >= openDuration) {
+            transitionTo(State.HALF_OPEN, currentTime);
+        }
+        if (state == State.HALF_OPEN) {
+            // probes which never complete, for example due to a timeout, must not keep the breaker half open
+            if (halfOpenAdmitted >= halfOpenCalls && currentTime - stateChangedTime >= openDuration) {
+                transitionTo(State.HALF_OPEN, currentTime);
+            }
+            if (halfOpenAdmitted < halfOpenCalls) {
+                halfOpenAdmitted++;
+                return true;
+            }
+        } else if (state == State.CLOSED) {
+            return true;
+        }
+        rejectedCalls++;
+        return false;
+    }
+
+    /**
+     * Records the outcome of a call.
+     *
+     * @param statusCode the http status code of the response, or -1 if the call failed with an error.
+     * @param duration   the time taken for the response in milliseconds.
+     */
+    public synchronized void onResult(int statusCode, long duration) {
+        boolean failed = statusCode < 0 || statusCode >= HttpConstants.INTERNAL_SERVER_FAIL_CODE ||
+                (slowCallDuration > 0 && duration > slowCallDuration);
+        long currentTime = System.currentTimeMillis();
+        if (state == State.HALF_OPEN) {
+            if (failed) {
+                transitionTo(State.OPEN, currentTime);
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED, currentTime);
+            }
+        } else if (state == State.CLOSED) {
+            if (windowCalls == window.length) {
+                if (window[windowIndex]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCalls++;
+            }
+            window[windowIndex] = failed;
+            if (failed) {
+                windowFailures++;
+            }
+            windowIndex = (windowIndex + 1) % window.length;
+            if (windowCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN, currentTime);
+            }
+        }
+    }
+
+    /**
+     * Creates a listener which records the outcome of the call before passing the response to the given listener.
+     *
+     * @param delegate the listener of the response, can be null.
+     * @return the response listener.
+     */
+    public HttpConnectorListener createResponseListener(HttpConnectorListener delegate) {
+        return new ResponseListener(delegate, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized String getState() {
+        return state.name();
+    }
+
+    @Override
+    public synchronized double getFailureRate() {
+        return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+    }
+
+    @Override
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    private void transitionTo(State newState, long currentTime) {
+        if (state != newState) {
+            log.info("Circuit breaker of endpoint " + endpoint + " changed from " + state + " to " + newState +
+                    " with a failure rate of " + getFailureRate() + ".");
+        }
+        state = newState;
+        stateChangedTime = currentTime;
+        halfOpenAdmitted = 0;
+        halfOpenSucceeded = 0;
+        if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+        }
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private class ResponseListener implements HttpConnectorListener {
+        private final HttpConnectorListener delegate;
+        private final long startTime;
+
+        ResponseListener(HttpConnectorListener delegate, long startTime) {
+            this.delegate = delegate;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            onResult(httpMessage.getNettyHttpResponse().status().code(), System.currentTimeMillis() - startTime);
+            if (delegate != null) {
+                delegate.onMessage(httpMessage);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onResult(-1, System.currentTimeMillis() - startTime);
+            if (delegate != null) {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+/**
+ * {@code CircuitBreakerMXBean} exposes the metrics of the circuit breaker of an endpoint through JMX.
+ */
+public interface CircuitBreakerMXBean {
+
+    /**
+     * @return the state of the breaker, one of CLOSED, OPEN or HALF_OPEN.
+     */
+    String getState();
+
+    /**
+     * @return the failure rate over the current window of calls.
+     */
+    double getFailureRate();
+
+    /**
+     * @return the number of calls rejected since the breaker was created.
+     */
+    long getRejectedCalls();
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@code CircuitBreakerRegistry} holds the circuit breakers of the endpoints a sink publishes to. Endpoints are
+ * identified by the scheme, host and port of the publisher url. The breaker of each endpoint is registered as an
+ * MXBean, so that its state can be monitored through JMX.
+ */
+public class CircuitBreakerRegistry {
+    private static final Logger log = Logger.getLogger(CircuitBreakerRegistry.class);
+    private static final String OBJECT_NAME_PREFIX = "org.wso2.extension.siddhi.io.http:type=CircuitBreaker,sink=";
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final String sinkId;
+    private final double failureRateThreshold;
+    private final long slowCallDuration;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final long openDuration;
+    private final int halfOpenCalls;
+
+    public CircuitBreakerRegistry(String sinkId, double failureRateThreshold, long slowCallDuration, int windowSize,
+                                  int minimumCalls, long openDuration, int halfOpenCalls) {
+        this.sinkId = sinkId;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint of the given url properties.
+     *
+     * @param urlProperties the url properties of the request.
+     * @return the circuit breaker of the endpoint.
+     */
+    public CircuitBreaker getCircuitBreaker(Map<String, String> urlProperties) {
+        String endpoint = urlProperties.get(Constants.PROTOCOL) + HttpConstants.PROTOCOL_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_HOST) + HttpConstants.PORT_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_PORT);
+        return circuitBreakers.computeIfAbsent(endpoint, this::createCircuitBreaker);
+    }
+
+    /**
+     * Unregisters the MXBeans of all circuit breakers and removes them.
+     */
+    public void clear() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (String endpoint : circuitBreakers.keySet()) {
+            try {
+                ObjectName objectName = getObjectName(endpoint);
+                if (mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                log.warn("Failed to unregister the circuit breaker metrics of endpoint " + endpoint + " of " +
+                        sinkId, e);
+            }
+        }
+        circuitBreakers.clear();
+    }
+
+    private CircuitBreaker createCircuitBreaker(String endpoint) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(endpoint, failureRateThreshold, slowCallDuration,
+                windowSize, minimumCalls, openDuration, halfOpenCalls);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(circuitBreaker, getObjectName(endpoint));
+        } catch (JMException e) {
+            log.warn("Failed to register the circuit breaker metrics of endpoint " + endpoint + " of " + sinkId, e);
+        }
+        return circuitBreaker;
+    }
+
+    private ObjectName getObjectName(String endpoint) throws JMException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(sinkId) + ",endpoint=" +
+                ObjectName.quote(endpoint));
+    }
+}
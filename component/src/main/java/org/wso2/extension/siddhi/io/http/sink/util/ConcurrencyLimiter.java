@@ -0,0 +1,250 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@code ConcurrencyLimiter} adapts the number of requests a sink may have in flight to a single endpoint to the
+ * latency and the errors the endpoint responds with, using additive increase and multiplicative decrease.
+ * The endpoint is congested when a request fails with an error, a 5xx or a 429 response, or when its round trip time
+ * exceeds the tolerance times the minimum round trip time observed over the last two windows. The limit is then
+ * multiplied by the backoff ratio, at most once per round trip, as the responses of the requests sent before the
+ * decrease reflect the previous limit. Otherwise the limit grows by one per round trip while the requests in flight
+ * use at least half of it, so that an idle sink does not inflate its limit.
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+    private static final Logger log = Logger.getLogger(ConcurrencyLimiter.class);
+    private static final long RTT_WINDOW = TimeUnit.SECONDS.toNanos(30);
+    private final String endpoint;
+    private final String sinkId;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double rttTolerance;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlightRequests;
+    private long windowStartTime = System.nanoTime();
+    private long windowMinRtt = Long.MAX_VALUE;
+    private long previousWindowMinRtt = Long.MAX_VALUE;
+    private long lastDecreaseTime = windowStartTime;
+    private long limitDecreases;
+
+    public ConcurrencyLimiter(String endpoint, String sinkId, int initialLimit, int minLimit, int maxLimit,
+                              double backoffRatio, double rttTolerance) {
+        this.endpoint = endpoint;
+        this.sinkId = sinkId;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Acquires a permit for a request, waiting until the number of requests in flight is below the limit.
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            while (inFlightRequests >= (int) limit) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new HttpSinkAdaptorRuntimeException("Interrupted while waiting for the concurrency limit " +
+                            "of endpoint " + endpoint + " of " + sinkId + ". Message dropped.", e);
+                }
+            }
+            inFlightRequests++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires a permit for a request without waiting, even if the limit is reached. Used for the requests sent again
+     * from the transport and the scheduler threads, such as retries, which must not block those threads.
+     */
+    public void admit() {
+        lock.lock();
+        try {
+            inFlightRequests++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permit of a request which could not be sent, without recording a sample.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlightRequests--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates a listener which releases the permit of the request and adapts the limit to its outcome before passing
+     * the response to the given listener. Has to be created right before the request is sent, as the round trip time
+     * is measured from its creation.
+     *
+     * @param delegate the listener of the response, can be null.
+     * @return the response listener.
+     */
+    public HttpConnectorListener createResponseListener(HttpConnectorListener delegate) {
+        lock.lock();
+        try {
+            return new ResponseListener(delegate, System.nanoTime(), inFlightRequests);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permit of a completed request and adapts the limit to its outcome.
+     *
+     * @param startTime        the time the request was sent, in nanoseconds.
+     * @param inFlightRequests the number of requests in flight when the request was sent, including itself.
+     * @param statusCode       the http status code of the response, or -1 if the request failed with an error.
+     */
+    void onResult(long startTime, int inFlightRequests, int statusCode) {
+        long currentTime = System.nanoTime();
+        long rtt = currentTime - startTime;
+        boolean dropped = statusCode < 0 || HttpRetryScheduler.isRetryable(statusCode);
+        lock.lock();
+        try {
+            this.inFlightRequests--;
+            if (currentTime - windowStartTime >= RTT_WINDOW) {
+                previousWindowMinRtt = windowMinRtt;
+                windowMinRtt = Long.MAX_VALUE;
+                windowStartTime = currentTime;
+            }
+            if (!dropped) {
+                windowMinRtt = Math.min(windowMinRtt, rtt);
+            }
+            long minRtt = Math.min(windowMinRtt, previousWindowMinRtt);
+            if (dropped || rtt > minRtt * rttTolerance) {
+                if (startTime - lastDecreaseTime > 0 && limit > minLimit) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseTime = currentTime;
+                    limitDecreases++;
+                    if (log.isDebugEnabled()) {
+                        log.debug("Decreased the concurrency limit of endpoint " + endpoint + " of " + sinkId +
+                                " to " + (int) limit + " on a " + (dropped ? "failed" : "slow") + " response " +
+                                "with a round trip time of " + TimeUnit.NANOSECONDS.toMillis(rtt) + " ms.");
+                    }
+                }
+            } else if (inFlightRequests * 2 >= limit && limit < maxLimit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        lock.lock();
+        try {
+            return inFlightRequests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public double getMinRtt() {
+        lock.lock();
+        try {
+            long minRtt = Math.min(windowMinRtt, previousWindowMinRtt);
+            return minRtt == Long.MAX_VALUE ? -1 : minRtt / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLimitDecreases() {
+        lock.lock();
+        try {
+            return limitDecreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class ResponseListener implements HttpConnectorListener {
+        private final HttpConnectorListener delegate;
+        private final long startTime;
+        private final int inFlightRequests;
+
+        ResponseListener(HttpConnectorListener delegate, long startTime, int inFlightRequests) {
+            this.delegate = delegate;
+            this.startTime = startTime;
+            this.inFlightRequests = inFlightRequests;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            onResult(startTime, inFlightRequests, httpMessage.getNettyHttpResponse().status().code());
+            if (delegate != null) {
+                delegate.onMessage(httpMessage);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onResult(startTime, inFlightRequests, -1);
+            if (delegate != null) {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+}
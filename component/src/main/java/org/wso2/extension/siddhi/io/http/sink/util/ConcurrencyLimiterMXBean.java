@@ -0,0 +1,45 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+/**
+ * {@code ConcurrencyLimiterMXBean} exposes the metrics of the adaptive concurrency limiter of an endpoint through JMX.
+ */
+public interface ConcurrencyLimiterMXBean {
+
+    /**
+     * @return the number of requests currently allowed in flight to the endpoint.
+     */
+    int getLimit();
+
+    /**
+     * @return the number of requests in flight to the endpoint.
+     */
+    int getInFlightRequests();
+
+    /**
+     * @return the minimum round trip time in milliseconds observed over the last two windows, or -1 if none.
+     */
+    double getMinRtt();
+
+    /**
+     * @return the number of times the limit was decreased since the limiter was created.
+     */
+    long getLimitDecreases();
+}
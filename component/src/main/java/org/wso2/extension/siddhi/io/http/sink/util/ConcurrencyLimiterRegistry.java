@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@code ConcurrencyLimiterRegistry} holds the adaptive concurrency limiters of the endpoints a sink publishes to.
+ * Endpoints are identified by the scheme, host and port of the publisher url. The limiter of each endpoint is
+ * registered as an MXBean, so that its current limit can be monitored through JMX.
+ */
+public class ConcurrencyLimiterRegistry {
+    private static final Logger log = Logger.getLogger(ConcurrencyLimiterRegistry.class);
+    private static final String OBJECT_NAME_PREFIX = "org.wso2.extension.siddhi.io.http:type=ConcurrencyLimiter,sink=";
+    private final Map<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+    private final String sinkId;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double rttTolerance;
+
+    public ConcurrencyLimiterRegistry(String sinkId, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, double rttTolerance) {
+        this.sinkId = sinkId;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Returns the concurrency limiter of the endpoint of the given url properties.
+     *
+     * @param urlProperties the url properties of the request.
+     * @return the concurrency limiter of the endpoint.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter(Map<String, String> urlProperties) {
+        String endpoint = urlProperties.get(Constants.PROTOCOL) + HttpConstants.PROTOCOL_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_HOST) + HttpConstants.PORT_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_PORT);
+        return concurrencyLimiters.computeIfAbsent(endpoint, this::createConcurrencyLimiter);
+    }
+
+    /**
+     * Unregisters the MXBeans of all concurrency limiters and removes them.
+     */
+    public void clear() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (String endpoint : concurrencyLimiters.keySet()) {
+            try {
+                ObjectName objectName = getObjectName(endpoint);
+                if (mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                log.warn("Failed to unregister the concurrency limiter metrics of endpoint " + endpoint + " of " +
+                        sinkId, e);
+            }
+        }
+        concurrencyLimiters.clear();
+    }
+
+    private ConcurrencyLimiter createConcurrencyLimiter(String endpoint) {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(endpoint, sinkId, initialLimit, minLimit,
+                maxLimit, backoffRatio, rttTolerance);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(concurrencyLimiter, getObjectName(endpoint));
+        } catch (JMException e) {
+            log.warn("Failed to register the concurrency limiter metrics of endpoint " + endpoint + " of " +
+                    sinkId, e);
+        }
+        return concurrencyLimiter;
+    }
+
+    private ObjectName getObjectName(String endpoint) throws JMException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(sinkId) + ",endpoint=" +
+                ObjectName.quote(endpoint));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+import org.wso2.transport.http.netty.contract.HttpClientConnector;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@code HttpClientConnectorCache} keeps the client connectors of a sink which publishes to a dynamic publisher.url.
+ * Connectors are keyed by the scheme, host and port of the url so that events sent to an already known destination
+ * reuse its connector and the pooled keep-alive connections of it. TLS and proxy settings are sink level
+ * configurations, hence an instance of this cache belongs to a single sink and must not be shared.
+ * Both the parsed url properties and the connectors are bounded and the least recently used entries are evicted.
+ * An evicted connector may have just been fetched by another publisher, hence it is only closed after the given
+ * delay, by which the requests still in flight on it have either been answered or timed out.
+ */
+public class HttpClientConnectorCache {
+    private static final Logger log = Logger.getLogger(HttpClientConnectorCache.class);
+    private final Map<String, Map<String, String>> urlPropertiesMap;
+    private final Map<String, HttpClientConnector> clientConnectorMap;
+    private final Set<HttpClientConnector> evictedClientConnectors = new HashSet<>();
+    private final Function<Map<String, String>, HttpClientConnector> clientConnectorCreator;
+    private final ScheduledExecutorService scheduler;
+    private final long closeDelay;
+
+    /**
+     * Creates the client connector cache of a sink.
+     *
+     * @param maxSize                the maximum number of destinations.
+     * @param clientConnectorCreator creates the client connector of a destination.
+     * @param scheduler              the scheduler which closes the evicted connectors.
+     * @param closeDelay             the time in milliseconds an evicted connector is closed after.
+     */
+    public HttpClientConnectorCache(int maxSize,
+                                    Function<Map<String, String>, HttpClientConnector> clientConnectorCreator,
+                                    ScheduledExecutorService scheduler, long closeDelay) {
+        this.clientConnectorCreator = clientConnectorCreator;
+        this.scheduler = scheduler;
+        this.closeDelay = closeDelay;
+        this.urlPropertiesMap = new LinkedHashMap<String, Map<String, String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.clientConnectorMap = new LinkedHashMap<String, HttpClientConnector>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HttpClientConnector> eldest) {
+                if (size() > maxSize) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Evicting the client connector of destination " + eldest.getKey());
+                    }
+                    closeLater(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the host, port, context and the complete url of the given publisher url.
+     *
+     * @param publisherURL the publisher url.
+     * @return read only map that contains the url properties.
+     */
+    public synchronized Map<String, String> getURLProperties(String publisherURL) {
+        Map<String, String> urlProperties = urlPropertiesMap.get(publisherURL);
+        if (urlProperties == null) {
+            urlProperties = Collections.unmodifiableMap(HttpSinkUtil.getURLProperties(publisherURL));
+            urlPropertiesMap.put(publisherURL, urlProperties);
+        }
+        return urlProperties;
+    }
+
+    /**
+     * Returns the client connector of the destination, creating it if the destination is not known yet.
+     *
+     * @param urlProperties the url properties of the destination.
+     * @return client connector of the destination.
+     */
+    public synchronized HttpClientConnector getClientConnector(Map<String, String> urlProperties) {
+        String destination = getDestinationKey(urlProperties);
+        HttpClientConnector clientConnector = clientConnectorMap.get(destination);
+        if (clientConnector == null) {
+            clientConnector = clientConnectorCreator.apply(urlProperties);
+            clientConnectorMap.put(destination, clientConnector);
+        }
+        return clientConnector;
+    }
+
+    /**
+     * Closes all cached client connectors.
+     */
+    public synchronized void clear() {
+        for (HttpClientConnector clientConnector : clientConnectorMap.values()) {
+            clientConnector.close();
+        }
+        for (HttpClientConnector clientConnector : evictedClientConnectors) {
+            clientConnector.close();
+        }
+        clientConnectorMap.clear();
+        evictedClientConnectors.clear();
+        urlPropertiesMap.clear();
+    }
+
+    private void closeLater(HttpClientConnector clientConnector) {
+        evictedClientConnectors.add(clientConnector);
+        try {
+            scheduler.schedule(() -> close(clientConnector), closeDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the siddhi app is shutting down, and clear closes the connector
+        }
+    }
+
+    private synchronized void close(HttpClientConnector clientConnector) {
+        if (evictedClientConnectors.remove(clientConnector)) {
+            clientConnector.close();
+        }
+    }
+
+    private static String getDestinationKey(Map<String, String> urlProperties) {
+        return urlProperties.get(Constants.PROTOCOL) + HttpConstants.PROTOCOL_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_HOST) + HttpConstants.PORT_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_PORT);
+    }
+}
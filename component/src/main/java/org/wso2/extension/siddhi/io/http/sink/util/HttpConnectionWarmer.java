@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.transport.http.netty.contract.Constants;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.contract.HttpResponseFuture;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * {@code HttpConnectionWarmer} opens connections to the destinations of a http sink when it connects, so that the
+ * first requests do not pay the TCP and TLS handshakes.
+ * The connections are opened by sending concurrent probe requests to each destination, and the client connector
+ * keeps them in its pool once the probes are responded. The probes are sent again periodically, which validates the
+ * pooled connections, keeps them from being evicted as idle, and replaces the connections closed by the server.
+ */
+public class HttpConnectionWarmer {
+    private static final Logger log = Logger.getLogger(HttpConnectionWarmer.class);
+    private final int connections;
+    private final long validationInterval;
+    private final String streamID;
+    private final Function<Map<String, String>, HttpResponseFuture> probe;
+    private ScheduledFuture<?> validationTask;
+
+    /**
+     * Creates the connection warmer of a sink.
+     *
+     * @param connections        the number of connections to keep open to each destination.
+     * @param validationInterval the interval in milliseconds at which the connections are validated, or a value less
+     *                           than 1 to only open them when the sink connects.
+     * @param streamID           the stream of the sink.
+     * @param probe              sends a probe request to the destination of the given url properties.
+     */
+    public HttpConnectionWarmer(int connections, long validationInterval, String streamID,
+                                Function<Map<String, String>, HttpResponseFuture> probe) {
+        this.connections = connections;
+        this.validationInterval = validationInterval;
+        this.streamID = streamID;
+        this.probe = probe;
+    }
+
+    /**
+     * Opens the connections to the destinations, and starts validating them periodically.
+     *
+     * @param destinations the url properties of the destinations.
+     * @param executor     the executor of the validations.
+     */
+    public synchronized void start(List<Map<String, String>> destinations, ScheduledExecutorService executor) {
+        warm(destinations, true);
+        if (validationInterval > 0 && validationTask == null) {
+            validationTask = executor.scheduleWithFixedDelay(() -> warm(destinations, false), validationInterval,
+                    validationInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops validating the connections. The open connections are closed along with the client connectors.
+     */
+    public synchronized void stop() {
+        if (validationTask != null) {
+            validationTask.cancel(false);
+            validationTask = null;
+        }
+    }
+
+    private void warm(List<Map<String, String>> destinations, boolean connecting) {
+        for (Map<String, String> urlProperties : destinations) {
+            ProbeListener listener = new ProbeListener(urlProperties.get(Constants.REQUEST_URL), connecting);
+            for (int i = 0; i < connections; i++) {
+                try {
+                    probe.apply(urlProperties).setHttpConnectorListener(listener);
+                } catch (RuntimeException e) {
+                    listener.onError(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the responded probes of a destination, and logs the number of connections opened once all of them
+     * are completed.
+     */
+    private class ProbeListener implements HttpConnectorListener {
+        private final String requestURL;
+        private final boolean connecting;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile Throwable failure;
+
+        ProbeListener(String requestURL, boolean connecting) {
+            this.requestURL = requestURL;
+            this.connecting = connecting;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            complete();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+            failed.incrementAndGet();
+            complete();
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+
+        private void complete() {
+            if (completed.incrementAndGet() < connections) {
+                return;
+            }
+            int opened = connections - failed.get();
+            if (opened == connections) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Opened " + opened + " connections to " + requestURL + " in " + streamID);
+                }
+            } else if (connecting) {
+                log.warn("Opened only " + opened + " of " + connections + " connections to " + requestURL + " in " +
+                        streamID + ". The remaining connections are opened by the requests.", failure);
+            } else if (log.isDebugEnabled()) {
+                log.debug("Failed to validate " + (connections - opened) + " of " + connections + " connections to " +
+                        requestURL + " in " + streamID, failure);
+            }
+        }
+    }
+}
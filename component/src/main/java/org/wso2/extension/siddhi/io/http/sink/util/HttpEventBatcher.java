@@ -0,0 +1,196 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.core.util.transport.DynamicOptions;
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code HttpEventBatcher} collects the payloads of the events published to a http sink and hands them over as a
+ * single request body once the batch reaches the configured event count or byte size, or when the first event of
+ * the batch has waited for the linger time.
+ * Events are only batched together when they resolve to the same publisher url, method and headers. An event with
+ * different dynamic option values flushes the pending batch first, hence the publishing order is preserved.
+ */
+public class HttpEventBatcher {
+    private static final Logger log = Logger.getLogger(HttpEventBatcher.class);
+    private final int maxEvents;
+    private final long maxBytes;
+    private final long lingerTime;
+    private final String format;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final BatchPublisher batchPublisher;
+    private final List<String> payloads = new ArrayList<>();
+    private long batchBytes;
+    private BatchKey batchKey;
+    private DynamicOptions batchDynamicOptions;
+    private ScheduledFuture<?> lingerFuture;
+
+    public HttpEventBatcher(int maxEvents, long maxBytes, long lingerTime, String format,
+                            ScheduledExecutorService scheduledExecutorService, BatchPublisher batchPublisher) {
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.lingerTime = lingerTime;
+        this.format = format;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.batchPublisher = batchPublisher;
+    }
+
+    /**
+     * Adds the payload of an event to the batch. The batch is published on the calling thread when it is full.
+     *
+     * @param payload        the mapped payload of the event.
+     * @param dynamicOptions the dynamic options of the event.
+     * @param key            the resolved publisher url, method and headers of the event.
+     * @throws ConnectionUnavailableException when the batch could not be published.
+     */
+    public synchronized void add(String payload, DynamicOptions dynamicOptions, BatchKey key)
+            throws ConnectionUnavailableException {
+        long payloadBytes = HttpMessageBodyEncoder.utf8Length(payload);
+        boolean exceedsMaxBytes = maxBytes > 0 && batchBytes + payloadBytes > maxBytes;
+        if (!payloads.isEmpty() && (exceedsMaxBytes || !key.equals(batchKey))) {
+            flush();
+        }
+        if (payloads.isEmpty()) {
+            batchKey = key;
+            batchDynamicOptions = dynamicOptions;
+            lingerFuture = scheduledExecutorService.schedule(this::flushOnLinger, lingerTime, TimeUnit.MILLISECONDS);
+        }
+        payloads.add(payload);
+        batchBytes += payloadBytes;
+        if (payloads.size() >= maxEvents || (maxBytes > 0 && batchBytes >= maxBytes)) {
+            flush();
+        }
+    }
+
+    /**
+     * Publishes the pending events, if any.
+     *
+     * @throws ConnectionUnavailableException when the batch could not be published.
+     */
+    public synchronized void flush() throws ConnectionUnavailableException {
+        if (lingerFuture != null) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+        if (payloads.isEmpty()) {
+            return;
+        }
+        String messageBody = buildMessageBody(payloads, format);
+        DynamicOptions dynamicOptions = batchDynamicOptions;
+        int eventCount = payloads.size();
+        payloads.clear();
+        batchBytes = 0;
+        batchKey = null;
+        batchDynamicOptions = null;
+        if (log.isDebugEnabled()) {
+            log.debug("Publishing a batch of " + eventCount + " events.");
+        }
+        batchPublisher.publish(messageBody, dynamicOptions);
+    }
+
+    private void flushOnLinger() {
+        try {
+            flush();
+        } catch (ConnectionUnavailableException | RuntimeException e) {
+            log.error("Error while publishing the batch of events after the linger time of " + lingerTime +
+                    " ms. Message dropped.", e);
+        }
+    }
+
+    /**
+     * Joins the payloads of a batch into a single message body.
+     *
+     * @param payloads the payloads of the events.
+     * @param format   the batch format, one of json.array, ndjson or text.
+     * @return the message body of the batch.
+     */
+    static String buildMessageBody(List<String> payloads, String format) {
+        int length = 2;
+        for (String payload : payloads) {
+            length += payload.length() + 1;
+        }
+        StringBuilder messageBody = new StringBuilder(length);
+        boolean isJsonArray = HttpConstants.BATCH_FORMAT_JSON_ARRAY.equals(format);
+        if (isJsonArray) {
+            messageBody.append('[');
+        }
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                messageBody.append(isJsonArray ? ',' : '\n');
+            }
+            messageBody.append(payloads.get(i));
+        }
+        if (isJsonArray) {
+            messageBody.append(']');
+        } else if (HttpConstants.BATCH_FORMAT_NDJSON.equals(format)) {
+            messageBody.append('\n');
+        }
+        return messageBody.toString();
+    }
+
+    /**
+     * Publishes the message body of a batch.
+     */
+    public interface BatchPublisher {
+        void publish(String messageBody, DynamicOptions dynamicOptions) throws ConnectionUnavailableException;
+    }
+
+    /**
+     * The dynamic option values which have to be equal for events to be sent in the same batch.
+     */
+    public static class BatchKey {
+        private final String publisherURL;
+        private final String httpMethod;
+        private final String headers;
+
+        public BatchKey(String publisherURL, String httpMethod, String headers) {
+            this.publisherURL = publisherURL;
+            this.httpMethod = httpMethod;
+            this.headers = headers;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BatchKey that = (BatchKey) o;
+            return Objects.equals(publisherURL, that.publisherURL) && Objects.equals(httpMethod, that.httpMethod)
+                    && Objects.equals(headers, that.headers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(publisherURL, httpMethod, headers);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * {@code HttpFormUrlEncoder} encodes key value pairs as an application/x-www-form-urlencoded body, the same as
+ * joining the pairs encoded with {@link java.net.URLEncoder} in UTF-8 by '&amp;', but written straight into a buffer.
+ * The encoded length is computed before the pairs are written, so that the buffer is allocated with its exact size.
+ * Keys and values which need no escaping are copied as they are.
+ */
+public class HttpFormUrlEncoder {
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final boolean[] UNRESERVED = new boolean[128];
+    private static final int ESCAPED_LENGTH = 3;
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+            UNRESERVED[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['.'] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['*'] = true;
+        UNRESERVED['_'] = true;
+    }
+
+    private HttpFormUrlEncoder() {
+    }
+
+    /**
+     * Encodes the key value pairs into a string.
+     *
+     * @param params the key value pairs.
+     * @return the encoded body.
+     */
+    public static String encode(Map<String, ?> params) {
+        int length = encodedLength(params);
+        ByteBuf buffer = Unpooled.buffer(length, length);
+        encode(params, buffer);
+        return buffer.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Computes the number of bytes of the encoded key value pairs.
+     *
+     * @param params the key value pairs.
+     * @return the encoded length.
+     */
+    public static int encodedLength(Map<String, ?> params) {
+        int length = params.isEmpty() ? 0 : params.size() * 2 - 1;
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            length += encodedLength(param.getKey()) + encodedLength(String.valueOf(param.getValue()));
+        }
+        return length;
+    }
+
+    /**
+     * Writes the encoded key value pairs to the buffer.
+     *
+     * @param params the key value pairs.
+     * @param buffer the buffer, which has to have room for the {@link #encodedLength encoded length}.
+     */
+    public static void encode(Map<String, ?> params, ByteBuf buffer) {
+        boolean first = true;
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            if (!first) {
+                buffer.writeByte('&');
+            }
+            first = false;
+            write(param.getKey(), buffer);
+            buffer.writeByte('=');
+            write(String.valueOf(param.getValue()), buffer);
+        }
+    }
+
+    private static int encodedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += UNRESERVED[c] || c == ' ' ? 1 : ESCAPED_LENGTH;
+            } else if (c < 0x800) {
+                length += 2 * ESCAPED_LENGTH;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3 * ESCAPED_LENGTH;
+            } else if (isSurrogatePair(value, i)) {
+                length += 4 * ESCAPED_LENGTH;
+                i++;
+            } else {
+                length += ESCAPED_LENGTH;
+            }
+        }
+        return length;
+    }
+
+    private static void write(String value, ByteBuf buffer) {
+        if (isUnreserved(value)) {
+            buffer.writeCharSequence(value, StandardCharsets.US_ASCII);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && UNRESERVED[c]) {
+                buffer.writeByte(c);
+            } else if (c == ' ') {
+                buffer.writeByte('+');
+            } else if (c < 0x80) {
+                writeEscaped(c, buffer);
+            } else if (c < 0x800) {
+                writeEscaped(0xc0 | (c >> 6), buffer);
+                writeEscaped(0x80 | (c & 0x3f), buffer);
+            } else if (!Character.isSurrogate(c)) {
+                writeEscaped(0xe0 | (c >> 12), buffer);
+                writeEscaped(0x80 | ((c >> 6) & 0x3f), buffer);
+                writeEscaped(0x80 | (c & 0x3f), buffer);
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeEscaped(0xf0 | (codePoint >> 18), buffer);
+                writeEscaped(0x80 | ((codePoint >> 12) & 0x3f), buffer);
+                writeEscaped(0x80 | ((codePoint >> 6) & 0x3f), buffer);
+                writeEscaped(0x80 | (codePoint & 0x3f), buffer);
+            } else {
+                // unpaired surrogates are encoded as '?', the same as URLEncoder
+                writeEscaped('?', buffer);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || !UNRESERVED[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeEscaped(int b, ByteBuf buffer) {
+        buffer.writeByte('%');
+        buffer.writeByte(HEX_DIGITS[(b >> 4) & 0xf]);
+        buffer.writeByte(HEX_DIGITS[b & 0xf]);
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() &&
+                Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.siddhi.core.util.transport.DynamicOptions;
+import io.siddhi.core.util.transport.Option;
+import org.wso2.carbon.messaging.Header;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code HttpHeaderTemplate} holds the headers option of a http sink compiled into header lists, so that the headers
+ * are not parsed for every event.
+ * Static headers are parsed once when the template is created. The attribute values of dynamic headers are
+ * substituted by the option, and the header lists of the resulting values are cached, so that repeated values are
+ * parsed only once.
+ * The returned lists are shared between events and must not be modified, unless the template is created to return
+ * copies of the headers.
+ */
+public class HttpHeaderTemplate {
+    private static final int MAX_CACHED_HEADERS = 1024;
+    private final Option headerOption;
+    private final boolean copyHeaders;
+    private final List<Header> staticHeaders;
+    private final Map<String, List<Header>> cachedHeaders = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the template of the given headers option.
+     *
+     * @param headerOption the headers option.
+     * @param copyHeaders  whether the headers are returned as a new list of new headers, which can be modified.
+     */
+    public HttpHeaderTemplate(Option headerOption, boolean copyHeaders) {
+        this.headerOption = headerOption;
+        this.copyHeaders = copyHeaders;
+        this.staticHeaders = headerOption.isStatic() ? compile(headerOption.getValue()) : null;
+    }
+
+    /**
+     * Returns the headers of an event.
+     *
+     * @param dynamicOptions the dynamic options of the event.
+     * @return the list of headers, or null if the headers option is not given.
+     */
+    public List<Header> getHeaders(DynamicOptions dynamicOptions) {
+        List<Header> headers;
+        if (headerOption.isStatic()) {
+            headers = staticHeaders;
+        } else {
+            String value = headerOption.getValue(dynamicOptions);
+            if (value == null) {
+                return null;
+            }
+            headers = cachedHeaders.get(value);
+            if (headers == null) {
+                headers = compile(value);
+                if (cachedHeaders.size() >= MAX_CACHED_HEADERS) {
+                    // values which do not repeat would otherwise fill the cache with headers which are never reused
+                    cachedHeaders.clear();
+                }
+                cachedHeaders.put(value, headers);
+            }
+        }
+        if (headers == null || !copyHeaders) {
+            return headers;
+        }
+        List<Header> copy = new ArrayList<>(headers.size());
+        for (Header header : headers) {
+            copy.add(new Header(header.getName(), header.getValue()));
+        }
+        return copy;
+    }
+
+    private static List<Header> compile(String headers) {
+        List<Header> headersList = HttpSinkUtil.getHeaders(headers);
+        return headersList == null ? null : Collections.unmodifiableList(headersList);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * {@code HttpMessageBodyEncoder} encodes the message bodies of the http sinks as UTF-8 straight into pooled buffers,
+ * instead of copying them into a byte array first.
+ * The encoded size is computed by scanning the body before it is encoded, so that the buffer is allocated with its
+ * exact size and never grows. Unpaired surrogates are encoded as '?', the same as {@link String#getBytes}.
+ */
+public class HttpMessageBodyEncoder {
+    private static final byte REPLACEMENT = '?';
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final boolean direct;
+
+    public HttpMessageBodyEncoder(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Encodes the body into a pooled buffer, which has to be released by the receiver.
+     *
+     * @param messageBody the message body.
+     * @return the buffer holding the UTF-8 encoded body.
+     */
+    public ByteBuf encode(CharSequence messageBody) {
+        int length = utf8Length(messageBody);
+        ByteBuf buffer = direct ? allocator.directBuffer(length, length) : allocator.heapBuffer(length, length);
+        if (length == 0) {
+            // the allocator hands out an empty buffer, which rejects any write, even of no characters
+            return buffer;
+        }
+        if (length == messageBody.length()) {
+            buffer.writeCharSequence(messageBody, StandardCharsets.US_ASCII);
+            return buffer;
+        }
+        for (int i = 0; i < messageBody.length(); i++) {
+            char c = messageBody.charAt(i);
+            if (c < 0x80) {
+                buffer.writeByte(c);
+            } else if (c < 0x800) {
+                buffer.writeByte(0xc0 | (c >> 6));
+                buffer.writeByte(0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                buffer.writeByte(0xe0 | (c >> 12));
+                buffer.writeByte(0x80 | ((c >> 6) & 0x3f));
+                buffer.writeByte(0x80 | (c & 0x3f));
+            } else if (isSurrogatePair(messageBody, i)) {
+                int codePoint = Character.toCodePoint(c, messageBody.charAt(++i));
+                buffer.writeByte(0xf0 | (codePoint >> 18));
+                buffer.writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                buffer.writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                buffer.writeByte(0x80 | (codePoint & 0x3f));
+            } else {
+                buffer.writeByte(REPLACEMENT);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Encodes the key value pairs as a form url encoded body into a pooled buffer, which has to be released by the
+     * receiver.
+     *
+     * @param params the key value pairs.
+     * @return the buffer holding the encoded body.
+     */
+    public ByteBuf encode(Map<String, ?> params) {
+        int length = HttpFormUrlEncoder.encodedLength(params);
+        ByteBuf buffer = direct ? allocator.directBuffer(length, length) : allocator.heapBuffer(length, length);
+        HttpFormUrlEncoder.encode(params, buffer);
+        return buffer;
+    }
+
+    /**
+     * Computes the number of bytes of the UTF-8 encoding of the given characters.
+     *
+     * @param messageBody the characters.
+     * @return the encoded length.
+     */
+    public static int utf8Length(CharSequence messageBody) {
+        int length = 0;
+        for (int i = 0; i < messageBody.length(); i++) {
+            char c = messageBody.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (isSurrogatePair(messageBody, i)) {
+                length += 4;
+                i++;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isSurrogatePair(CharSequence messageBody, int index) {
+        return Character.isHighSurrogate(messageBody.charAt(index)) && index + 1 < messageBody.length() &&
+                Character.isLowSurrogate(messageBody.charAt(index + 1));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code HttpPartitionLanes} delivers the requests of the same partition key in order, while the requests of
+ * different keys are sent in parallel.
+ * The keys are striped over a fixed number of lanes. A lane has a single request in flight, and the next request of
+ * the lane is sent only once the previous one is completed, after its retries if any, hence the requests of a key
+ * reach the endpoint in the order they are published. The lanes hold no threads while the requests are in flight, and
+ * the next request is sent from the given executor, so that the transport threads are never blocked.
+ * The publishing thread waits when the queue of its lane is full.
+ * A waiting request which cannot be sent as the connection is unavailable is kept at the head of its lane, and the
+ * lane stays blocked. The request is sent again by the next submit to the lane, which fails with the connection
+ * error if the connection is still unavailable, so that no request of the lane overtakes it.
+ */
+public class HttpPartitionLanes {
+    private static final Logger log = Logger.getLogger(HttpPartitionLanes.class);
+    private static final int SENDING = 0;
+    private static final int SENT = 1;
+    private static final int COMPLETED = 2;
+    private final Lane[] lanes;
+    private final int queueSize;
+    private final Executor executor;
+    private final String streamID;
+
+    /**
+     * Creates the lanes of a sink.
+     *
+     * @param laneCount the number of lanes, which is the maximum number of requests in flight.
+     * @param queueSize the maximum number of requests waiting in a lane.
+     * @param executor  the executor which sends the waiting requests.
+     * @param streamID  the stream of the sink.
+     */
+    public HttpPartitionLanes(int laneCount, int queueSize, Executor executor, String streamID) {
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane();
+        }
+        this.queueSize = queueSize;
+        this.executor = executor;
+        this.streamID = streamID;
+    }
+
+    /**
+     * Sends a request in the lane of its partition key, right away if the lane is idle, or otherwise after the
+     * requests ahead of it in the lane are completed.
+     *
+     * @param key     the partition key of the request.
+     * @param request the request.
+     * @throws ConnectionUnavailableException if the request is sent right away and the connection is unavailable,
+     *                                        or a request ahead of it in the lane failed to be sent and still cannot
+     *                                        be sent, in which case the request is not submitted.
+     */
+    public void submit(Object key, Request request) throws ConnectionUnavailableException {
+        int index = key == null ? 0 : Math.floorMod(key.hashCode(), lanes.length);
+        lanes[index].submit(request);
+    }
+
+    /**
+     * A request sent in a lane.
+     */
+    @FunctionalInterface
+    public interface Request {
+
+        /**
+         * Sends the request.
+         *
+         * @param completion has to be run once the request is completed, with its final response, error or drop.
+         * @throws ConnectionUnavailableException if the connection is unavailable.
+         */
+        void send(Runnable completion) throws ConnectionUnavailableException;
+    }
+
+    private class Lane {
+        private final Deque<Request> waiting = new ArrayDeque<>();
+        private boolean busy;
+        private ConnectionUnavailableException failure;
+
+        void submit(Request request) throws ConnectionUnavailableException {
+            resendFailed();
+            synchronized (this) {
+                while (waiting.size() >= queueSize) {
+                    if (failure != null) {
+                        throw new ConnectionUnavailableException("Failed to send the request at the head of the " +
+                                "partition lane of " + streamID + ".", failure);
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ConnectionUnavailableException("Interrupted while waiting for the partition lane " +
+                                "of " + streamID + ".", e);
+                    }
+                }
+                if (busy) {
+                    waiting.add(request);
+                    return;
+                }
+                busy = true;
+            }
+            send(request, false);
+        }
+
+        private void resendFailed() throws ConnectionUnavailableException {
+            Request failed;
+            synchronized (this) {
+                if (failure == null) {
+                    return;
+                }
+                failed = waiting.poll();
+                failure = null;
+            }
+            ConnectionUnavailableException e = sendWaiting(failed);
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        /**
+         * Sends a request of the lane. The next request of the lane is sent once the request is completed, or right
+         * away if the request fails to be sent, unless the failure is a connection error and the request is kept.
+         *
+         * @param request the request.
+         * @param keep    whether the request is kept at the head of the lane if the connection is unavailable.
+         * @throws ConnectionUnavailableException if the connection is unavailable.
+         */
+        private void send(Request request, boolean keep) throws ConnectionUnavailableException {
+            // a request which is completed before it is sent, such as on a failure, sends the next one afterwards
+            AtomicInteger state = new AtomicInteger(SENDING);
+            Runnable completion = () -> {
+                if (state.compareAndSet(SENT, COMPLETED)) {
+                    sendNext();
+                } else {
+                    state.compareAndSet(SENDING, COMPLETED);
+                }
+            };
+            try {
+                request.send(completion);
+            } catch (ConnectionUnavailableException e) {
+                state.set(COMPLETED);
+                if (keep) {
+                    synchronized (this) {
+                        waiting.addFirst(request);
+                        failure = e;
+                        notifyAll();
+                    }
+                } else {
+                    sendNext();
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                state.set(COMPLETED);
+                sendNext();
+                throw e;
+            }
+            if (!state.compareAndSet(SENDING, SENT)) {
+                sendNext();
+            }
+        }
+
+        private ConnectionUnavailableException sendWaiting(Request request) {
+            try {
+                send(request, true);
+                return null;
+            } catch (ConnectionUnavailableException e) {
+                return e;
+            } catch (RuntimeException e) {
+                log.error("Error at sending the request of " + streamID + ". Message dropped.", e);
+                return null;
+            }
+        }
+
+        private void sendNext() {
+            Request next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    busy = false;
+                    return;
+                }
+                notifyAll();
+            }
+            try {
+                executor.execute(() -> {
+                    ConnectionUnavailableException e = sendWaiting(next);
+                    if (e != null) {
+                        log.error("Error at sending the request of " + streamID + ". It is sent again before the " +
+                                "next event of its partition lane.", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                log.error("Failed to send the request of " + streamID + ". Message dropped.", e);
+                sendNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code HttpRateLimiter} bounds the rate of the requests a http sink sends with token buckets, either one for the
+ * whole sink or one for each destination, identified by the scheme, host and port of the publisher url.
+ * A bucket holds up to the burst size of tokens and is refilled at the given rate, and each request takes a token.
+ * When the bucket is empty the publishing thread reserves the next token and waits until it is refilled, the event is
+ * dropped or a {@link ConnectionUnavailableException} is thrown, depending on the configured policy. Reserving the
+ * tokens in order spaces the waiting requests out at the given rate, so that a burst of events is smoothed out
+ * instead of being sent at once when the bucket is refilled.
+ */
+public class HttpRateLimiter {
+    private final double rate;
+    private final double burst;
+    private final boolean perDestination;
+    private final String policy;
+    private final String sinkId;
+    private final TokenBucket sinkBucket;
+    private final Map<String, TokenBucket> destinationBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the rate limiter of a sink.
+     *
+     * @param rate           the number of requests per second.
+     * @param burst          the number of requests which can be sent at once after the sink was idle.
+     * @param perDestination whether each destination has its own bucket, instead of one bucket for the sink.
+     * @param policy         what is done when the bucket is empty, one of the in flight limit policies.
+     * @param sinkId         the sink.
+     */
+    public HttpRateLimiter(double rate, double burst, boolean perDestination, String policy, String sinkId) {
+        this.rate = rate;
+        this.burst = burst;
+        this.perDestination = perDestination;
+        this.policy = policy;
+        this.sinkId = sinkId;
+        this.sinkBucket = perDestination ? null : new TokenBucket(sinkId);
+    }
+
+    /**
+     * Takes a token for a request to the destination of the given url properties, applying the policy when the
+     * bucket is empty.
+     *
+     * @param urlProperties the url properties of the request.
+     * @throws ConnectionUnavailableException when the bucket is empty and the policy is connection.unavailable.
+     */
+    public void acquire(Map<String, String> urlProperties) throws ConnectionUnavailableException {
+        TokenBucket bucket = getBucket(urlProperties);
+        long waitTime = bucket.reserve(!HttpConstants.IN_FLIGHT_LIMIT_POLICY_BLOCK.equals(policy));
+        if (waitTime < 0) {
+            if (HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE.equals(policy)) {
+                throw new ConnectionUnavailableException("Rate limit of " + bucket.name + " reached.");
+            }
+            throw new HttpSinkAdaptorRuntimeException("Rate limit of " + bucket.name + " reached. Message dropped.");
+        }
+        if (waitTime > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpSinkAdaptorRuntimeException("Interrupted while waiting for the rate limit of " +
+                        bucket.name + ". Message dropped.", e);
+            }
+        }
+    }
+
+    /**
+     * Takes a token for a request without waiting, even if the bucket is empty. Used for the requests sent again from
+     * the transport and the scheduler threads, such as retries, which must not block those threads. The requests
+     * published afterwards wait until the token is refilled.
+     *
+     * @param urlProperties the url properties of the request.
+     */
+    public void admit(Map<String, String> urlProperties) {
+        getBucket(urlProperties).take();
+    }
+
+    private TokenBucket getBucket(Map<String, String> urlProperties) {
+        if (!perDestination) {
+            return sinkBucket;
+        }
+        String endpoint = urlProperties.get(Constants.PROTOCOL) + HttpConstants.PROTOCOL_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_HOST) + HttpConstants.PORT_HOST_SEPARATOR +
+                urlProperties.get(Constants.HTTP_PORT);
+        return destinationBuckets.computeIfAbsent(endpoint,
+                key -> new TokenBucket("endpoint " + key + " of " + sinkId));
+    }
+
+    /**
+     * A token bucket whose tokens can be reserved ahead, in which case the tokens go negative and the bucket is
+     * refilled to zero by the time the last reservation is due.
+     */
+    private class TokenBucket {
+        private final String name;
+        private double tokens = burst;
+        private long refillTime = System.nanoTime();
+
+        TokenBucket(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Takes a token, reserving the next one if the bucket is empty.
+         *
+         * @param failFast whether to fail instead of reserving the next token when the bucket is empty.
+         * @return the time in nanoseconds until the token is due, or -1 if the bucket is empty and failFast is set.
+         */
+        synchronized long reserve(boolean failFast) {
+            refill();
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            if (failFast) {
+                return -1;
+            }
+            tokens--;
+            return (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized void take() {
+            refill();
+            tokens--;
+        }
+
+        private void refill() {
+            long currentTime = System.nanoTime();
+            tokens = Math.min(burst, tokens + (currentTime - refillTime) * rate / TimeUnit.SECONDS.toNanos(1));
+            refillTime = currentTime;
+        }
+    }
+}
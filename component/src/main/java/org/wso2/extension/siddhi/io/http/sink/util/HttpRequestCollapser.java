@@ -0,0 +1,167 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@code HttpRequestCollapser} collapses identical requests of a http-request sink which are in flight at the same
+ * time into a single request.
+ * The first request of a key is sent, and the identical requests made while it is in flight attach their response
+ * listeners to it instead of being sent. Once its response arrives, the request is no longer in flight, and the
+ * response is passed to the listeners of all attached requests, each of which delivers it with the attributes of its
+ * own event. Responses are not kept after they are passed on. A request which is resent, for a retry or a renewed
+ * access token, keeps its listener, hence it stays in flight until the response of the resent request arrives.
+ */
+public class HttpRequestCollapser {
+    private static final Logger log = Logger.getLogger(HttpRequestCollapser.class);
+    private final Map<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final String sinkId;
+
+    /**
+     * Creates the request collapser of a sink.
+     *
+     * @param executor the executor which reads the bodies of the responses passed to several listeners.
+     * @param sinkId   the sink.
+     */
+    public HttpRequestCollapser(Executor executor, String sinkId) {
+        this.executor = executor;
+        this.sinkId = sinkId;
+    }
+
+    /**
+     * Attaches a request to the identical request in flight, or makes it the request in flight of its key.
+     *
+     * @param key      the key of the request, as returned by {@link HttpSinkUtil#getRequestKey}.
+     * @param listener the listener of the response of the request.
+     * @return the request to send, whose response listener passes the response on to all attached requests, or null
+     * if the request was attached to the identical request in flight and must not be sent.
+     */
+    public InFlightRequest join(String key, HttpConnectorListener listener) {
+        InFlightRequest[] newRequest = new InFlightRequest[1];
+        inFlightRequests.compute(key, (requestKey, inFlightRequest) -> {
+            if (inFlightRequest == null) {
+                newRequest[0] = new InFlightRequest(requestKey, listener);
+                return newRequest[0];
+            }
+            // the followers are only changed while the request is mapped to its key
+            inFlightRequest.followers.add(listener);
+            return inFlightRequest;
+        });
+        return newRequest[0];
+    }
+
+    /**
+     * A request in flight, along with the listeners of the identical requests attached to it.
+     */
+    public class InFlightRequest implements HttpConnectorListener {
+        private final String key;
+        private final HttpConnectorListener delegate;
+        private final List<HttpConnectorListener> followers = new ArrayList<>();
+
+        InFlightRequest(String key, HttpConnectorListener delegate) {
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            if (!complete() || followers.isEmpty()) {
+                delegate.onMessage(httpMessage);
+                return;
+            }
+            try {
+                // the body is read off the transport thread, which delivers its content
+                executor.execute(() -> fanOut(httpMessage));
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                delegate.onMessage(httpMessage);
+                failFollowers(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            complete();
+            delegate.onError(throwable);
+            failFollowers(throwable);
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+
+        /**
+         * Fails the attached requests of a request which could not be sent.
+         *
+         * @param throwable the cause of the failure.
+         */
+        public void abandon(Throwable throwable) {
+            complete();
+            failFollowers(throwable);
+        }
+
+        /**
+         * Ends the request, so that no more requests are attached to it.
+         *
+         * @return whether the request was still in flight.
+         */
+        private boolean complete() {
+            return inFlightRequests.remove(key, this);
+        }
+
+        private void fanOut(HttpCarbonMessage httpMessage) {
+            byte[] body;
+            try {
+                body = HttpSinkUtil.readBody(httpMessage);
+            } catch (IOException e) {
+                log.error("Failed to read the response of " + key + " in " + sinkId + ". Message dropped.", e);
+                delegate.onError(e);
+                failFollowers(e);
+                return;
+            }
+            // each listener gets its own copy of the response, as a message can only be read once
+            HttpResponseCache.CachedResponse response = new HttpResponseCache.CachedResponse(
+                    httpMessage.getNettyHttpResponse().status().code(), httpMessage.getHeaders(), body, 0);
+            delegate.onMessage(response.toHttpCarbonMessage());
+            for (HttpConnectorListener follower : followers) {
+                follower.onMessage(response.toHttpCarbonMessage());
+            }
+        }
+
+        private void failFollowers(Throwable throwable) {
+            for (HttpConnectorListener follower : followers) {
+                follower.onError(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.apache.log4j.Logger;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code HttpResponseCache} caches the responses of the GET requests of a http-request sink in memory, so that
+ * repeated requests are answered without a round trip.
+ * A response is cached under its url and request headers, for as long as its Cache-Control max-age allows, or for the
+ * ttl of the sink when one is given. Responses with Cache-Control no-store or private are not cached, as the cache is
+ * shared by all the events of the sink. The authorization header is part of the key, hence a response is only served
+ * to the requests with the same credentials. A response which is no longer fresh is revalidated with an If-None-Match
+ * request if it has an ETag, and served from the cache again when the endpoint responds with 304. The cache is bounded
+ * by its number of entries and the total size of their bodies, and evicts the least recently used entries first.
+ */
+public class HttpResponseCache {
+    private static final Logger log = Logger.getLogger(HttpResponseCache.class);
+    private static final String MAX_AGE = "max-age=";
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttl;
+    private final Executor executor;
+    private final String sinkId;
+    private final LinkedHashMap<String, CachedResponse> cachedResponses = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Creates the response cache of a sink.
+     *
+     * @param maxEntries the maximum number of cached responses.
+     * @param maxBytes   the maximum total size of the cached response bodies in bytes.
+     * @param ttl        the time in milliseconds a response is fresh for, overriding its Cache-Control max-age, or
+     *                   -1 to use the max-age.
+     * @param executor   the executor which reads the bodies of the responses to cache.
+     * @param sinkId     the sink.
+     */
+    public HttpResponseCache(int maxEntries, long maxBytes, long ttl, Executor executor, String sinkId) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.executor = executor;
+        this.sinkId = sinkId;
+    }
+
+    /**
+     * Returns the cached response of a request, which may no longer be fresh.
+     *
+     * @param key the key of the request, as returned by {@link HttpSinkUtil#getRequestKey}.
+     * @return the cached response, or null if none.
+     */
+    public synchronized CachedResponse get(String key) {
+        return cachedResponses.get(key);
+    }
+
+    /**
+     * Creates a listener which caches the response of a request before passing it to the given listener. A response
+     * which is cached is read in full off the transport thread and passed on from the cache.
+     *
+     * @param key            the key of the request.
+     * @param staleResponse  the cached response the request revalidates, or null.
+     * @param delegate       the listener of the response.
+     * @return the response listener.
+     */
+    public HttpConnectorListener createResponseListener(String key, CachedResponse staleResponse,
+                                                        HttpConnectorListener delegate) {
+        return new ResponseListener(key, staleResponse, delegate);
+    }
+
+    private synchronized void put(String key, CachedResponse cachedResponse) {
+        CachedResponse previousResponse = cachedResponses.remove(key);
+        if (previousResponse != null) {
+            bytes -= previousResponse.body.length;
+        }
+        if (cachedResponse.body.length > maxBytes) {
+            return;
+        }
+        cachedResponses.put(key, cachedResponse);
+        bytes += cachedResponse.body.length;
+        Iterator<CachedResponse> leastRecentlyUsed = cachedResponses.values().iterator();
+        while (cachedResponses.size() > maxEntries || bytes > maxBytes) {
+            bytes -= leastRecentlyUsed.next().body.length;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * Returns how long a response is fresh for.
+     *
+     * @return the freshness lifetime in milliseconds, 0 if the response has to be revalidated before it is used, or
+     * -1 if it must not be cached.
+     */
+    private long getFreshnessLifetime(HttpHeaders headers) {
+        String cacheControl = headers.get(HttpHeaderNames.CACHE_CONTROL);
+        if (cacheControl != null) {
+            cacheControl = cacheControl.toLowerCase(Locale.ROOT);
+        }
+        if (cacheControl != null && (cacheControl.contains(HttpHeaderValues.NO_STORE) ||
+                hasDirective(cacheControl, HttpHeaderValues.PRIVATE.toString()))) {
+            return -1;
+        }
+        if (ttl >= 0) {
+            return ttl;
+        }
+        if (cacheControl == null || cacheControl.contains(HttpHeaderValues.NO_CACHE)) {
+            return 0;
+        }
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            if (directive.startsWith(MAX_AGE)) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(directive.substring(MAX_AGE.length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            if (directive.equals(name) || directive.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void remove(String key) {
+        CachedResponse cachedResponse = cachedResponses.remove(key);
+        if (cachedResponse != null) {
+            bytes -= cachedResponse.body.length;
+        }
+    }
+
+    /**
+     * A cached response, whose body and headers are copied out of the transport buffers.
+     */
+    public static class CachedResponse {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final String eTag;
+        private volatile long expiryTime;
+
+        CachedResponse(int statusCode, HttpHeaders headers, byte[] body, long freshnessLifetime) {
+            this.statusCode = statusCode;
+            this.headers = new DefaultHttpHeaders().set(headers);
+            // the body is passed on in full
+            this.headers.remove(HttpHeaderNames.TRANSFER_ENCODING);
+            this.headers.set(HttpHeaderNames.CONTENT_LENGTH, body.length);
+            this.body = body;
+            this.eTag = headers.get(HttpHeaderNames.ETAG);
+            refresh(freshnessLifetime);
+        }
+
+        public boolean isFresh() {
+            return expiryTime - System.nanoTime() > 0;
+        }
+
+        /**
+         * @return the ETag the response is revalidated with, or null if it cannot be revalidated.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Creates a response message holding the cached response.
+         *
+         * @return the response message.
+         */
+        public HttpCarbonMessage toHttpCarbonMessage() {
+            HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.valueOf(statusCode));
+            response.headers().set(headers);
+            HttpCarbonMessage httpMessage = new HttpCarbonMessage(response);
+            httpMessage.addHttpContent(new DefaultLastHttpContent(Unpooled.wrappedBuffer(body)));
+            return httpMessage;
+        }
+
+        private void refresh(long freshnessLifetime) {
+            expiryTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(freshnessLifetime);
+        }
+    }
+
+    private class ResponseListener implements HttpConnectorListener {
+        private final String key;
+        private final CachedResponse staleResponse;
+        private final HttpConnectorListener delegate;
+
+        ResponseListener(String key, CachedResponse staleResponse, HttpConnectorListener delegate) {
+            this.key = key;
+            this.staleResponse = staleResponse;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            int statusCode = httpMessage.getNettyHttpResponse().status().code();
+            HttpHeaders headers = httpMessage.getHeaders();
+            long freshnessLifetime = getFreshnessLifetime(headers);
+            if (statusCode == HttpResponseStatus.NOT_MODIFIED.code() && staleResponse != null) {
+                // the cached response is still valid, unless it may no longer be cached
+                if (freshnessLifetime < 0) {
+                    remove(key);
+                } else {
+                    staleResponse.refresh(freshnessLifetime);
+                    put(key, staleResponse);
+                }
+                delegate.onMessage(staleResponse.toHttpCarbonMessage());
+                return;
+            }
+            if (statusCode != HttpResponseStatus.OK.code() || freshnessLifetime < 0 ||
+                    (freshnessLifetime == 0 && headers.get(HttpHeaderNames.ETAG) == null)) {
+                delegate.onMessage(httpMessage);
+                return;
+            }
+            try {
+                // the body is read off the transport thread, which delivers its content
+                executor.execute(() -> cache(httpMessage, statusCode, headers, freshnessLifetime));
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                delegate.onMessage(httpMessage);
+            }
+        }
+
+        private void cache(HttpCarbonMessage httpMessage, int statusCode, HttpHeaders headers,
+                           long freshnessLifetime) {
+            byte[] body;
+            try {
+                body = HttpSinkUtil.readBody(httpMessage);
+            } catch (IOException e) {
+                log.error("Failed to read the response of " + key + " in " + sinkId + ". Message dropped.", e);
+                delegate.onError(e);
+                return;
+            }
+            CachedResponse cachedResponse = new CachedResponse(statusCode, headers, body, freshnessLifetime);
+            put(key, cachedResponse);
+            delegate.onMessage(cachedResponse.toHttpCarbonMessage());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+}
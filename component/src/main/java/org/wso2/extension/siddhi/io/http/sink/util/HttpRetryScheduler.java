@@ -0,0 +1,296 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code HttpRetryScheduler} re-sends the requests of a http sink which failed with a 5xx or 429 response or a
+ * connection error. Retries are scheduled on a {@link HashedWheelTimer} shared by all sinks, hence the publishing
+ * thread and the transport threads never wait for a back off.
+ * The back off grows exponentially from the initial back off up to the maximum back off, and half of it is
+ * randomized so that the retries of many events are spread over time. A Retry-After header of the response takes
+ * precedence over the computed back off, up to the maximum back off. All retries of the sink draw from a shared
+ * retry budget, which is refilled by a fraction of a token for each request sent, so that retries can never exceed
+ * that fraction of the traffic for long and an unavailable endpoint does not cause a retry storm.
+ */
+public class HttpRetryScheduler {
+    private static final Logger log = Logger.getLogger(HttpRetryScheduler.class);
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("siddhi-io-http-retry", true));
+    private final int maxRetries;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final double budgetCapacity;
+    private final double budgetRatio;
+    private final Executor executor;
+    private final String sinkId;
+    private final Set<PendingRetry> pendingRetries = ConcurrentHashMap.newKeySet();
+    private double budgetBalance;
+    private volatile boolean stopped;
+
+    public HttpRetryScheduler(int maxRetries, long initialBackoff, long maxBackoff, int budgetCapacity,
+                              double budgetRatio, Executor executor, String sinkId) {
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.budgetCapacity = budgetCapacity;
+        this.budgetRatio = budgetRatio;
+        this.executor = executor;
+        this.sinkId = sinkId;
+        this.budgetBalance = budgetCapacity;
+    }
+
+    /**
+     * Records a new request, which refills the retry budget.
+     */
+    public synchronized void onRequest() {
+        budgetBalance = Math.min(budgetCapacity, budgetBalance + budgetRatio);
+    }
+
+    /**
+     * Schedules a retry of a failed request if the retry count and the retry budget allow it.
+     *
+     * @param retryCount       the number of retries already done for the request.
+     * @param retryAfterMillis the delay requested by the Retry-After header of the response, or -1.
+     * @param resend           the task which sends the request again.
+     * @param abandon          the task which completes the request if the scheduler is stopped before the retry.
+     * @return true if the retry is scheduled.
+     */
+    public boolean scheduleRetry(int retryCount, long retryAfterMillis, Runnable resend, Runnable abandon) {
+        if (stopped || retryCount >= maxRetries || !withdrawFromBudget()) {
+            return false;
+        }
+        // a Retry-After header cannot hold the request, and its in flight permit, longer than the maximum back off
+        long delay = retryAfterMillis >= 0 ? Math.min(retryAfterMillis, maxBackoff) : getBackoff(retryCount);
+        PendingRetry retry = new PendingRetry(abandon);
+        pendingRetries.add(retry);
+        retry.timeout = TIMER.newTimeout(timeout -> {
+            if (pendingRetries.remove(retry)) {
+                resend.run();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        if (stopped) {
+            // the retry was scheduled while the scheduler was being stopped
+            retry.abandon();
+        }
+        return true;
+    }
+
+    /**
+     * Wraps the response listener of a request so that retryable failures are retried instead of being delivered.
+     *
+     * @param delegate     the listener which receives the final response or error, can be null.
+     * @param retryCount   the number of retries already done for the request.
+     * @param publisherURL the url the request is sent to.
+     * @param resend       the task which sends the request again.
+     * @return the retrying response listener.
+     */
+    public HttpConnectorListener createResponseListener(HttpConnectorListener delegate, int retryCount,
+                                                        String publisherURL, Runnable resend) {
+        return new RetryingResponseListener(delegate, retryCount, publisherURL, resend);
+    }
+
+    /**
+     * Stops the scheduler. The retries which are not sent yet are cancelled, and their requests are completed with
+     * an error so that their in flight permits and bodies are released.
+     */
+    public void stop() {
+        stopped = true;
+        for (PendingRetry retry : pendingRetries) {
+            retry.abandon();
+        }
+    }
+
+    /**
+     * Checks whether a request failed with the given status code can be retried.
+     *
+     * @param statusCode the http status code of the response.
+     * @return true for 5xx and 429 status codes.
+     */
+    public static boolean isRetryable(int statusCode) {
+        return statusCode >= HttpConstants.INTERNAL_SERVER_FAIL_CODE ||
+                statusCode == HttpConstants.TOO_MANY_REQUESTS_CODE;
+    }
+
+    /**
+     * Converts the value of a Retry-After header, given either in seconds or as a http date, into milliseconds.
+     *
+     * @param retryAfter the header value, can be null.
+     * @return the delay in milliseconds or -1 if the value is missing or invalid.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryTime = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, retryTime.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ex) {
+                log.debug("Ignoring invalid Retry-After header value '" + retryAfter + "'.");
+                return -1;
+            }
+        }
+    }
+
+    private long getBackoff(int retryCount) {
+        long backoff = initialBackoff << Math.min(retryCount, 30);
+        if (backoff <= 0 || backoff > maxBackoff) {
+            backoff = maxBackoff;
+        }
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    private synchronized boolean withdrawFromBudget() {
+        if (budgetBalance < 1) {
+            return false;
+        }
+        budgetBalance--;
+        return true;
+    }
+
+    /**
+     * A retry which waits for its back off on the timer.
+     */
+    private class PendingRetry {
+        private final Runnable abandon;
+        private volatile Timeout timeout;
+
+        PendingRetry(Runnable abandon) {
+            this.abandon = abandon;
+        }
+
+        void abandon() {
+            if (pendingRetries.remove(this)) {
+                Timeout scheduledTimeout = timeout;
+                if (scheduledTimeout != null) {
+                    scheduledTimeout.cancel();
+                }
+                abandon.run();
+            }
+        }
+    }
+
+    private class RetryingResponseListener implements HttpConnectorListener {
+        private final HttpConnectorListener delegate;
+        private final int retryCount;
+        private final String publisherURL;
+        private final Runnable resend;
+
+        RetryingResponseListener(HttpConnectorListener delegate, int retryCount, String publisherURL,
+                                 Runnable resend) {
+            this.delegate = delegate;
+            this.retryCount = retryCount;
+            this.publisherURL = publisherURL;
+            this.resend = resend;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            int statusCode = httpMessage.getNettyHttpResponse().status().code();
+            if (isRetryable(statusCode)) {
+                long retryAfter = parseRetryAfter(httpMessage.getHeader(HttpConstants.RETRY_AFTER_HEADER));
+                if (scheduleRetry(retryCount, retryAfter, resend, this::abandon)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Retrying the request of " + sinkId + " to " + publisherURL + " which failed " +
+                                "with response code " + statusCode + ", retry " + (retryCount + 1) + ".");
+                    }
+                    discard(httpMessage);
+                    return;
+                }
+                if (delegate == null) {
+                    log.error("Error at sending the request of " + sinkId + " to " + publisherURL + "', with " +
+                            "response code: " + statusCode + " after " + retryCount + " retries. Message dropped.");
+                }
+            }
+            if (delegate != null) {
+                delegate.onMessage(httpMessage);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (scheduleRetry(retryCount, -1, resend, this::abandon)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Retrying the request of " + sinkId + " to " + publisherURL + " which failed due " +
+                            "to " + throwable.getMessage() + ", retry " + (retryCount + 1) + ".");
+                }
+                return;
+            }
+            if (delegate != null) {
+                delegate.onError(throwable);
+            } else {
+                log.error("Error at sending the request of " + sinkId + " to " + publisherURL + " after " +
+                        retryCount + " retries. Message dropped.", throwable);
+            }
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+
+        private void abandon() {
+            HttpSinkAdaptorRuntimeException exception = new HttpSinkAdaptorRuntimeException("Retry " +
+                    (retryCount + 1) + " of the request of " + sinkId + " to " + publisherURL + " is cancelled as " +
+                    "the sink is stopped.");
+            if (delegate != null) {
+                delegate.onError(exception);
+            } else {
+                log.error(exception.getMessage() + " Message dropped.");
+            }
+        }
+
+        /**
+         * Releases the body of a response which is retried instead of being delivered.
+         */
+        private void discard(HttpCarbonMessage httpMessage) {
+            try {
+                // the body is read off the transport thread, which delivers its content
+                executor.execute(() -> HttpSinkUtil.discardBody(httpMessage));
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                log.debug("Could not release the response body of a retried request of " + sinkId + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import org.apache.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@code HttpScatterGather} sends the request of an event to a list of urls concurrently, and gathers their responses
+ * within a deadline shared by all of them, so that the event takes as long as the slowest url rather than the sum of
+ * all of them.
+ * The responses are either passed on as they arrive, each tagged with its url in the
+ * {@link HttpConstants#SCATTER_URL_PROPERTY} property, or aggregated into a single response once all urls have
+ * responded or the deadline is reached. The aggregated response holds a json array with the url, the status code and
+ * the body or the error of each url, and its status code is the highest of them, where an error counts as 502 and a
+ * url which did not respond by the deadline counts as 504.
+ */
+public class HttpScatterGather {
+    private static final Logger log = Logger.getLogger(HttpScatterGather.class);
+    private static final int PENDING = 0;
+    private static final int RESPONDED = 1;
+    private static final int FAILED = 2;
+    private static final int TIMED_OUT = 3;
+    private final List<Map<String, String>> urls;
+    private final boolean aggregate;
+    private final long timeout;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final String sinkId;
+
+    /**
+     * Creates the scatter gather of a sink.
+     *
+     * @param urls      the url properties of the urls each request is sent to.
+     * @param aggregate whether to aggregate the responses into a single response.
+     * @param timeout   the deadline of the responses in milliseconds.
+     * @param scheduler the scheduler of the deadlines.
+     * @param executor  the executor which reads the response bodies to aggregate them.
+     * @param sinkId    the sink.
+     */
+    public HttpScatterGather(List<Map<String, String>> urls, boolean aggregate, long timeout,
+                             ScheduledExecutorService scheduler, Executor executor, String sinkId) {
+        this.urls = urls;
+        this.aggregate = aggregate;
+        this.timeout = timeout;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.sinkId = sinkId;
+    }
+
+    /**
+     * Sends a request to all urls.
+     *
+     * @param sender     sends the request to a url.
+     * @param delivery   the listener of the responses, which gets either each response, and an error for each url
+     *                   which failed or did not respond by the deadline, or the aggregated response.
+     * @param completion run once all urls have responded or the deadline is reached, after the responses are passed
+     *                   to the delivery listener.
+     */
+    public void scatter(Sender sender, HttpConnectorListener delivery, Runnable completion) {
+        Gather gather = new Gather(delivery, completion);
+        gather.deadline = scheduler.schedule(gather::expire, timeout, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < urls.size(); i++) {
+            CallListener listener = new CallListener(gather, i);
+            try {
+                sender.send(urls.get(i), listener);
+            } catch (ConnectionUnavailableException | RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Sends a request to a url.
+     */
+    @FunctionalInterface
+    public interface Sender {
+
+        /**
+         * Sends the request.
+         *
+         * @param urlProperties the url properties of the url.
+         * @param listener      the listener of the response.
+         * @throws ConnectionUnavailableException if the connection is unavailable.
+         */
+        void send(Map<String, String> urlProperties, HttpConnectorListener listener)
+                throws ConnectionUnavailableException;
+    }
+
+    /**
+     * The responses of the request of an event. The state of each url is set once, either by its response or by the
+     * deadline, and the request is completed by the last one.
+     */
+    private class Gather {
+        private final HttpConnectorListener delivery;
+        private final Runnable completion;
+        private final AtomicIntegerArray states = new AtomicIntegerArray(urls.size());
+        private final HttpCarbonMessage[] responses = new HttpCarbonMessage[urls.size()];
+        private final Throwable[] errors = new Throwable[urls.size()];
+        private final AtomicInteger pending = new AtomicInteger(urls.size());
+        private volatile ScheduledFuture<?> deadline;
+
+        Gather(HttpConnectorListener delivery, Runnable completion) {
+            this.delivery = delivery;
+            this.completion = completion;
+        }
+
+        void onResponse(int index, HttpCarbonMessage response) {
+            responses[index] = response;
+            if (!states.compareAndSet(index, PENDING, RESPONDED)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Dropping the response of " + urls.get(index).get(Constants.REQUEST_URL) + " in " +
+                            sinkId + " which arrived after the deadline.");
+                }
+                discard(response);
+                return;
+            }
+            if (!aggregate) {
+                response.setProperty(HttpConstants.SCATTER_URL_PROPERTY, urls.get(index).get(Constants.REQUEST_URL));
+                delivery.onMessage(response);
+            }
+            countDown();
+        }
+
+        void onError(int index, Throwable throwable) {
+            errors[index] = throwable;
+            if (states.compareAndSet(index, PENDING, FAILED)) {
+                if (!aggregate) {
+                    delivery.onError(throwable);
+                }
+                countDown();
+            }
+        }
+
+        void expire() {
+            for (int i = 0; i < urls.size(); i++) {
+                if (states.compareAndSet(i, PENDING, TIMED_OUT)) {
+                    if (!aggregate) {
+                        delivery.onError(new TimeoutException("No response from " +
+                                urls.get(i).get(Constants.REQUEST_URL) + " within " + timeout + " ms in " + sinkId));
+                    }
+                    countDown();
+                }
+            }
+        }
+
+        private void countDown() {
+            if (pending.decrementAndGet() > 0) {
+                return;
+            }
+            ScheduledFuture<?> scheduledDeadline = deadline;
+            if (scheduledDeadline != null) {
+                scheduledDeadline.cancel(false);
+            }
+            if (!aggregate) {
+                completion.run();
+                return;
+            }
+            try {
+                // the response bodies are read off the transport threads, which deliver their content
+                executor.execute(this::deliverAggregate);
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down
+                log.error("Failed to aggregate the responses of " + sinkId + ". Message dropped.", e);
+                completion.run();
+            }
+        }
+
+        /**
+         * Releases the body of a response which is not passed on, so that its buffers are returned to the pool and
+         * its connection can be reused. The body is read off the transport threads, which deliver its content.
+         */
+        private void discard(HttpCarbonMessage response) {
+            try {
+                executor.execute(() -> HttpSinkUtil.discardBody(response));
+            } catch (RejectedExecutionException e) {
+                // the siddhi app is shutting down, and its connections are closed
+                log.debug("Failed to discard the late response of " + sinkId + ".", e);
+            }
+        }
+
+        private void deliverAggregate() {
+            try {
+                JSONArray results = new JSONArray();
+                int statusCode = HttpConstants.SUCCESS_CODE;
+                for (int i = 0; i < urls.size(); i++) {
+                    JSONObject result = new JSONObject();
+                    result.put(HttpConstants.SCATTER_RESULT_URL, urls.get(i).get(Constants.REQUEST_URL));
+                    int state = states.get(i);
+                    int urlStatusCode;
+                    if (state == RESPONDED) {
+                        urlStatusCode = responses[i].getNettyHttpResponse().status().code();
+                        result.put(HttpConstants.SCATTER_RESULT_BODY, readBody(responses[i]));
+                    } else if (state == FAILED) {
+                        urlStatusCode = HttpResponseStatus.BAD_GATEWAY.code();
+                        result.put(HttpConstants.SCATTER_RESULT_ERROR, String.valueOf(errors[i]));
+                    } else {
+                        urlStatusCode = HttpResponseStatus.GATEWAY_TIMEOUT.code();
+                        result.put(HttpConstants.SCATTER_RESULT_ERROR, "No response within " + timeout + " ms.");
+                    }
+                    result.put(HttpConstants.SCATTER_RESULT_STATUS_CODE, urlStatusCode);
+                    statusCode = Math.max(statusCode, urlStatusCode);
+                    results.put(result);
+                }
+                HttpCarbonMessage response = new HttpCarbonMessage(new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+                        HttpResponseStatus.valueOf(statusCode)));
+                response.setHeader(HttpConstants.HTTP_CONTENT_TYPE, HttpConstants.APPLICATION_JSON);
+                response.addHttpContent(new DefaultLastHttpContent(Unpooled.wrappedBuffer(
+                        results.toString().getBytes(StandardCharsets.UTF_8))));
+                delivery.onMessage(response);
+            } catch (RuntimeException e) {
+                log.error("Failed to aggregate the responses of " + sinkId + ". Message dropped.", e);
+            } finally {
+                completion.run();
+            }
+        }
+
+        private String readBody(HttpCarbonMessage response) {
+            try {
+                return new String(HttpSinkUtil.readBody(response), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                log.error("Failed to read the response body in " + sinkId + ".", e);
+                return HttpConstants.EMPTY_STRING;
+            }
+        }
+    }
+
+    private static class CallListener implements HttpConnectorListener {
+        private final Gather gather;
+        private final int index;
+
+        CallListener(Gather gather, int index) {
+            this.gather = gather;
+            this.index = index;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            gather.onResponse(index, httpMessage);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            gather.onError(index, throwable);
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+}
@@ -18,6 +18,9 @@
  */
 package org.wso2.extension.siddhi.io.http.sink.util;
 
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.util.config.ConfigReader;
 import org.apache.log4j.Logger;
@@ -27,10 +30,19 @@ import org.wso2.extension.siddhi.io.http.util.HttpConstants;
 import org.wso2.extension.siddhi.io.http.util.TrpPropertyTypes;
 import org.wso2.transport.http.netty.contract.Constants;
 import org.wso2.transport.http.netty.contract.config.SenderConfiguration;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+import org.wso2.transport.http.netty.message.HttpMessageDataStreamer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -108,17 +120,20 @@ public class HttpSinkUtil {
             headers = headers.trim();
             headers = headers.substring(1, headers.length() - 1);
             List<Header> headersList = new ArrayList<>();
-            if (!HttpConstants.EMPTY_STRING.equals(headers)) {
-                String[] spam = headers.split(HttpConstants.HEADER_SPLITTER_REGEX);
-                for (String headerValue : spam) {
-                    String[] header = headerValue.split(HttpConstants.HEADER_NAME_VALUE_SPLITTER, 2);
-                    if (header.length > 1) {
-                        headersList.add(new Header(header[0], header[1]));
-                    } else {
-                        throw new HttpSinkAdaptorRuntimeException(
-                                "Invalid header format. Please include as 'key1:value1','key2:value2',..");
-                    }
+            int start = 0;
+            while (start < headers.length()) {
+                int end = headers.indexOf(HttpConstants.HEADER_SPLITTER_REGEX, start);
+                if (end < 0) {
+                    end = headers.length();
                 }
+                int separator = headers.indexOf(HttpConstants.HEADER_NAME_VALUE_SPLITTER, start);
+                if (separator < 0 || separator >= end) {
+                    throw new HttpSinkAdaptorRuntimeException(
+                            "Invalid header format. Please include as 'key1:value1','key2:value2',..");
+                }
+                headersList.add(new Header(headers.substring(start, separator), headers.substring(separator + 1,
+                        end)));
+                start = end + HttpConstants.HEADER_SPLITTER_REGEX.length();
             }
             return headersList;
         } else {
@@ -241,6 +256,93 @@ public class HttpSinkUtil {
         }
     }
 
+    /**
+     * Returns the key which identifies a request, made of its url and its headers. The authorization header is part of
+     * the key as a digest, so that requests with different credentials have different keys.
+     *
+     * @param urlProperties the url properties of the request.
+     * @param headersList   the headers of the request, can be null.
+     * @param credentials   the client credentials the access token in the authorization header is obtained with, which
+     *                      identify the request instead of the access token as it changes when it is renewed, or null
+     *                      if the authorization header is not managed by the sink.
+     * @return the key of the request.
+     */
+    public static String getRequestKey(Map<String, String> urlProperties, List<Header> headersList,
+                                       String credentials) {
+        StringBuilder key = new StringBuilder(urlProperties.get(Constants.REQUEST_URL));
+        if (credentials != null) {
+            key.append('\n').append(HttpHeaderNames.AUTHORIZATION).append(':').append(digest(credentials));
+        }
+        if (headersList != null) {
+            for (Header header : headersList) {
+                if (!HttpHeaderNames.AUTHORIZATION.contentEqualsIgnoreCase(header.getName())) {
+                    key.append('\n').append(header.getName()).append(':').append(header.getValue());
+                } else if (credentials == null) {
+                    key.append('\n').append(header.getName()).append(':').append(digest(header.getValue()));
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the SHA-256 digest of a secret, so that it can be part of a key which is kept in memory.
+     *
+     * @param value the secret, which may be null.
+     * @return the Base64 encoded digest.
+     */
+    public static String digest(String value) {
+        if (value == null) {
+            return HttpConstants.EMPTY_STRING;
+        }
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance(HttpConstants.SHA_256)
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new HttpSinkAdaptorRuntimeException("The " + HttpConstants.SHA_256 + " algorithm is not " +
+                    "available.", e);
+        }
+    }
+
+    /**
+     * Consumes and releases the body of a response which is not passed on, so that its buffers are returned to the
+     * pool and the connection can be reused. Blocks until the whole body has arrived, hence must not be called from
+     * the transport threads which deliver it.
+     *
+     * @param httpMessage the response.
+     */
+    public static void discardBody(HttpCarbonMessage httpMessage) {
+        HttpContent httpContent;
+        do {
+            httpContent = httpMessage.getHttpContent();
+            if (httpContent == null) {
+                // the connection timed out before the rest of the body arrived
+                return;
+            }
+            httpContent.release();
+        } while (!(httpContent instanceof LastHttpContent));
+    }
+
+    /**
+     * Reads the body of a response in full. Blocks until the whole body has arrived, hence must not be called from
+     * the transport threads which deliver it.
+     *
+     * @param httpMessage the response.
+     * @return the body of the response.
+     * @throws IOException if the body cannot be read.
+     */
+    public static byte[] readBody(HttpCarbonMessage httpMessage) throws IOException {
+        try (InputStream inputStream = new HttpMessageDataStreamer(httpMessage).getInputStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return body.toByteArray();
+        }
+    }
+
     /**
      * Get port from listenerUrl.
      *
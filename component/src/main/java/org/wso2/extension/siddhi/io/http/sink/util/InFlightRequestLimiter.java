@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import org.wso2.extension.siddhi.io.http.sink.exception.HttpSinkAdaptorRuntimeException;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@code InFlightRequestLimiter} bounds the number of requests and the number of request body bytes a http sink has
+ * sent without receiving a response yet. A permit is acquired before a request is sent and it is released once the
+ * response or an error is received.
+ * When the window is full the publishing thread is blocked, the event is dropped or a
+ * {@link ConnectionUnavailableException} is thrown, depending on the configured policy.
+ */
+public class InFlightRequestLimiter {
+    private final int maxRequests;
+    private final long maxBytes;
+    private final String policy;
+    private final String sinkId;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlightRequests;
+    private long inFlightBytes;
+
+    public InFlightRequestLimiter(int maxRequests, long maxBytes, String policy, String sinkId) {
+        this.maxRequests = maxRequests;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.sinkId = sinkId;
+    }
+
+    /**
+     * Acquires a permit for a request. A request is always admitted when there are no requests in flight, even if
+     * its body is larger than the byte limit.
+     *
+     * @param requestBytes the size of the request body.
+     * @throws ConnectionUnavailableException when the window is full and the policy is connection.unavailable.
+     */
+    public void acquire(long requestBytes) throws ConnectionUnavailableException {
+        lock.lock();
+        try {
+            while (!hasCapacity(requestBytes)) {
+                if (HttpConstants.IN_FLIGHT_LIMIT_POLICY_FAIL.equals(policy)) {
+                    throw new HttpSinkAdaptorRuntimeException("In flight request limit of " + sinkId +
+                            " reached with " + inFlightRequests + " requests and " + inFlightBytes +
+                            " bytes. Message dropped.");
+                } else if (HttpConstants.IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE.equals(policy)) {
+                    throw new ConnectionUnavailableException("In flight request limit of " + sinkId +
+                            " reached with " + inFlightRequests + " requests and " + inFlightBytes + " bytes.");
+                }
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new HttpSinkAdaptorRuntimeException("Interrupted while waiting for the in flight " +
+                            "requests of " + sinkId + " to complete. Message dropped.", e);
+                }
+            }
+            inFlightRequests++;
+            inFlightBytes += requestBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires a permit for a request only if the window has capacity for it, regardless of the policy.
+     *
+     * @param requestBytes the size of the request body.
+     * @return true if the permit is acquired.
+     */
+    public boolean tryAcquire(long requestBytes) {
+        lock.lock();
+        try {
+            if (!hasCapacity(requestBytes)) {
+                return false;
+            }
+            inFlightRequests++;
+            inFlightBytes += requestBytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permit of a completed request.
+     *
+     * @param requestBytes the size of the request body.
+     */
+    public void release(long requestBytes) {
+        lock.lock();
+        try {
+            inFlightRequests--;
+            inFlightBytes -= requestBytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasCapacity(long requestBytes) {
+        if (inFlightRequests == 0) {
+            return true;
+        }
+        return (maxRequests <= 0 || inFlightRequests < maxRequests) &&
+                (maxBytes <= 0 || inFlightBytes + requestBytes <= maxBytes);
+    }
+}
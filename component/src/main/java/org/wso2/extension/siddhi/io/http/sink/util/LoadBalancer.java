@@ -0,0 +1,286 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.transport.http.netty.contract.Constants;
+import org.wso2.transport.http.netty.contract.HttpClientConnector;
+import org.wso2.transport.http.netty.contract.HttpConnectorListener;
+import org.wso2.transport.http.netty.message.Http2PushPromise;
+import org.wso2.transport.http.netty.message.HttpCarbonMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code LoadBalancer} spreads the requests of a http sink over a list of endpoints, each with its own client
+ * connector and hence its own connection pool.
+ * The endpoint of a request is selected in round robin order, by the least number of outstanding requests, by the
+ * least exponentially weighted moving average of the response latency weighted by the outstanding requests, or by
+ * consistent hashing of a key so that requests with the same key go to the same endpoint.
+ * An endpoint which fails a number of consecutive requests is ejected and not selected for the ejection duration,
+ * unless all endpoints are ejected.
+ */
+public class LoadBalancer {
+    private static final Logger log = Logger.getLogger(LoadBalancer.class);
+    private static final int VIRTUAL_NODES = 160;
+    private static final double LATENCY_EWMA_WEIGHT = 0.2;
+    private final List<Endpoint> endpoints;
+    private final Map<String, Endpoint> endpointsByURL = new HashMap<>();
+    private final TreeMap<Integer, Endpoint> hashRing = new TreeMap<>();
+    private final String strategy;
+    private final int ejectionFailures;
+    private final long ejectionDuration;
+    private final String sinkId;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    public LoadBalancer(List<Endpoint> endpoints, String strategy, int ejectionFailures, long ejectionDuration,
+                        String sinkId) {
+        this.endpoints = endpoints;
+        this.strategy = strategy;
+        this.ejectionFailures = ejectionFailures;
+        this.ejectionDuration = ejectionDuration;
+        this.sinkId = sinkId;
+        for (Endpoint endpoint : endpoints) {
+            endpointsByURL.put(endpoint.getRequestURL(), endpoint);
+            if (HttpConstants.LOAD_BALANCING_STRATEGY_CONSISTENT_HASH.equals(strategy)) {
+                for (int i = 0; i < VIRTUAL_NODES; i++) {
+                    hashRing.put(hash(endpoint.getRequestURL() + "#" + i), endpoint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the endpoint of a request.
+     *
+     * @param hashKey the key of the request for consistent hashing, requests without a key are sent in round robin
+     *                order.
+     * @return the endpoint.
+     */
+    public Endpoint select(Object hashKey) {
+        long currentTime = System.currentTimeMillis();
+        switch (strategy) {
+            case HttpConstants.LOAD_BALANCING_STRATEGY_LEAST_OUTSTANDING:
+                return selectLeastLoaded(false, currentTime);
+            case HttpConstants.LOAD_BALANCING_STRATEGY_EWMA_LATENCY:
+                return selectLeastLoaded(true, currentTime);
+            case HttpConstants.LOAD_BALANCING_STRATEGY_CONSISTENT_HASH:
+                if (hashKey != null) {
+                    return selectByHash(hashKey, currentTime);
+                }
+                return selectRoundRobin(currentTime);
+            default:
+                return selectRoundRobin(currentTime);
+        }
+    }
+
+    /**
+     * Returns the endpoint of the given url.
+     *
+     * @param requestURL the url of the endpoint.
+     * @return the endpoint, or null if the url is not one of the endpoints.
+     */
+    public Endpoint getEndpoint(String requestURL) {
+        return endpointsByURL.get(requestURL);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Creates a listener which tracks the outstanding requests, latency and failures of the endpoint before passing
+     * the response to the given listener.
+     *
+     * @param endpoint the endpoint the request is sent to.
+     * @param delegate the listener of the response, can be null.
+     * @return the response listener.
+     */
+    public HttpConnectorListener createResponseListener(Endpoint endpoint, HttpConnectorListener delegate) {
+        endpoint.outstandingRequests.incrementAndGet();
+        return new ResponseListener(endpoint, delegate, System.currentTimeMillis());
+    }
+
+    private Endpoint selectRoundRobin(long currentTime) {
+        int start = Math.floorMod(nextIndex.getAndIncrement(), endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+            if (endpoint.isAvailable(currentTime)) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(start);
+    }
+
+    private Endpoint selectLeastLoaded(boolean latencyWeighted, long currentTime) {
+        // starting from a rotating index spreads the requests over endpoints with the same load
+        int start = Math.floorMod(nextIndex.getAndIncrement(), endpoints.size());
+        Endpoint selected = null;
+        double minLoad = Double.MAX_VALUE;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+            if (!endpoint.isAvailable(currentTime)) {
+                continue;
+            }
+            double load = latencyWeighted ?
+                    endpoint.getLatencyEwma() * (endpoint.getOutstandingRequests() + 1) :
+                    endpoint.getOutstandingRequests();
+            if (load < minLoad) {
+                minLoad = load;
+                selected = endpoint;
+            }
+        }
+        return selected == null ? endpoints.get(start) : selected;
+    }
+
+    private Endpoint selectByHash(Object hashKey, long currentTime) {
+        int hash = hash(hashKey.toString());
+        Map.Entry<Integer, Endpoint> entry = hashRing.ceilingEntry(hash);
+        Endpoint owner = entry == null ? hashRing.firstEntry().getValue() : entry.getValue();
+        if (owner.isAvailable(currentTime)) {
+            return owner;
+        }
+        // the keys of an ejected endpoint move to the next available endpoints on the ring
+        for (Endpoint endpoint : hashRing.tailMap(hash, false).values()) {
+            if (endpoint.isAvailable(currentTime)) {
+                return endpoint;
+            }
+        }
+        for (Endpoint endpoint : hashRing.headMap(hash, true).values()) {
+            if (endpoint.isAvailable(currentTime)) {
+                return endpoint;
+            }
+        }
+        return owner;
+    }
+
+    private void onResult(Endpoint endpoint, boolean failed, long latency) {
+        endpoint.outstandingRequests.decrementAndGet();
+        synchronized (endpoint) {
+            endpoint.latencyEwma = endpoint.latencyEwma == 0 ? latency :
+                    LATENCY_EWMA_WEIGHT * latency + (1 - LATENCY_EWMA_WEIGHT) * endpoint.latencyEwma;
+            if (!failed) {
+                endpoint.consecutiveFailures = 0;
+            } else if (ejectionFailures > 0 && ++endpoint.consecutiveFailures >= ejectionFailures) {
+                endpoint.consecutiveFailures = 0;
+                endpoint.ejectedUntil = System.currentTimeMillis() + ejectionDuration;
+                log.warn("Endpoint " + endpoint.getRequestURL() + " of " + sinkId + " is ejected for " +
+                        ejectionDuration + " milliseconds after " + ejectionFailures + " consecutive failures.");
+            }
+        }
+    }
+
+    /**
+     * Murmur3 finalizer applied to the FNV-1a hash of the key, so that the virtual nodes are spread evenly.
+     */
+    private static int hash(String key) {
+        int hash = 0x811c9dc5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * An endpoint of the load balancer.
+     */
+    public static class Endpoint {
+        private final Map<String, String> urlProperties;
+        private final HttpClientConnector clientConnector;
+        private final AtomicInteger outstandingRequests = new AtomicInteger();
+        private double latencyEwma;
+        private int consecutiveFailures;
+        private volatile long ejectedUntil;
+
+        public Endpoint(Map<String, String> urlProperties, HttpClientConnector clientConnector) {
+            this.urlProperties = urlProperties;
+            this.clientConnector = clientConnector;
+        }
+
+        public Map<String, String> getURLProperties() {
+            return urlProperties;
+        }
+
+        public HttpClientConnector getClientConnector() {
+            return clientConnector;
+        }
+
+        public String getRequestURL() {
+            return urlProperties.get(Constants.REQUEST_URL);
+        }
+
+        public int getOutstandingRequests() {
+            return outstandingRequests.get();
+        }
+
+        public synchronized double getLatencyEwma() {
+            return latencyEwma;
+        }
+
+        boolean isAvailable(long currentTime) {
+            return currentTime >= ejectedUntil;
+        }
+    }
+
+    private class ResponseListener implements HttpConnectorListener {
+        private final Endpoint endpoint;
+        private final HttpConnectorListener delegate;
+        private final long startTime;
+
+        ResponseListener(Endpoint endpoint, HttpConnectorListener delegate, long startTime) {
+            this.endpoint = endpoint;
+            this.delegate = delegate;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onMessage(HttpCarbonMessage httpMessage) {
+            onResult(endpoint, httpMessage.getNettyHttpResponse().status().code() >=
+                    HttpConstants.INTERNAL_SERVER_FAIL_CODE, System.currentTimeMillis() - startTime);
+            if (delegate != null) {
+                delegate.onMessage(httpMessage);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onResult(endpoint, true, System.currentTimeMillis() - startTime);
+            if (delegate != null) {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onPushPromise(Http2PushPromise pushPromise) {
+
+        }
+    }
+}
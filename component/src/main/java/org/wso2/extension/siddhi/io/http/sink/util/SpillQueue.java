@@ -0,0 +1,285 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+
+/**
+ * {@code SpillQueue} is a persistent FIFO queue of byte records, stored as an append only log split into fixed size,
+ * memory mapped segment files.
+ * Each record is written as its length followed by its bytes, and the length is written last so that a partially
+ * written record is never read. A segment which has no room for the next record is closed with an end marker and a
+ * new segment is started. Segments are deleted once all of their records are removed, and the number of segments is
+ * bounded so that the queue never uses more than the given disk space.
+ * The read position is kept in a memory mapped checkpoint file, hence the queue continues from where it stopped
+ * when it is opened again. The directory is locked while the queue is open, so that a queue is never opened by two
+ * sinks at the same time.
+ */
+public class SpillQueue {
+    private static final Logger log = Logger.getLogger(SpillQueue.class);
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+    private static final int CHECKPOINT_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSegments;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final MappedByteBuffer checkpoint;
+    private final FileChannel lockChannel;
+    private long writeSegmentId;
+    private int writePosition;
+    private long readSegmentId;
+    private int readPosition;
+
+    public SpillQueue(Path directory, int segmentSize, long maxSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSize / segmentSize);
+        Files.createDirectories(directory);
+        lockChannel = lock(directory);
+        try {
+            try (DirectoryStream<Path> segmentFiles = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path segmentFile : segmentFiles) {
+                    String fileName = segmentFile.getFileName().toString();
+                    long segmentId = Long.parseLong(fileName.substring(0,
+                            fileName.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(segmentId, map(segmentFile, segmentSize));
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.put(0L, map(getSegmentPath(0), segmentSize));
+            }
+            checkpoint = map(directory.resolve(CHECKPOINT_FILE), CHECKPOINT_SIZE);
+            seek(checkpoint.getLong(0), checkpoint.getInt(Long.BYTES));
+            recoverWritePosition();
+        } catch (IOException | RuntimeException e) {
+            unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record to the end of the queue.
+     *
+     * @param record the record.
+     * @return false if the queue is full or the record is larger than a segment.
+     * @throws IOException if a new segment could not be created.
+     */
+    public synchronized boolean offer(byte[] record) throws IOException {
+        int recordSize = Integer.BYTES + record.length;
+        if (recordSize > segmentSize) {
+            return false;
+        }
+        if (writePosition + recordSize > segmentSize) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            MappedByteBuffer writeSegment = segments.get(writeSegmentId);
+            if (writePosition + Integer.BYTES <= segmentSize) {
+                writeSegment.putInt(writePosition, END_OF_SEGMENT);
+            }
+            writeSegmentId++;
+            writePosition = 0;
+            segments.put(writeSegmentId, map(getSegmentPath(writeSegmentId), segmentSize));
+        }
+        MappedByteBuffer writeSegment = segments.get(writeSegmentId);
+        writeSegment.position(writePosition + Integer.BYTES);
+        writeSegment.put(record);
+        writeSegment.putInt(writePosition, record.length);
+        writePosition += recordSize;
+        return true;
+    }
+
+    /**
+     * Returns the record at the head of the queue without removing it.
+     *
+     * @return the record or null if the queue is empty.
+     */
+    public synchronized byte[] peek() {
+        if (!moveToNextRecord()) {
+            return null;
+        }
+        MappedByteBuffer readSegment = segments.get(readSegmentId);
+        byte[] record = new byte[readSegment.getInt(readPosition)];
+        readSegment.position(readPosition + Integer.BYTES);
+        readSegment.get(record);
+        return record;
+    }
+
+    /**
+     * Removes the record at the head of the queue.
+     */
+    public synchronized void remove() {
+        if (!moveToNextRecord()) {
+            return;
+        }
+        readPosition += Integer.BYTES + segments.get(readSegmentId).getInt(readPosition);
+        updateCheckpoint();
+    }
+
+    public synchronized boolean isEmpty() {
+        return !moveToNextRecord();
+    }
+
+    public synchronized long getReadSegmentId() {
+        return readSegmentId;
+    }
+
+    public synchronized int getReadPosition() {
+        return readPosition;
+    }
+
+    /**
+     * Moves the head of the queue to the given position. Positions of segments which no longer exist are moved to
+     * the oldest available record.
+     *
+     * @param segmentId the segment of the head record.
+     * @param position  the position of the head record in the segment.
+     */
+    public synchronized void seek(long segmentId, int position) {
+        if (!segments.containsKey(segmentId)) {
+            segmentId = segmentId < segments.firstKey() ? segments.firstKey() : segments.lastKey();
+            position = 0;
+        }
+        readSegmentId = segmentId;
+        readPosition = position;
+        while (segments.firstKey() < readSegmentId) {
+            deleteSegment(segments.firstKey());
+        }
+        updateCheckpoint();
+    }
+
+    /**
+     * Flushes the written records to the disk and unlocks the directory.
+     */
+    public synchronized void close() {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        checkpoint.force();
+        unlock();
+    }
+
+    private void unlock() {
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to unlock the spill queue at " + directory, e);
+        }
+    }
+
+    private boolean moveToNextRecord() {
+        while (true) {
+            if (readSegmentId == writeSegmentId && readPosition >= writePosition) {
+                return false;
+            }
+            if (readPosition + Integer.BYTES <= segmentSize) {
+                int length = segments.get(readSegmentId).getInt(readPosition);
+                if (length > 0) {
+                    return true;
+                }
+            }
+            if (readSegmentId == writeSegmentId) {
+                return false;
+            }
+            deleteSegment(readSegmentId);
+            readSegmentId = segments.firstKey();
+            readPosition = 0;
+            updateCheckpoint();
+        }
+    }
+
+    private void recoverWritePosition() {
+        writeSegmentId = segments.lastKey();
+        MappedByteBuffer writeSegment = segments.get(writeSegmentId);
+        int position = 0;
+        while (position + Integer.BYTES <= segmentSize) {
+            int length = writeSegment.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                position = segmentSize;
+                break;
+            }
+            if (length <= 0 || length > segmentSize - position - Integer.BYTES) {
+                break;
+            }
+            position += Integer.BYTES + length;
+        }
+        writePosition = position;
+    }
+
+    private void updateCheckpoint() {
+        checkpoint.putLong(0, readSegmentId);
+        checkpoint.putInt(Long.BYTES, readPosition);
+    }
+
+    private void deleteSegment(long segmentId) {
+        segments.remove(segmentId);
+        try {
+            Files.deleteIfExists(getSegmentPath(segmentId));
+        } catch (IOException e) {
+            log.warn("Failed to delete the spill queue segment " + getSegmentPath(segmentId), e);
+        }
+    }
+
+    private Path getSegmentPath(long segmentId) {
+        return directory.resolve(String.format("%020d", segmentId) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Locks the directory of a queue, which is unlocked by closing the returned channel.
+     *
+     * @throws IOException if the directory is already locked, by this or another process.
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (IOException | OverlappingFileLockException e) {
+            lockChannel.close();
+            throw new IOException("The spill queue at " + directory + " is already in use.", e);
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("The spill queue at " + directory + " is already in use.");
+        }
+        return lockChannel;
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
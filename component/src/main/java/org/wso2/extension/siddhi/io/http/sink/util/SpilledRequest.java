@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.wso2.carbon.messaging.Header;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code SpilledRequest} is a request of the http sink stored in the {@link SpillQueue}. It holds the resolved url,
+ * method, headers and body of the request, so that it can be sent again without the event it was created from.
+ */
+public class SpilledRequest {
+    private final String publisherURL;
+    private final String httpMethod;
+    private final List<Header> headers;
+    private final byte[] messageBody;
+
+    public SpilledRequest(String publisherURL, String httpMethod, List<Header> headers, byte[] messageBody) {
+        this.publisherURL = publisherURL;
+        this.httpMethod = httpMethod;
+        this.headers = headers == null ? new ArrayList<>() : headers;
+        this.messageBody = messageBody == null ? new byte[0] : messageBody;
+    }
+
+    public String getPublisherURL() {
+        return publisherURL;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public List<Header> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getMessageBody() {
+        return messageBody;
+    }
+
+    /**
+     * Serializes the request as length prefixed UTF-8 strings followed by the length prefixed body.
+     *
+     * @return the serialized request.
+     */
+    public byte[] toBytes() {
+        List<byte[]> fields = new ArrayList<>(2 + headers.size() * 2);
+        fields.add(publisherURL.getBytes(StandardCharsets.UTF_8));
+        fields.add(httpMethod.getBytes(StandardCharsets.UTF_8));
+        for (Header header : headers) {
+            fields.add(header.getName().getBytes(StandardCharsets.UTF_8));
+            fields.add(header.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        int size = Integer.BYTES * 2 + messageBody.length;
+        for (byte[] field : fields) {
+            size += Integer.BYTES + field.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(headers.size());
+        for (byte[] field : fields) {
+            buffer.putInt(field.length).put(field);
+        }
+        buffer.putInt(messageBody.length).put(messageBody);
+        return buffer.array();
+    }
+
+    /**
+     * Deserializes a request serialized with {@link #toBytes()}.
+     *
+     * @param bytes the serialized request.
+     * @return the request.
+     */
+    public static SpilledRequest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int headerCount = buffer.getInt();
+        String publisherURL = readString(buffer);
+        String httpMethod = readString(buffer);
+        List<Header> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new Header(readString(buffer), readString(buffer)));
+        }
+        byte[] messageBody = new byte[buffer.getInt()];
+        buffer.get(messageBody);
+        return new SpilledRequest(publisherURL, httpMethod, headers, messageBody);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -22,6 +22,8 @@ package org.wso2.extension.siddhi.io.http.source;
 import io.siddhi.core.stream.input.source.SourceEventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.extension.siddhi.io.http.util.HttpConstants;
+import org.wso2.extension.siddhi.io.http.util.ResponseCorrelationContext;
 import org.wso2.transport.http.netty.contract.HttpConnectorListener;
 import org.wso2.transport.http.netty.message.HttpCarbonMessage;
 
@@ -39,6 +41,7 @@ public class HttpResponseConnectorListener implements HttpConnectorListener {
     private String siddhiAppName;
     private String[] trpPropertyNames;
     private boolean shouldAllowStreamingResponses;
+    private volatile ResolvedSchema resolvedSchema;
 
     public HttpResponseConnectorListener(int numberOfThreads, SourceEventListener sourceEventListener,
                                          boolean shouldAllowStreamingResponses,
@@ -53,11 +56,16 @@ public class HttpResponseConnectorListener implements HttpConnectorListener {
 
     @Override
     public void onMessage(HttpCarbonMessage carbonMessage) {
+        ResponseCorrelationContext correlationContext = (ResponseCorrelationContext) carbonMessage.getProperty(
+                HttpConstants.RESPONSE_CORRELATION_CONTEXT);
+        int[] positions = correlationContext == null ? null : getPositions(correlationContext.getSchema());
         String[] properties = new String[trpPropertyNames.length];
         for (int i = 0; i < trpPropertyNames.length; i++) {
-            Object property = carbonMessage.getProperty(trpPropertyNames[i]);
+            // the attributes of the event take precedence over the properties of the response
+            Object property = positions != null && positions[i] >= 0 ? correlationContext.getValue(positions[i]) :
+                    carbonMessage.getProperty(trpPropertyNames[i]);
             if (property != null) {
-                properties[i] = carbonMessage.getProperty(trpPropertyNames[i]).toString();
+                properties[i] = property.toString();
             }
         }
         HttpResponseProcessor workerThread =
@@ -66,6 +74,20 @@ public class HttpResponseConnectorListener implements HttpConnectorListener {
         executorService.execute(workerThread);
     }
 
+    /**
+     * Returns the positions of the requested transport properties in the given schema, resolving them only when the
+     * schema differs from the previous one, which happens when the sink is redeployed or the response sources of the
+     * sink change.
+     */
+    private int[] getPositions(ResponseCorrelationContext.Schema schema) {
+        ResolvedSchema currentSchema = resolvedSchema;
+        if (currentSchema == null || currentSchema.schema != schema) {
+            currentSchema = new ResolvedSchema(schema, schema.getPositions(trpPropertyNames));
+            resolvedSchema = currentSchema;
+        }
+        return currentSchema.positions;
+    }
+
     @Override
     public void onError(Throwable throwable) {
         log.error("Error occurred during processing response for the request sent by http-request-sink with " +
@@ -87,4 +109,14 @@ public class HttpResponseConnectorListener implements HttpConnectorListener {
     void disconnect() {
         executorService.shutdown();
     }
+
+    private static class ResolvedSchema {
+        private final ResponseCorrelationContext.Schema schema;
+        private final int[] positions;
+
+        ResolvedSchema(ResponseCorrelationContext.Schema schema, int[] positions) {
+            this.schema = schema;
+            this.positions = positions;
+        }
+    }
 }
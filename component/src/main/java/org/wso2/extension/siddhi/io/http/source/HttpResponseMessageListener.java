@@ -21,14 +21,13 @@ package org.wso2.extension.siddhi.io.http.source;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.wso2.extension.siddhi.io.http.util.HTTPSourceRegistry;
 import org.wso2.extension.siddhi.io.http.util.HttpConstants;
-import org.wso2.extension.siddhi.io.http.util.ResponseSourceId;
+import org.wso2.extension.siddhi.io.http.util.ResponseCorrelationContext;
+import org.wso2.extension.siddhi.io.http.util.ResponseRoutingTable;
 import org.wso2.transport.http.netty.contract.HttpConnectorListener;
 import org.wso2.transport.http.netty.message.HttpCarbonMessage;
 
-import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Connector Listener for HttpResponseSource.
@@ -39,53 +38,58 @@ public class HttpResponseMessageListener implements HttpConnectorListener {
     private static final Logger log = LoggerFactory.getLogger(HttpResponseMessageListener.class);
 
     private HttpResponseConnectorListener responseConnectorListener;
-    private Map<String, Object> trpProperties;
+    private ResponseCorrelationContext correlationContext;
     private boolean isDownloadEnabled;
     private String sinkId;
+    private ResponseRoutingTable routingTable;
     private HttpCarbonMessage carbonMessages;
-    private CountDownLatch latch;
-    private int tryCount;
-    private String authType;
-    private boolean isBlockingIO;
+    private CompletableFuture<Void> responseFuture;
 
-    public HttpResponseMessageListener(Map<String, Object> trpProperties, String sinkId, boolean isDownloadEnabled,
-                                       CountDownLatch latch, int tryCount, String authType, boolean isBlockingIO) {
-        this.trpProperties = trpProperties;
+    /**
+     * Creates the listener of the response of a request.
+     *
+     * @param correlationContext the attributes of the event the request was sent for.
+     * @param sinkId             the sink.id of the sink which sent the request.
+     * @param routingTable       the routing table of the responses of the sink.
+     * @param isDownloadEnabled  whether the response is downloaded to a file.
+     * @param responseFuture     completed once the response of the request is passed to the http-response source,
+     *                           or exceptionally on an error, for the publisher waiting for this request. Can be null.
+     */
+    public HttpResponseMessageListener(ResponseCorrelationContext correlationContext, String sinkId,
+                                       ResponseRoutingTable routingTable, boolean isDownloadEnabled,
+                                       CompletableFuture<Void> responseFuture) {
+        this.correlationContext = correlationContext;
         this.isDownloadEnabled = isDownloadEnabled;
         this.sinkId = sinkId;
-        this.latch = latch;
-        this.tryCount = tryCount;
-        this.authType = authType;
-        this.isBlockingIO = isBlockingIO;
+        this.routingTable = routingTable;
+        this.responseFuture = responseFuture;
     }
 
     @Override
     public void onMessage(HttpCarbonMessage carbonMessage) {
-        trpProperties.forEach((k, v) -> {
-            carbonMessage.setProperty(k, v);
-        });
+        carbonMessage.setProperty(HttpConstants.RESPONSE_CORRELATION_CONTEXT, correlationContext);
+        if (correlationContext.getDownloadPath() != null) {
+            carbonMessage.setProperty(HttpConstants.DOWNLOAD_PATH, correlationContext.getDownloadPath());
+        }
         carbonMessage.setProperty(HttpConstants.IS_DOWNLOADABLE_CONTENT, isDownloadEnabled);
         this.carbonMessages = carbonMessage;
-        String statusCode = Integer.toString(carbonMessage.getNettyHttpResponse().status().code());
-        if (carbonMessage.getNettyHttpResponse().status().code() == (HttpConstants.SUCCESS_CODE) ||
-                HttpConstants.MAXIMUM_TRY_COUNT == tryCount) {
-            HttpResponseSource responseSource = findAndGetResponseSource(statusCode);
-            if (responseSource != null) {
-                responseConnectorListener = responseSource.getConnectorListener();
-                responseConnectorListener.onMessage(carbonMessage);
-            } else {
-                log.error("No source of type 'http-response' that matches with the status code '" + statusCode +
-                        "' has been defined. Hence dropping the response message.");
-            }
+        int statusCode = carbonMessage.getNettyHttpResponse().status().code();
+        HttpResponseSource responseSource = routingTable.getResponseSource(statusCode);
+        if (responseSource != null) {
+            responseConnectorListener = responseSource.getConnectorListener();
+            responseConnectorListener.onMessage(carbonMessage);
+        } else {
+            log.error("No source of type 'http-response' that matches with the status code '" + statusCode +
+                    "' has been defined. Hence dropping the response message.");
         }
-        if (isBlockingIO || HttpConstants.OAUTH.equals(authType)) {
-            latch.countDown();
+        if (responseFuture != null) {
+            responseFuture.complete(null);
         }
     }
 
     @Override
     public void onError(Throwable throwable) {
-        HttpResponseSource source = HTTPSourceRegistry.getResponseSource(sinkId, HttpConstants.DEFAULT_HTTP_ERROR_CODE);
+        HttpResponseSource source = routingTable.getResponseSource(HttpConstants.INTERNAL_SERVER_FAIL_CODE);
         if (source != null) {
             responseConnectorListener = source.getConnectorListener();
         } else {
@@ -100,6 +104,9 @@ public class HttpResponseMessageListener implements HttpConnectorListener {
                         "status code 500 found.");
             }
         }
+        if (responseFuture != null) {
+            responseFuture.completeExceptionally(throwable);
+        }
     }
 
     /**
@@ -109,17 +116,6 @@ public class HttpResponseMessageListener implements HttpConnectorListener {
         responseConnectorListener.disconnect();
     }
 
-    private HttpResponseSource findAndGetResponseSource(String statusCode) {
-        ResponseSourceId id = new ResponseSourceId(sinkId, statusCode);
-        for (Map.Entry entry : HTTPSourceRegistry.getResponseSourceRegistry().entrySet()) {
-            ResponseSourceId key = (ResponseSourceId) entry.getKey();
-            if (id.equals(key)) {
-                return (HttpResponseSource) entry.getValue();
-            }
-        }
-        return null;
-    }
-
     public HttpCarbonMessage getHttpResponseMessage() {
         return carbonMessages;
     }
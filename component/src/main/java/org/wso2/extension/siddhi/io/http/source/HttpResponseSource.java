@@ -58,10 +58,15 @@ import static org.wso2.extension.siddhi.io.http.util.HttpConstants.DEFAULT_WORKE
                         type = {DataType.STRING}),
                 @Parameter(name = "http.status.code",
                         description = "Acceptable http status code for the responses.\n" +
-                                "This can be a complete string or a regex.\n" +
+                                "This can be a complete string, a status class such as '2xx', or a regex.\n" +
                                 "Only the responses with matching status codes to the defined value, will be received" +
-                                " by the http-response source.\n" +
-                                "Eg: 'http.status.code = '200', http.status.code = '2\\\\d+''",
+                                " by the http-response source. If several sources of a sink match a status code, a " +
+                                "complete status code takes precedence over a status class, which takes precedence " +
+                                "over a regex.\n" +
+                                "The value 'default' receives the responses which no other source of the sink " +
+                                "matches.\n" +
+                                "Eg: 'http.status.code = '200', http.status.code = '2xx', " +
+                                "http.status.code = '2\\\\d+''",
                         type = {DataType.STRING},
                         optional = true,
                         defaultValue = "200"),
@@ -187,4 +192,8 @@ public class HttpResponseSource extends Source {
     public HttpResponseConnectorListener getConnectorListener() {
         return httpResponseSourceListener;
     }
+
+    public String[] getRequestedTransportPropertyNames() {
+        return requestedTransportPropertyNames.clone();
+    }
 }
@@ -31,6 +31,7 @@ public class HTTPSourceRegistry {
 
     private static Map<String, HttpRequestSource> requestSourceRegistry = new ConcurrentHashMap<>();
     private static Map<ResponseSourceId, HttpResponseSource> responseSourceRegistry = new ConcurrentHashMap<>();
+    private static Map<String, ResponseRoutingTable> responseRoutingTables = new ConcurrentHashMap<>();
 
     // handle request sources
     public static HttpRequestSource getRequestSource(String sourceId) {
@@ -51,14 +52,26 @@ public class HTTPSourceRegistry {
     }
 
     public static void registerResponseSource(String sinkId, String statusCode, HttpResponseSource source) {
+        getResponseRoutingTable(sinkId).register(statusCode, source);
         responseSourceRegistry.put(new ResponseSourceId(sinkId, statusCode), source);
     }
 
     public static void removeResponseSource(String sinkId, String statusCode) {
         responseSourceRegistry.remove(new ResponseSourceId(sinkId, statusCode));
+        getResponseRoutingTable(sinkId).remove(statusCode);
     }
 
     public static Map<ResponseSourceId, HttpResponseSource> getResponseSourceRegistry() {
         return responseSourceRegistry;
     }
+
+    /**
+     * Returns the routing table of the responses of a sink, which stays valid as sources are registered and removed.
+     *
+     * @param sinkId the sink.id of the sink.
+     * @return the routing table of the sink.
+     */
+    public static ResponseRoutingTable getResponseRoutingTable(String sinkId) {
+        return responseRoutingTables.computeIfAbsent(sinkId, key -> new ResponseRoutingTable());
+    }
 }
@@ -54,6 +54,7 @@ public class HttpConstants {
     public static final String TEXT_PLAIN = "text/plain";
     public static final String APPLICATION_XML = "application/xml";
     public static final String APPLICATION_JSON = "application/json";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
     public static final String APPLICATION_URL_ENCODED = "application/x-www-form-urlencoded";
     public static final String DEFAULT_ENCODING = "UTF-8";
     public static final String DOWNLOAD_ENABLED = "downloading.enabled";
@@ -77,6 +78,7 @@ public class HttpConstants {
     public static final String SCHEME_HTTPS = "https";
     public static final String AUTHORIZATION_HEADER = "Authorization";
     public static final String AUTHORIZATION_METHOD = "Basic ";
+    public static final String SHA_256 = "SHA-256";
     public static final String EMPTY_STRING = "";
     public static final String TO = "TO";
     public static final String DEFAULT_HOST_VALUE = "0.0.0.0";
@@ -134,6 +136,125 @@ public class HttpConstants {
     public static final String PROXY_USERNAME = "proxy.username";
     public static final String PROXY_PASSWORD = "proxy.password";
     public static final String SINK_PARAMETERS = "parameters";
+    public static final String CLIENT_CONNECTOR_CACHE_SIZE = "client.connector.cache.size";
+    public static final String DEFAULT_CLIENT_CONNECTOR_CACHE_SIZE = "100";
+    public static final long DEFAULT_CLIENT_SOCKET_IDLE_TIMEOUT = 60000;
+    public static final String CLIENT_PREWARM_CONNECTIONS = "client.prewarm.connections";
+    public static final String CLIENT_KEEP_ALIVE_VALIDATION_INTERVAL = "client.keep.alive.validation.interval";
+    public static final String DEFAULT_CLIENT_KEEP_ALIVE_VALIDATION_INTERVAL = "30000";
+    public static final String BODY_DIRECT_BUFFER = "body.direct.buffer";
+    public static final String CLIENT_HTTP_VERSION = "http.version";
+    public static final String HTTP_VERSION_1_1 = "1.1";
+    public static final String HTTP_VERSION_2_0 = "2.0";
+    public static final String HTTP2_PRIOR_KNOWLEDGE = "http2.prior.knowledge";
+    public static final String HTTP2_MAX_CONCURRENT_STREAMS = "http2.max.concurrent.streams";
+    public static final String DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = "-1";
+    public static final String BATCH_SIZE = "batch.size";
+    public static final String DEFAULT_BATCH_SIZE = "1";
+    public static final String BATCH_MAX_BYTES = "batch.max.bytes";
+    public static final String DEFAULT_BATCH_MAX_BYTES = "-1";
+    public static final String BATCH_LINGER_TIME = "batch.linger.time";
+    public static final String DEFAULT_BATCH_LINGER_TIME = "1000";
+    public static final String BATCH_FORMAT = "batch.format";
+    public static final String BATCH_FORMAT_JSON_ARRAY = "json.array";
+    public static final String BATCH_FORMAT_NDJSON = "ndjson";
+    public static final String BATCH_FORMAT_TEXT = "text";
+    public static final String MAX_IN_FLIGHT_REQUESTS = "max.in.flight.requests";
+    public static final String DEFAULT_MAX_IN_FLIGHT_REQUESTS = "-1";
+    public static final String MAX_IN_FLIGHT_BYTES = "max.in.flight.bytes";
+    public static final String DEFAULT_MAX_IN_FLIGHT_BYTES = "-1";
+    public static final String IN_FLIGHT_LIMIT_POLICY = "in.flight.limit.policy";
+    public static final String IN_FLIGHT_LIMIT_POLICY_BLOCK = "block";
+    public static final String IN_FLIGHT_LIMIT_POLICY_FAIL = "fail";
+    public static final String IN_FLIGHT_LIMIT_POLICY_CONNECTION_UNAVAILABLE = "connection.unavailable";
+    public static final String RETRY_COUNT = "retry.count";
+    public static final String DEFAULT_RETRY_COUNT = "0";
+    public static final String RETRY_INITIAL_BACKOFF = "retry.initial.backoff";
+    public static final String DEFAULT_RETRY_INITIAL_BACKOFF = "100";
+    public static final String RETRY_MAX_BACKOFF = "retry.max.backoff";
+    public static final String DEFAULT_RETRY_MAX_BACKOFF = "30000";
+    public static final String RETRY_BUDGET = "retry.budget";
+    public static final String DEFAULT_RETRY_BUDGET = "100";
+    public static final String RETRY_BUDGET_RATIO = "retry.budget.ratio";
+    public static final String DEFAULT_RETRY_BUDGET_RATIO = "0.2";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final String CIRCUIT_BREAKER_ENABLED = "circuit.breaker.enabled";
+    public static final String CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = "circuit.breaker.failure.rate.threshold";
+    public static final String DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = "0.5";
+    public static final String CIRCUIT_BREAKER_SLOW_CALL_DURATION = "circuit.breaker.slow.call.duration";
+    public static final String DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION = "30000";
+    public static final String CIRCUIT_BREAKER_WINDOW_SIZE = "circuit.breaker.window.size";
+    public static final String DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = "20";
+    public static final String CIRCUIT_BREAKER_MINIMUM_CALLS = "circuit.breaker.minimum.calls";
+    public static final String DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS = "10";
+    public static final String CIRCUIT_BREAKER_OPEN_DURATION = "circuit.breaker.open.duration";
+    public static final String DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = "30000";
+    public static final String CIRCUIT_BREAKER_HALF_OPEN_CALLS = "circuit.breaker.half.open.calls";
+    public static final String DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS = "1";
+    public static final String CIRCUIT_BREAKER_FALLBACK_URL = "circuit.breaker.fallback.url";
+    public static final String CONCURRENCY_LIMIT_ENABLED = "concurrency.limit.enabled";
+    public static final String CONCURRENCY_LIMIT_INITIAL = "concurrency.limit.initial";
+    public static final String DEFAULT_CONCURRENCY_LIMIT_INITIAL = "20";
+    public static final String CONCURRENCY_LIMIT_MIN = "concurrency.limit.min";
+    public static final String DEFAULT_CONCURRENCY_LIMIT_MIN = "1";
+    public static final String CONCURRENCY_LIMIT_MAX = "concurrency.limit.max";
+    public static final String DEFAULT_CONCURRENCY_LIMIT_MAX = "200";
+    public static final String CONCURRENCY_LIMIT_BACKOFF_RATIO = "concurrency.limit.backoff.ratio";
+    public static final String DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO = "0.9";
+    public static final String CONCURRENCY_LIMIT_RTT_TOLERANCE = "concurrency.limit.rtt.tolerance";
+    public static final String DEFAULT_CONCURRENCY_LIMIT_RTT_TOLERANCE = "2";
+    public static final String RATE_LIMIT = "rate.limit";
+    public static final String DEFAULT_RATE_LIMIT = "-1";
+    public static final String RATE_LIMIT_BURST = "rate.limit.burst";
+    public static final String DEFAULT_RATE_LIMIT_BURST = "-1";
+    public static final String RATE_LIMIT_SCOPE = "rate.limit.scope";
+    public static final String RATE_LIMIT_SCOPE_SINK = "sink";
+    public static final String RATE_LIMIT_SCOPE_DESTINATION = "destination";
+    public static final String RATE_LIMIT_POLICY = "rate.limit.policy";
+    public static final String SCATTER_URLS = "scatter.urls";
+    public static final String SCATTER_RESPONSE_MODE = "scatter.response.mode";
+    public static final String SCATTER_RESPONSE_MODE_AGGREGATE = "aggregate";
+    public static final String SCATTER_RESPONSE_MODE_PER_URL = "per.url";
+    public static final String SCATTER_TIMEOUT = "scatter.timeout";
+    public static final String DEFAULT_SCATTER_TIMEOUT = "30000";
+    public static final String SCATTER_URL_PROPERTY = "scatter.url";
+    public static final String SCATTER_RESULT_URL = "url";
+    public static final String SCATTER_RESULT_STATUS_CODE = "statusCode";
+    public static final String SCATTER_RESULT_BODY = "body";
+    public static final String SCATTER_RESULT_ERROR = "error";
+    public static final String RESPONSE_CACHE_ENABLED = "response.cache.enabled";
+    public static final String RESPONSE_CACHE_MAX_ENTRIES = "response.cache.max.entries";
+    public static final String DEFAULT_RESPONSE_CACHE_MAX_ENTRIES = "1000";
+    public static final String RESPONSE_CACHE_MAX_BYTES = "response.cache.max.bytes";
+    public static final String DEFAULT_RESPONSE_CACHE_MAX_BYTES = "10485760";
+    public static final String RESPONSE_CACHE_TTL = "response.cache.ttl";
+    public static final String DEFAULT_RESPONSE_CACHE_TTL = "-1";
+    public static final String REQUEST_COLLAPSING_ENABLED = "request.collapsing.enabled";
+    public static final String PUBLISHER_URLS = "publisher.urls";
+    public static final String LOAD_BALANCING_STRATEGY = "load.balancing.strategy";
+    public static final String LOAD_BALANCING_STRATEGY_ROUND_ROBIN = "round.robin";
+    public static final String LOAD_BALANCING_STRATEGY_LEAST_OUTSTANDING = "least.outstanding";
+    public static final String LOAD_BALANCING_STRATEGY_EWMA_LATENCY = "ewma.latency";
+    public static final String LOAD_BALANCING_STRATEGY_CONSISTENT_HASH = "consistent.hash";
+    public static final String LOAD_BALANCING_HASH_ATTRIBUTE = "load.balancing.hash.attribute";
+    public static final String LOAD_BALANCING_EJECTION_FAILURES = "load.balancing.ejection.failures";
+    public static final String DEFAULT_LOAD_BALANCING_EJECTION_FAILURES = "3";
+    public static final String LOAD_BALANCING_EJECTION_DURATION = "load.balancing.ejection.duration";
+    public static final String DEFAULT_LOAD_BALANCING_EJECTION_DURATION = "30000";
+    public static final String SPILL_QUEUE_PATH = "spill.queue.path";
+    public static final String SPILL_QUEUE_SEGMENT_SIZE = "spill.queue.segment.size";
+    public static final String DEFAULT_SPILL_QUEUE_SEGMENT_SIZE = "16777216";
+    public static final String SPILL_QUEUE_MAX_SIZE = "spill.queue.max.size";
+    public static final String DEFAULT_SPILL_QUEUE_MAX_SIZE = "1073741824";
+    public static final String SPILL_QUEUE_DRAIN_INTERVAL = "spill.queue.drain.interval";
+    public static final String DEFAULT_SPILL_QUEUE_DRAIN_INTERVAL = "5000";
+    public static final String SPILL_QUEUE_READ_SEGMENT = "spill.queue.read.segment";
+    public static final String SPILL_QUEUE_READ_POSITION = "spill.queue.read.position";
+    public static final String PARTITION_KEY = "partition.key";
+    public static final String PARTITION_LANES = "partition.lanes";
+    public static final String DEFAULT_PARTITION_LANES = "16";
+    public static final String PARTITION_LANE_QUEUE_SIZE = "partition.lane.queue.size";
+    public static final String DEFAULT_PARTITION_LANE_QUEUE_SIZE = "1000";
     public static final String MSG_ID = "msgId";
     //http sink transport properties
     public static final String LATENCY_METRICS_ENABLED = "latency.metrics.enabled";
@@ -189,10 +310,12 @@ public class HttpConstants {
     public static final String FILE_URL = "file.url";
     public static final String DOWNLOAD_PATH = "download.path";
     public static final String IS_DOWNLOADABLE_CONTENT = "__is_downloadable_content";
+    public static final String RESPONSE_CORRELATION_CONTEXT = "__response_correlation_context";
     // HTTP codes for response source
     public static final String HTTP_STATUS_CODE = "http.status.code";
     public static final String DEFAULT_HTTP_SUCCESS_CODE = "200";
     public static final String DEFAULT_HTTP_ERROR_CODE = "500";
+    public static final String DEFAULT_HTTP_STATUS_CODE = "default";
     // HTTP Default ports if the port is not present in the given URL
     public static final int DEFAULT_HTTP_PORT = 80;
     public static final int DEFAULT_HTTPS_PORT = 443;
@@ -211,6 +334,7 @@ public class HttpConstants {
     public static final int AUTHENTICATION_FAIL_CODE = 401;
     public static final int PERSISTENT_ACCESS_FAIL_CODE = 400;
     public static final int INTERNAL_SERVER_FAIL_CODE = 500;
+    public static final int TOO_MANY_REQUESTS_CODE = 429;
     public static final String RECEIVER_OAUTH_USERNAME = "oauth.username";
     public static final String RECEIVER_OAUTH_PASSWORD = "oauth.password";
     public static final String RECEIVER_REFRESH_TOKEN = "refresh.token";
@@ -223,5 +347,10 @@ public class HttpConstants {
     public static final String BEARER = "Bearer ";
     public static final String ACCESS_TOKEN = "access_token";
     public static final String REFRESH_TOKEN = "refresh_token";
+    public static final String EXPIRES_IN = "expires_in";
+    public static final String OAUTH_REFRESH_SKEW = "oauth.refresh.skew";
+    public static final String DEFAULT_OAUTH_REFRESH_SKEW = "30000";
     public static final String BLOCKING_IO = "blocking.io";
+    public static final String BLOCKING_IO_MAX_CONCURRENCY = "blocking.io.max.concurrency";
+    public static final String DEFAULT_BLOCKING_IO_MAX_CONCURRENCY = "1";
 }
@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.util;
+
+import io.siddhi.query.api.definition.Attribute;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code ResponseCorrelationContext} carries the attributes of the event a http-request sink sent a request for to
+ * the http-response sources which receive its response, as their transport properties.
+ * The context holds a copy of only the attribute values the sources of the sink request, and is passed on the
+ * response as a single property instead of a property per attribute. A source resolves the positions of the
+ * transport properties it requests once per {@link Schema}, so that each response only reads the requested
+ * attributes by their positions.
+ */
+public class ResponseCorrelationContext {
+    private static final Object[] NO_VALUES = new Object[0];
+    private final Schema schema;
+    private final Object[] values;
+    private final String downloadPath;
+
+    /**
+     * Creates the context of a request.
+     *
+     * @param schema       the schema of the stream of the sink.
+     * @param data         the attribute values of the event.
+     * @param downloadPath the path the response is downloaded to, or null if downloading is not enabled.
+     */
+    public ResponseCorrelationContext(Schema schema, Object[] data, String downloadPath) {
+        this.schema = schema;
+        // the event may be reused by the publishing thread before the response arrives
+        this.values = schema.capture(data);
+        this.downloadPath = downloadPath;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the value of a captured attribute of the event.
+     *
+     * @param position the position of the attribute, as resolved by {@link Schema#getPositions(String[])}.
+     * @return the value of the attribute, or null if the position is negative.
+     */
+    public Object getValue(int position) {
+        return position < 0 ? null : values[position];
+    }
+
+    public String getDownloadPath() {
+        return downloadPath;
+    }
+
+    /**
+     * The attributes of the stream of a http-request sink which are captured for its http-response sources, resolved
+     * whenever the transport properties requested by the sources change.
+     */
+    public static class Schema {
+        private final String[] capturedNames;
+        private final int[] capturedIndexes;
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        /**
+         * Creates the schema of the given attributes.
+         *
+         * @param attributes    the attributes of the stream of the sink.
+         * @param capturedNames the names requested by the sources, of which only the attributes of the stream are
+         *                      captured.
+         */
+        public Schema(List<Attribute> attributes, String[] capturedNames) {
+            this.capturedNames = capturedNames;
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < attributes.size(); i++) {
+                indexes.put(attributes.get(i).getName(), i);
+            }
+            int[] captured = new int[capturedNames.length];
+            for (String name : capturedNames) {
+                Integer index = indexes.get(name);
+                if (index != null && !positions.containsKey(name)) {
+                    captured[positions.size()] = index;
+                    positions.put(name, positions.size());
+                }
+            }
+            this.capturedIndexes = Arrays.copyOf(captured, positions.size());
+        }
+
+        /**
+         * Returns the names this schema was created for.
+         *
+         * @return the names requested by the sources.
+         */
+        public String[] getCapturedNames() {
+            return capturedNames;
+        }
+
+        /**
+         * Resolves the positions of the given attribute names among the captured attributes.
+         *
+         * @param names the names of the attributes.
+         * @return the position of each attribute, or -1 for the names which are not captured.
+         */
+        public int[] getPositions(String[] names) {
+            int[] result = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                result[i] = positions.getOrDefault(names[i], -1);
+            }
+            return result;
+        }
+
+        private Object[] capture(Object[] data) {
+            if (capturedIndexes.length == 0) {
+                return NO_VALUES;
+            }
+            Object[] values = new Object[capturedIndexes.length];
+            for (int i = 0; i < capturedIndexes.length; i++) {
+                values[i] = data[capturedIndexes[i]];
+            }
+            return values;
+        }
+    }
+}
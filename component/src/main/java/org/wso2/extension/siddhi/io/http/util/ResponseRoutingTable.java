@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.util;
+
+import org.wso2.extension.siddhi.io.http.source.HttpResponseSource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@code ResponseRoutingTable} routes the responses of the requests sent by a http-request sink to the http-response
+ * sources of the sink, by their status codes.
+ * The http.status.code of a source can be an exact status code such as '200', a status class such as '2xx', a regex
+ * such as '2\\d+', or 'default' for the responses no other source matches. The source of each status code is resolved
+ * whenever a source is registered or removed, so that routing a response is an array lookup. When several sources
+ * match a status code, an exact status code takes precedence over a status class, which takes precedence over a regex.
+ * The table also collects the transport properties the sources request, so that the sink only captures those
+ * attributes of its events.
+ */
+public class ResponseRoutingTable {
+    private static final int STATUS_CODE_LIMIT = 1000;
+    private static final Pattern EXACT_STATUS_CODE = Pattern.compile("\\d{3}");
+    private static final Pattern STATUS_CLASS = Pattern.compile("[1-9][xX][xX]");
+    private static final int EXACT = 0;
+    private static final int CLASS = 1;
+    private static final int REGEX = 2;
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private volatile HttpResponseSource[] sources = new HttpResponseSource[STATUS_CODE_LIMIT];
+    private volatile HttpResponseSource defaultSource;
+    private volatile String[] requestedTransportPropertyNames = new String[0];
+
+    /**
+     * Returns the source of the responses with the given status code.
+     *
+     * @param statusCode the http status code of the response.
+     * @return the source of the status code, the default source if no other source matches it, or null.
+     */
+    public HttpResponseSource getResponseSource(int statusCode) {
+        HttpResponseSource[] currentSources = sources;
+        if (statusCode >= 0 && statusCode < currentSources.length) {
+            return currentSources[statusCode];
+        }
+        return defaultSource;
+    }
+
+    /**
+     * Returns the transport properties requested by the sources. The array is replaced whenever a source is
+     * registered or removed, hence a sink compares it by identity to tell whether the sources have changed.
+     *
+     * @return the names of the transport properties requested by any source of the table.
+     */
+    public String[] getRequestedTransportPropertyNames() {
+        return requestedTransportPropertyNames;
+    }
+
+    synchronized void register(String statusCode, HttpResponseSource source) {
+        // the route is created first, so that an invalid regex leaves the table unchanged
+        Route route = new Route(statusCode, source);
+        routes.put(statusCode, route);
+        rebuild();
+    }
+
+    synchronized void remove(String statusCode) {
+        if (routes.remove(statusCode) != null) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        Route defaultRoute = routes.get(HttpConstants.DEFAULT_HTTP_STATUS_CODE);
+        HttpResponseSource newDefaultSource = defaultRoute == null ? null : defaultRoute.source;
+        HttpResponseSource[] newSources = new HttpResponseSource[STATUS_CODE_LIMIT];
+        for (int statusCode = 0; statusCode < STATUS_CODE_LIMIT; statusCode++) {
+            Route matchedRoute = null;
+            for (Route route : routes.values()) {
+                if (route != defaultRoute && route.matches(statusCode) &&
+                        (matchedRoute == null || route.kind < matchedRoute.kind)) {
+                    matchedRoute = route;
+                }
+            }
+            newSources[statusCode] = matchedRoute == null ? newDefaultSource : matchedRoute.source;
+        }
+        Set<String> newRequestedNames = new LinkedHashSet<>();
+        for (Route route : routes.values()) {
+            Collections.addAll(newRequestedNames, route.source.getRequestedTransportPropertyNames());
+        }
+        defaultSource = newDefaultSource;
+        sources = newSources;
+        requestedTransportPropertyNames = newRequestedNames.toArray(new String[0]);
+    }
+
+    private static class Route {
+        private final HttpResponseSource source;
+        private final int kind;
+        private final int statusCode;
+        private final Pattern pattern;
+
+        Route(String statusCode, HttpResponseSource source) {
+            this.source = source;
+            if (EXACT_STATUS_CODE.matcher(statusCode).matches()) {
+                this.kind = EXACT;
+                this.statusCode = Integer.parseInt(statusCode);
+                this.pattern = null;
+            } else if (STATUS_CLASS.matcher(statusCode).matches()) {
+                this.kind = CLASS;
+                this.statusCode = Character.getNumericValue(statusCode.charAt(0));
+                this.pattern = null;
+            } else {
+                this.kind = REGEX;
+                this.statusCode = -1;
+                this.pattern = Pattern.compile(statusCode);
+            }
+        }
+
+        boolean matches(int statusCode) {
+            switch (kind) {
+                case EXACT:
+                    return this.statusCode == statusCode;
+                case CLASS:
+                    return this.statusCode == statusCode / 100;
+                default:
+                    return pattern.matcher(Integer.toString(statusCode)).matches();
+            }
+        }
+    }
+}
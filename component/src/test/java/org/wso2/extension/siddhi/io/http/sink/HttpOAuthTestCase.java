@@ -27,11 +27,19 @@ import io.siddhi.core.util.SiddhiTestHelper;
 import org.apache.log4j.Logger;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpOAuthEndpointListener;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpOAuthListenerHandler;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpOAuthTokenEndpointListener;
 import org.wso2.extension.siddhi.map.xml.sinkmapper.XMLSinkMapper;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class HttpOAuthTestCase {
@@ -442,4 +450,185 @@ public class HttpOAuthTestCase {
         httpOAuthListenerHandler.shutdown();
     }
 
+    /**
+     * Creating test for renewing a rejected access token without holding the publishing thread. The request is sent
+     * again with the new access token, and the next request uses it without renewing it again.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testHTTPOAuthAsyncRenewal() throws Exception {
+        setCarbonHome();
+        log.info("Creating test for renewing a rejected access token without holding the publishing thread.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String,method String,headers String);" +
+                "@sink(type='http',publisher.url='https://localhost:8015/abc',method='{{method}}'" +
+                ",headers='{{headers}}',consumer.key='renewalConsumerKey', consumer.secret='addConsumerSecret', " +
+                "token.url='https://localhost:8005/token', max.in.flight.requests='1', " +
+                "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String,method String,headers String);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select message,method,headers "
+                        + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpOAuthListenerHandler httpOAuthListenerHandler = new HttpOAuthListenerHandler(8005, 8015);
+        httpOAuthListenerHandler.run();
+        HttpOAuthEndpointListener endpointListener = httpOAuthListenerHandler.getHttpOAuthTokenEndpointListener();
+        HttpOAuthTokenEndpointListener tokenEndpointListener = httpOAuthListenerHandler.getServerListener();
+        String payload = "<events>"
+                + "<event>"
+                + "<symbol>WSO2</symbol>"
+                + "<price>55.645</price>"
+                + "<volume>100</volume>"
+                + "</event>"
+                + "</events>";
+        fooStream.send(new Object[]{payload, "POST", "'Name:John','Age:23','Country:USA'," +
+                "'Authorization:  Bearer xxxxx'"});
+        // the second event waits for the in flight permit of the first, which is held until its resend responds
+        fooStream.send(new Object[]{payload, "POST", "'Name:John','Age:23','Country:USA'," +
+                "'Authorization:  Bearer xxxxx'"});
+        SiddhiTestHelper.waitForEvents(10, 3, endpointListener.getRequestCount(), 5000);
+        Assert.assertEquals(endpointListener.getRequestCount().get(), 3);
+        Assert.assertEquals(endpointListener.getUnauthorizedCount().get(), 1);
+        Assert.assertEquals(tokenEndpointListener.getRequestCount().get(), 1);
+        Assert.assertEquals(endpointListener.getHeaders().getFirst("Authorization"), "Bearer yyyyy");
+        siddhiAppRuntime.shutdown();
+        httpOAuthListenerHandler.shutdown();
+    }
+
+    /**
+     * Creating test for a rejected access token which cannot be renewed. The rejection is passed on as the final
+     * response of the request, which releases its in flight permit.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testHTTPOAuthAsyncRenewalFailure() throws Exception {
+        setCarbonHome();
+        log.info("Creating test for a rejected access token which cannot be renewed.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String,method String,headers String," +
+                "refreshToken String);" +
+                "@sink(type='http',publisher.url='https://localhost:8015/abc',method='{{method}}'" +
+                ",headers='{{headers}}',consumer.key='failureConsumerKey', consumer.secret='addConsumerSecret'," +
+                " token.url='https://localhost:8005/token', refresh.token='{{refreshToken}}', " +
+                "max.in.flight.requests='1', @map(type='xml', @payload('{{message}}'))) " +
+                "Define stream BarStream (message String,method String,headers String,refreshToken String);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select message,method,headers,refreshToken "
+                        + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpOAuthListenerHandler httpOAuthListenerHandler = new HttpOAuthListenerHandler(8005, 8015);
+        httpOAuthListenerHandler.run();
+        HttpOAuthEndpointListener endpointListener = httpOAuthListenerHandler.getHttpOAuthTokenEndpointListener();
+        HttpOAuthTokenEndpointListener tokenEndpointListener = httpOAuthListenerHandler.getServerListener();
+        String payload = "<events>"
+                + "<event>"
+                + "<symbol>WSO2</symbol>"
+                + "<price>55.645</price>"
+                + "<volume>100</volume>"
+                + "</event>"
+                + "</events>";
+        // the token endpoint rejects the refresh token, hence the access token cannot be renewed
+        fooStream.send(new Object[]{payload, "POST", "'Name:John','Age:23','Country:USA'," +
+                "'Authorization:  Bearer xxxxx'", "zzzzz"});
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> publisher = executorService.submit(() -> {
+            fooStream.send(new Object[]{payload, "POST", "'Name:John','Age:23','Country:USA'," +
+                    "'Authorization:  Bearer xxxxx'", "zzzzz"});
+            return null;
+        });
+        // the second event is only sent after the rejection of the first is passed on and releases its permit
+        publisher.get(5000, TimeUnit.MILLISECONDS);
+        SiddhiTestHelper.waitForEvents(10, 2, endpointListener.getRequestCount(), 5000);
+        Thread.sleep(500);
+        Assert.assertEquals(endpointListener.getRequestCount().get(), 2);
+        Assert.assertEquals(endpointListener.getUnauthorizedCount().get(), 2);
+        Assert.assertEquals(tokenEndpointListener.getRequestCount().get(), 2);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        httpOAuthListenerHandler.shutdown();
+    }
+
+    /**
+     * Creating test for renewing the rejected access token of a collapsed GET request. The request is sent again with
+     * the new access token, and its response is passed on to the events attached to it.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testHTTPOAuthRequestCollapsing() throws Exception {
+        setCarbonHome();
+        log.info("Creating test for renewing the rejected access token of a collapsed request.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "define stream FooStream (id int, headers String);"
+                + "@sink(type='http-request',publisher.url='https://localhost:8015/abc', method='GET',"
+                + "headers='{{headers}}',sink.id='oauth-collapse-1',consumer.key='collapseConsumerKey',"
+                + " consumer.secret='addConsumerSecret', token.url='https://localhost:8005/token', "
+                + "request.collapsing.enabled='true', "
+                + "@map(type='json')) "
+                + "Define stream BarStream (id int, headers String);"
+                + "@source(type='http-response', sink.id='oauth-collapse-1', http.status.code='2xx', "
+                + "@map(type='text', regex.A='((.|\\n)*)', @attributes(id='trp:id', message='A[1]'))) "
+                + "define stream responseStream(id string, message string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select id,headers "
+                        + "insert into BarStream;"
+        );
+        AtomicInteger responseCount = new AtomicInteger(0);
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                responseCount.addAndGet(events.length);
+            }
+        });
+        // the requests stay in flight long enough for the identical requests to join them
+        HttpOAuthListenerHandler httpOAuthListenerHandler = new HttpOAuthListenerHandler(8005, 8015, 500,
+                "sri-lanka");
+        httpOAuthListenerHandler.run();
+        siddhiAppRuntime.start();
+        HttpOAuthEndpointListener endpointListener = httpOAuthListenerHandler.getHttpOAuthTokenEndpointListener();
+        String headers = "'country:sri-lanka','Authorization:  Bearer xxxxx'";
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int id = i;
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{id, headers});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            publisher.get(5000, TimeUnit.MILLISECONDS);
+        }
+        SiddhiTestHelper.waitForEvents(100, 6, responseCount, 5000);
+        Assert.assertEquals(responseCount.get(), 6);
+        Assert.assertEquals(endpointListener.getUnauthorizedCount().get(), 1);
+
+        // the request is no longer in flight, hence the next identical request is sent instead of being attached
+        int requestCount = endpointListener.getRequestCount().get();
+        fooStream.send(new Object[]{6, headers});
+        SiddhiTestHelper.waitForEvents(100, 7, responseCount, 5000);
+        Assert.assertEquals(responseCount.get(), 7);
+        Assert.assertEquals(endpointListener.getRequestCount().get(), requestCount + 1);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        httpOAuthListenerHandler.shutdown();
+    }
 }
@@ -21,6 +21,7 @@ package org.wso2.extension.siddhi.io.http.sink;
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
 import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
 import io.siddhi.core.stream.output.StreamCallback;
 import io.siddhi.core.util.EventPrinter;
@@ -29,11 +30,20 @@ import org.apache.log4j.Logger;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpDelayedServerListenerHandler;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpFileServerListenerHandler;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpServerListenerHandler;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class HttpRequestResponseTestCase {
     private static final Logger log = Logger.getLogger(HttpRequestResponseTestCase.class);
@@ -309,4 +319,487 @@ public class HttpRequestResponseTestCase {
         siddhiAppRuntime.shutdown();
         httpFileServerListenerHandler.shutdown();
     }
+
+    @Test
+    public void testHTTPScatterPerURLResponses() throws Exception {
+        log.info("Send a POST request to several urls concurrently and receive the response of each url");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (message String);"
+                + "@sink(type='http-request',scatter.urls='http://localhost:8016/abc,http://localhost:8017/abc'," +
+                " method='POST',scatter.response.mode='per.url',scatter.timeout='5000',"
+                + "headers=\"'Name:John'\",sink.id='scatter-1',"
+                + "@map(type='json', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);" +
+                "" +
+                "@source(type='http-response', sink.id='scatter-1', http.status.code='2\\d+', " +
+                "@map(type='json',@attributes(name='name', url='trp:scatter.url')))" +
+                "define stream responseStream(name String, url String);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select message "
+                        + "insert into BarStream;"
+        );
+
+        String payload = "{\"name\":\"wso2\", \"id\":\"1234\"}";
+        AtomicInteger responseCount = new AtomicInteger(0);
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    Assert.assertEquals(event.getData()[0], "wso2");
+                    urls.add((String) event.getData()[1]);
+                    responseCount.incrementAndGet();
+                }
+            }
+        });
+        HttpServerListenerHandler first = new HttpServerListenerHandler(8016);
+        first.run();
+        HttpServerListenerHandler second = new HttpServerListenerHandler(8017);
+        second.run();
+        siddhiAppRuntime.start();
+
+        fooStream.send(new Object[]{payload});
+        SiddhiTestHelper.waitForEvents(100, 2, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 2);
+        Assert.assertTrue(urls.contains("http://localhost:8016/abc"));
+        Assert.assertTrue(urls.contains("http://localhost:8017/abc"));
+        siddhiAppRuntime.shutdown();
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void testHTTPConcurrentBlockingIO() throws Exception {
+        log.info("Send POST requests with blocking.io from several threads and wait for the response of each");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (message String);"
+                + "@sink(type='http-request',publisher.url='http://localhost:8018/abc',method='POST'," +
+                "blocking.io='true',blocking.io.max.concurrency='4',"
+                + "headers=\"'Name:John'\",sink.id='blocking-1',"
+                + "@map(type='json', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);" +
+                "" +
+                "@source(type='http-response', sink.id='blocking-1', http.status.code='2\\d+', " +
+                "@map(type='json',@attributes(name='name', id='id')))" +
+                "define stream responseStream(name String, id String);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select message "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger responseCount = new AtomicInteger(0);
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    Assert.assertEquals(event.getData()[0], "wso2");
+                    responseCount.incrementAndGet();
+                }
+            }
+        });
+        HttpServerListenerHandler httpServerListenerHandler = new HttpServerListenerHandler(8018);
+        httpServerListenerHandler.run();
+        siddhiAppRuntime.start();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String payload = "{\"name\":\"wso2\", \"id\":\"" + i + "\"}";
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{payload});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            // a publishing thread returns only after the response of its own request has arrived
+            publisher.get();
+        }
+        SiddhiTestHelper.waitForEvents(100, 8, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 8);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        httpServerListenerHandler.shutdown();
+    }
+
+    @Test
+    public void testHTTPResponseRoutingByStatusClass() throws Exception {
+        log.info("Route a 4xx response to the default source when only a 2xx source matches otherwise");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int, headers String);" +
+                "@sink(type='http-request'," +
+                "publisher.url='http://localhost:8019/files2', " +
+                "method='GET'," +
+                "headers='{{headers}}',sink.id='routing-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int, headers String);" +
+                "" +
+                "@source(type='http-response', sink.id='routing-1', http.status.code='2xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(message='A[1]'))) " +
+                "define stream responseStream2xx(message string);" +
+
+                "@source(type='http-response', sink.id='routing-1', http.status.code='default', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(message='A[1]'))) " +
+                "define stream responseStreamDefault(message string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger defaultCount = new AtomicInteger(0);
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream2xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                Assert.fail();
+            }
+        });
+        siddhiAppRuntime.addCallback("responseStreamDefault", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                defaultCount.addAndGet(events.length);
+            }
+        });
+        HttpFileServerListenerHandler httpFileServerListenerHandler = new HttpFileServerListenerHandler(8019, 400);
+        httpFileServerListenerHandler.run();
+        siddhiAppRuntime.start();
+
+        fooStream.send(new Object[]{"wso2", 100, "'country:sri-lanka'"});
+        SiddhiTestHelper.waitForEvents(100, 1, defaultCount, 5000);
+
+        Assert.assertEquals(defaultCount.get(), 1);
+        siddhiAppRuntime.shutdown();
+        httpFileServerListenerHandler.shutdown();
+    }
+
+    @Test
+    public void testHTTPResponseCache() throws Exception {
+        log.info("Answer a repeated GET request from the response cache after the endpoint went down");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int, headers String);" +
+                "@sink(type='http-request'," +
+                "publisher.url='http://localhost:8020/files', " +
+                "method='GET'," +
+                "response.cache.enabled='true'," +
+                "response.cache.ttl='60000'," +
+                "headers='{{headers}}',sink.id='cache-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int, headers String);" +
+                "" +
+                "@source(type='http-response', sink.id='cache-1', http.status.code='2xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(message='A[1]'))) " +
+                "define stream responseStream2xx(message string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger responseCount = new AtomicInteger(0);
+        List<String> messages = new ArrayList<>();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream2xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                for (Event event : events) {
+                    messages.add((String) event.getData()[0]);
+                    responseCount.incrementAndGet();
+                }
+            }
+        });
+        HttpFileServerListenerHandler httpFileServerListenerHandler = new HttpFileServerListenerHandler(8020);
+        httpFileServerListenerHandler.run();
+        siddhiAppRuntime.start();
+
+        fooStream.send(new Object[]{"wso2", 100, "'country:sri-lanka'"});
+        SiddhiTestHelper.waitForEvents(100, 1, responseCount, 5000);
+        Assert.assertEquals(responseCount.get(), 1);
+        // the second request is answered from the cache, as the endpoint is no longer available
+        httpFileServerListenerHandler.shutdown();
+        fooStream.send(new Object[]{"wso2", 100, "'country:sri-lanka'"});
+        SiddhiTestHelper.waitForEvents(100, 2, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 2);
+        Assert.assertEquals(messages.get(1), messages.get(0));
+        siddhiAppRuntime.shutdown();
+    }
+
+    @Test
+    public void testHTTPRequestCollapsing() throws Exception {
+        log.info("Send identical GET requests from several threads to a slow endpoint and deliver the response of " +
+                "a single request to each event");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int, headers String);" +
+                "@sink(type='http-request'," +
+                "publisher.url='http://localhost:8021/abc', " +
+                "method='GET'," +
+                "request.collapsing.enabled='true'," +
+                "headers='{{headers}}',sink.id='collapse-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int, headers String);" +
+                "" +
+                "@source(type='http-response', sink.id='collapse-1', http.status.code='2xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(id='trp:id', message='A[1]'))) " +
+                "define stream responseStream2xx(id string, message string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger responseCount = new AtomicInteger(0);
+        Set<Object> ids = ConcurrentHashMap.newKeySet();
+        Set<Object> messages = ConcurrentHashMap.newKeySet();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream2xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    ids.add(event.getData()[0]);
+                    messages.add(event.getData()[1]);
+                    responseCount.incrementAndGet();
+                }
+            }
+        });
+        // the requests stay in flight long enough for the identical requests of the other publishers to join them
+        HttpDelayedServerListenerHandler lst = new HttpDelayedServerListenerHandler(8021, 1000, "sri-lanka");
+        lst.run();
+        siddhiAppRuntime.start();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int id = i;
+            // the requests with different authorization headers are not collapsed into each other
+            String headers = "'country:sri-lanka','Authorization:Bearer token-" + (id % 2) + "'";
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{"wso2", id, headers});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            publisher.get();
+        }
+        SiddhiTestHelper.waitForEvents(100, 8, responseCount, 5000);
+
+        // each event gets the response with its own attributes, while fewer requests reach the endpoint
+        Assert.assertEquals(responseCount.get(), 8);
+        Assert.assertEquals(ids.size(), 8);
+        Assert.assertEquals(messages.size(), 1);
+        Assert.assertTrue(lst.getRequestCount() >= 2, "Requests with different authorization headers were " +
+                "collapsed");
+        Assert.assertTrue(lst.getRequestCount() < 8, "No request was collapsed, " + lst.getRequestCount() +
+                " requests were sent for 8 events");
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test
+    public void testHTTPRequestCollapsingWithRetry() throws Exception {
+        log.info("Retry a collapsed GET request which failed with 503 and deliver the response of the retry to the " +
+                "events attached to it");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int, headers String);" +
+                "@sink(type='http-request'," +
+                "publisher.url='http://localhost:8027/abc', " +
+                "method='GET'," +
+                "request.collapsing.enabled='true'," +
+                "retry.count='2', retry.initial.backoff='100'," +
+                "headers='{{headers}}',sink.id='collapse-retry-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int, headers String);" +
+                "" +
+                "@source(type='http-response', sink.id='collapse-retry-1', http.status.code='2xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(id='trp:id', message='A[1]'))) " +
+                "define stream responseStream2xx(id string, message string);" +
+
+                "@source(type='http-response', sink.id='collapse-retry-1', http.status.code='default', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(id='trp:id', message='A[1]'))) " +
+                "define stream responseStreamDefault(id string, message string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger responseCount = new AtomicInteger(0);
+        Set<Object> ids = ConcurrentHashMap.newKeySet();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream2xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    ids.add(event.getData()[0]);
+                    responseCount.incrementAndGet();
+                }
+            }
+        });
+        siddhiAppRuntime.addCallback("responseStreamDefault", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                Assert.fail();
+            }
+        });
+        // the first request fails, and the identical requests join it while it is retried
+        HttpDelayedServerListenerHandler lst = new HttpDelayedServerListenerHandler(8027, 500, "sri-lanka", 1);
+        lst.run();
+        siddhiAppRuntime.start();
+
+        String headers = "'country:sri-lanka'";
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int id = i;
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{"wso2", id, headers});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            publisher.get();
+        }
+        SiddhiTestHelper.waitForEvents(100, 6, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 6);
+        Assert.assertEquals(ids.size(), 6);
+        Assert.assertTrue(lst.getRequestCount() < 7, lst.getRequestCount() + " requests were sent for 6 events " +
+                "and a retry");
+
+        // the request is no longer in flight, hence the next identical request is sent instead of being attached
+        int requestCount = lst.getRequestCount();
+        fooStream.send(new Object[]{"wso2", 6, headers});
+        SiddhiTestHelper.waitForEvents(100, 7, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 7);
+        Assert.assertEquals(lst.getRequestCount(), requestCount + 1);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void testHTTPRequestUnsupportedOption() throws Exception {
+        log.info("Creating test for rejecting an option of the http sink which the http-request sink does not use");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int);" +
+                "@sink(type='http-request'," +
+                "publisher.url='http://localhost:8005/abc', " +
+                "method='POST'," +
+                "spill.queue.path='target/spill-queue'," +
+                "sink.id='unsupported-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int);" +
+                "" +
+                "@source(type='http-response', sink.id='unsupported-1', " +
+                "@map(type='json', @attributes(name='name', id='id'))) " +
+                "define stream responseStream(name String, id int);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        siddhiAppRuntime.shutdown();
+    }
+
+    @Test
+    public void testHTTPResponseSourcesWithDifferentAttributes() throws Exception {
+        log.info("Pass different attributes of the events to the sources of different status codes");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "" +
+                "define stream FooStream (name String, id int, country String, url String);" +
+                "@sink(type='http-request'," +
+                "publisher.url='{{url}}', " +
+                "method='GET'," +
+                "sink.id='correlation-1'," +
+                "@map(type='json')) " +
+                "Define stream BarStream (name String, id int, country String, url String);" +
+                "" +
+                "@source(type='http-response', sink.id='correlation-1', http.status.code='2xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(name='trp:name', id='trp:id', " +
+                "message='A[1]'))) " +
+                "define stream responseStream2xx(name string, id string, message string);" +
+
+                "@source(type='http-response', sink.id='correlation-1', http.status.code='4xx', " +
+                "@map(type='text', regex.A='((.|\\n)*)', @attributes(country='trp:country', " +
+                "errorMsg='A[1]'))) " +
+                "define stream responseStream4xx(country string, errorMsg string);";
+        String query = (
+                "@info(name = 'query') "
+                        + "from FooStream "
+                        + "select * "
+                        + "insert into BarStream;"
+        );
+
+        AtomicInteger responseCount = new AtomicInteger(0);
+        AtomicReference<Object[]> successResponse = new AtomicReference<>();
+        AtomicReference<Object[]> errorResponse = new AtomicReference<>();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("responseStream2xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                successResponse.set(events[0].getData());
+                responseCount.addAndGet(events.length);
+            }
+        });
+        siddhiAppRuntime.addCallback("responseStream4xx", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                EventPrinter.print(events);
+                errorResponse.set(events[0].getData());
+                responseCount.addAndGet(events.length);
+            }
+        });
+        HttpFileServerListenerHandler successServer = new HttpFileServerListenerHandler(8025);
+        successServer.run();
+        HttpFileServerListenerHandler errorServer = new HttpFileServerListenerHandler(8026, 400);
+        errorServer.run();
+        siddhiAppRuntime.start();
+
+        fooStream.send(new Object[]{"wso2", 100, "sri-lanka", "http://localhost:8025/files"});
+        fooStream.send(new Object[]{"ibm", 200, "usa", "http://localhost:8026/files"});
+        SiddhiTestHelper.waitForEvents(100, 2, responseCount, 5000);
+
+        Assert.assertEquals(responseCount.get(), 2);
+        Assert.assertEquals(successResponse.get()[0], "wso2");
+        Assert.assertEquals(successResponse.get()[1], "100");
+        Assert.assertEquals(errorResponse.get()[0], "usa");
+        Assert.assertEquals(errorResponse.get()[1], "Requested file cannot be found.");
+        siddhiAppRuntime.shutdown();
+        successServer.shutdown();
+        errorServer.shutdown();
+    }
 }
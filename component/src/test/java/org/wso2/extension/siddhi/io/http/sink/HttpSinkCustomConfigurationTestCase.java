@@ -20,6 +20,7 @@ package org.wso2.extension.siddhi.io.http.sink;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
 import org.apache.log4j.Logger;
 import org.testng.Assert;
@@ -27,6 +28,13 @@ import org.testng.annotations.Test;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpServerListenerHandler;
 import org.wso2.extension.siddhi.map.xml.sinkmapper.XMLSinkMapper;
 
+import java.io.DataInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 
 /**
  * Test case for mapping type.
@@ -91,4 +99,71 @@ public class HttpSinkCustomConfigurationTestCase {
         siddhiAppRuntime.shutdown();
         lst.shutdown();
     }
+
+    /**
+     * Creating test for rejecting an http version which the client connector does not support.
+     */
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void testHTTPInvalidHttpVersion() {
+        log.info("Creating test for rejecting an invalid http version.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http'," +
+                "publisher.url='http://localhost:8024/abc'," +
+                "http.version='3.0'," +
+                "@map(type='xml', @payload('{{message}}'))) " +
+                "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') " +
+                "from FooStream select message insert into BarStream;");
+        try {
+            siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Creating test for sending requests over HTTP/2 with prior knowledge, where the client connector has to open
+     * the connection with the HTTP/2 connection preface instead of an HTTP/1.1 request line.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testHTTP2PriorKnowledgeConfig() throws Exception {
+        log.info("Creating test for publishing events over HTTP/2 with prior knowledge.");
+        String preface = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+        CompletableFuture<String> received = new CompletableFuture<>();
+        try (ServerSocket serverSocket = new ServerSocket(8024)) {
+            Thread acceptor = new Thread(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    byte[] bytes = new byte[preface.length()];
+                    new DataInputStream(socket.getInputStream()).readFully(bytes);
+                    received.complete(new String(bytes, StandardCharsets.US_ASCII));
+                } catch (Exception e) {
+                    received.completeExceptionally(e);
+                }
+            });
+            acceptor.start();
+            SiddhiManager siddhiManager = new SiddhiManager();
+            siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+            String inStreamDefinition = "Define stream FooStream (message String);"
+                    + "@sink(type='http'," +
+                    "publisher.url='http://localhost:8024/abc'," +
+                    "http.version='2.0'," +
+                    "http2.prior.knowledge='true'," +
+                    "http2.max.concurrent.streams='10'," +
+                    "@map(type='xml', @payload('{{message}}'))) " +
+                    "Define stream BarStream (message String);";
+            String query = ("@info(name = 'query') " +
+                    "from FooStream select message insert into BarStream;");
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                    query);
+            InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+            siddhiAppRuntime.start();
+            fooStream.send(new Object[]{"<events><event><symbol>WSO2</symbol></event></events>"});
+            Assert.assertEquals(received.get(10, TimeUnit.SECONDS), preface);
+            siddhiAppRuntime.shutdown();
+            acceptor.join(1000);
+        }
+    }
 }
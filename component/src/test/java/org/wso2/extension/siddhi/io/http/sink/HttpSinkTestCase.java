@@ -26,12 +26,25 @@ import org.apache.log4j.Logger;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpDelayedServerListenerHandler;
 import org.wso2.extension.siddhi.io.http.sink.util.HttpServerListenerHandler;
 import org.wso2.extension.siddhi.map.xml.sinkmapper.XMLSinkMapper;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Test cases for content type header.
@@ -154,4 +167,515 @@ public class HttpSinkTestCase {
         siddhiAppRuntime.shutdown();
         lst.shutdown();
     }
+
+    /**
+     * Creating test for publishing events to a dynamic publisher url with multiple destinations.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPContentTypeAtHeaders")
+    public void testHTTPDynamicPublisherURL() throws Exception {
+        log.info("Creating test for publishing events to a dynamic publisher url with multiple destinations.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String,url String,headers String);"
+                + "@sink(type='http',publisher.url='{{url}}',method='POST',"
+                + "headers='{{headers}}',client.connector.cache.size='1',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String,url String,headers String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message,url,headers "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8005);
+        lst.run();
+        HttpServerListenerHandler lst2 = new HttpServerListenerHandler(8006);
+        lst2.run();
+        String[] urls = {"http://localhost:8005/abc", "http://localhost:8006/abc", "http://localhost:8005/abc"};
+        for (String url : urls) {
+            HttpServerListenerHandler handler = url.contains("8005") ? lst : lst2;
+            fooStream.send(new Object[]{payload, url, "'Name:John'"});
+            while (!handler.getServerListener().isMessageArrive()) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(handler.getServerListener().getData(), expected);
+        }
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+        lst2.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPDynamicPublisherURL")
+    public void testHTTPBatchedEvents() throws Exception {
+        log.info("Creating test for publishing a batch of events in a single request.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8005/abc',method='POST',"
+                + "batch.size='3',batch.linger.time='60000',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8005);
+        lst.run();
+        fooStream.send(new Object[]{"<symbol>WSO2</symbol>"});
+        fooStream.send(new Object[]{"<symbol>IBM</symbol>"});
+        Thread.sleep(100);
+        Assert.assertFalse(lst.getServerListener().isMessageArrive());
+        fooStream.send(new Object[]{"<symbol>ABC</symbol>"});
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(lst.getServerListener().getData(),
+                "<symbol>WSO2</symbol>\n<symbol>IBM</symbol>\n<symbol>ABC</symbol>\n");
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPBatchedEvents")
+    public void testHTTPInFlightRequestLimit() throws Exception {
+        log.info("Creating test for blocking concurrent publishers on a bounded in flight request window.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8022/abc',method='POST',"
+                + "max.in.flight.requests='1',in.flight.limit.policy='block',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        HttpDelayedServerListenerHandler lst = new HttpDelayedServerListenerHandler(8022, 500);
+        lst.run();
+        siddhiAppRuntime.start();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{payload});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            publisher.get();
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lst.getRequestCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        // the publishers are blocked until the request in flight is responded, so no event is dropped
+        Assert.assertEquals(lst.getRequestCount(), 4);
+        Assert.assertEquals(lst.getMaxActiveRequests(), 1);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPInFlightRequestLimit")
+    public void testHTTPInFlightRequestLimitFailPolicy() throws Exception {
+        log.info("Creating test for dropping the events of concurrent publishers when the in flight request " +
+                "window is full.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8023/abc',method='POST',"
+                + "max.in.flight.requests='1',in.flight.limit.policy='fail',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        HttpDelayedServerListenerHandler lst = new HttpDelayedServerListenerHandler(8023, 2000);
+        lst.run();
+        siddhiAppRuntime.start();
+        fooStream.send(new Object[]{payload});
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        List<Future<?>> publishers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            publishers.add(executorService.submit(() -> {
+                fooStream.send(new Object[]{payload});
+                return null;
+            }));
+        }
+        for (Future<?> publisher : publishers) {
+            try {
+                // the publishers are not blocked while the first request is in flight
+                publisher.get(1000, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                log.info("Event rejected by the in flight request limit: " + e.getCause());
+            }
+        }
+        Thread.sleep(2500);
+        // the events sent while the first request was in flight are dropped
+        Assert.assertEquals(lst.getRequestCount(), 1);
+        Assert.assertEquals(lst.getMaxActiveRequests(), 1);
+        executorService.shutdown();
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPInFlightRequestLimitFailPolicy")
+    public void testHTTPRetryOnConnectionError() throws Exception {
+        log.info("Creating test for retrying a request which failed due to a connection error.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8005/abc',method='POST',"
+                + "retry.count='10',retry.initial.backoff='200',retry.max.backoff='1000',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        fooStream.send(new Object[]{payload});
+        Thread.sleep(500);
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8005);
+        lst.run();
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(lst.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPRetryOnConnectionError")
+    public void testHTTPCircuitBreakerFallback() throws Exception {
+        log.info("Creating test for sending events to the fallback url while the circuit breaker is open.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8005/abc',method='POST',"
+                + "circuit.breaker.enabled='true',circuit.breaker.window.size='2',"
+                + "circuit.breaker.minimum.calls='2',circuit.breaker.fallback.url='http://localhost:8006/abc',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler fallback = new HttpServerListenerHandler(8006);
+        fallback.run();
+        fooStream.send(new Object[]{payload});
+        fooStream.send(new Object[]{payload});
+        Thread.sleep(1000);
+        Assert.assertFalse(fallback.getServerListener().isMessageArrive());
+        fooStream.send(new Object[]{payload});
+        while (!fallback.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(fallback.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        fallback.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPCircuitBreakerFallback")
+    public void testHTTPSpillQueue() throws Exception {
+        log.info("Creating test for spilling failed events to the disk and sending them once the endpoint is up.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        Path spillQueuePath = Files.createTempDirectory("http-spill-queue");
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8007/abc',method='POST',"
+                + "spill.queue.path='" + spillQueuePath.toString().replace("\\", "/") + "',"
+                + "spill.queue.segment.size='1024',spill.queue.max.size='4096',spill.queue.drain.interval='200',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        fooStream.send(new Object[]{payload});
+        Thread.sleep(1000);
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8007);
+        lst.run();
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(lst.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    @Test(dependsOnMethods = "testHTTPSpillQueue")
+    public void testHTTPLoadBalancing() throws Exception {
+        log.info("Creating test for load balancing events over multiple publisher urls.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.urls='http://localhost:8008/abc,http://localhost:8009/abc',"
+                + "method='POST',load.balancing.strategy='round.robin',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler first = new HttpServerListenerHandler(8008);
+        first.run();
+        HttpServerListenerHandler second = new HttpServerListenerHandler(8009);
+        second.run();
+        fooStream.send(new Object[]{payload});
+        fooStream.send(new Object[]{payload});
+        while (!first.getServerListener().isMessageArrive() || !second.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(first.getServerListener().getData(), expected);
+        Assert.assertEquals(second.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        first.shutdown();
+        second.shutdown();
+    }
+
+    /**
+     * Creating test for publishing events with static headers.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPLoadBalancing")
+    public void testHTTPStaticHeaders() throws Exception {
+        log.info("Creating test for publishing events with static headers.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8010/abc',method='POST',"
+                + "headers=\"'Name:John','Content-Type:text'\","
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8010);
+        lst.run();
+        fooStream.send(new Object[]{payload});
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        ArrayList<String> headerName = new ArrayList<>();
+        headerName.add("John");
+        ArrayList<String> headerContentType = new ArrayList<>();
+        headerContentType.add("text");
+        Headers headers = lst.getServerListener().getHeaders();
+        Assert.assertEquals(lst.getServerListener().getData(), expected);
+        Assert.assertEquals(headers.get("Name").toString(), headerName.toString());
+        Assert.assertEquals(headers.get("Content-Type").toString(), headerContentType.toString());
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    /**
+     * Creating test for opening a connection to the publisher url when the sink connects.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPStaticHeaders")
+    public void testHTTPConnectionPrewarming() throws Exception {
+        log.info("Creating test for opening a connection to the publisher url when the sink connects.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8011/abc',method='POST',"
+                + "headers=\"'Name:John'\",client.prewarm.connections='true',"
+                + "client.keep.alive.validation.interval='-1',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8011);
+        lst.run();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        ArrayList<String> headerName = new ArrayList<>();
+        headerName.add("John");
+        Assert.assertEquals(lst.getServerListener().getData(), "");
+        Assert.assertEquals(lst.getServerListener().getHeaders().get("Name").toString(), headerName.toString());
+        fooStream.send(new Object[]{payload});
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(lst.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    /**
+     * Creating test for delivering the events of the same partition key in order.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPConnectionPrewarming")
+    public void testHTTPPartitionKeyOrdering() throws Exception {
+        log.info("Creating test for delivering the events of the same partition key in order.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (id String, message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8012/abc',method='POST',"
+                + "headers=\"'Name:John'\",partition.key='id',partition.lanes='2',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (id String, message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select id, message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8012);
+        lst.run();
+        fooStream.send(new Object[]{"device-1", "first"});
+        fooStream.send(new Object[]{"device-1", payload});
+        while (!lst.getServerListener().isMessageArrive()) {
+            Thread.sleep(10);
+        }
+        // the second event is sent only after the first one is responded, hence it is the last one to arrive
+        Thread.sleep(500);
+        Assert.assertEquals(lst.getServerListener().getData(), expected);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    /**
+     * Creating test for publishing events within the adaptive concurrency limit of the endpoint.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPPartitionKeyOrdering")
+    public void testHTTPAdaptiveConcurrencyLimit() throws Exception {
+        log.info("Creating test for publishing events within the adaptive concurrency limit of the endpoint.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8013/abc',method='POST',"
+                + "headers=\"'Name:John'\",concurrency.limit.enabled='true',concurrency.limit.initial='2',"
+                + "concurrency.limit.max='4',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8013);
+        lst.run();
+        for (int i = 0; i < 3; i++) {
+            fooStream.send(new Object[]{payload});
+            while (!lst.getServerListener().isMessageArrive()) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(lst.getServerListener().getData(), expected);
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> limiters = mBeanServer.queryNames(new ObjectName(
+                "org.wso2.extension.siddhi.io.http:type=ConcurrencyLimiter,endpoint=\"http://localhost:8013\",*"),
+                null);
+        Assert.assertEquals(limiters.size(), 1);
+        int limit = (Integer) mBeanServer.getAttribute(limiters.iterator().next(), "Limit");
+        Assert.assertTrue(limit >= 1 && limit <= 4);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
+
+    /**
+     * Creating test for spacing out the requests within the rate limit of the sink.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test(dependsOnMethods = "testHTTPAdaptiveConcurrencyLimit")
+    public void testHTTPRateLimit() throws Exception {
+        log.info("Creating test for spacing out the requests within the rate limit of the sink.");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("xml-output-mapper", XMLSinkMapper.class);
+        String inStreamDefinition = "Define stream FooStream (message String);"
+                + "@sink(type='http',publisher.url='http://localhost:8014/abc',method='POST',"
+                + "headers=\"'Name:John'\",rate.limit='2',rate.limit.burst='1',rate.limit.policy='block',"
+                + "@map(type='xml', @payload('{{message}}'))) "
+                + "Define stream BarStream (message String);";
+        String query = ("@info(name = 'query') "
+                + "from FooStream "
+                + "select message "
+                + "insert into BarStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition +
+                query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        HttpServerListenerHandler lst = new HttpServerListenerHandler(8014);
+        lst.run();
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            fooStream.send(new Object[]{payload});
+            while (!lst.getServerListener().isMessageArrive()) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(lst.getServerListener().getData(), expected);
+        }
+        // the second and the third requests wait half a second each for their tokens
+        Assert.assertTrue(System.currentTimeMillis() - startTime >= 900);
+        siddhiAppRuntime.shutdown();
+        lst.shutdown();
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.updatetoken;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.io.http.sink.util.HttpSinkUtil;
+import org.wso2.transport.http.netty.contract.HttpClientConnector;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+public class HttpsClientTestCase {
+    private static final Logger log = Logger.getLogger(HttpsClientTestCase.class);
+
+    /**
+     * Creating test for sharing the client connector of a token endpoint.
+     */
+    @Test
+    public void testClientConnectorPerEndpoint() {
+        log.info("Creating test for sharing the client connector of a token endpoint.");
+        String trustStorePath = Paths.get("src", "test", "resources", "security", "client-truststore.jks")
+                .toAbsolutePath().toString();
+        Map<String, String> tokenURLProperties = HttpSinkUtil.getURLProperties("https://localhost:8005/token");
+        HttpClientConnector clientConnector;
+        HttpsClient.acquire();
+        try {
+            clientConnector = HttpsClient.getClientConnector(tokenURLProperties, trustStorePath, "wso2carbon");
+            Assert.assertSame(HttpsClient.getClientConnector(tokenURLProperties, trustStorePath, "wso2carbon"),
+                    clientConnector);
+            Assert.assertSame(HttpsClient.getClientConnector(HttpSinkUtil.getURLProperties(
+                    "https://localhost:8005/oauth2/token"), trustStorePath, "wso2carbon"), clientConnector);
+            Assert.assertNotSame(HttpsClient.getClientConnector(HttpSinkUtil.getURLProperties(
+                    "https://localhost:8006/token"), trustStorePath, "wso2carbon"), clientConnector);
+            Assert.assertNotSame(HttpsClient.getClientConnector(tokenURLProperties, trustStorePath,
+                    "changeit"), clientConnector);
+        } finally {
+            HttpsClient.release();
+        }
+        // the connectors are closed when the last oauth sink releases them, hence a new one is created
+        HttpsClient.acquire();
+        try {
+            Assert.assertNotSame(HttpsClient.getClientConnector(tokenURLProperties, trustStorePath, "wso2carbon"),
+                    clientConnector);
+        } finally {
+            HttpsClient.release();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.updatetoken;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class OAuthTokenManagerTestCase {
+    private static final Logger log = Logger.getLogger(OAuthTokenManagerTestCase.class);
+
+    /**
+     * Creating test for renewing an access token from many threads at once.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testRenewAccessTokenSingleFlight() throws Exception {
+        log.info("Creating test for renewing an access token from many threads at once.");
+        OAuthTokenManager tokenManager = OAuthTokenManager.getInstance();
+        String key = "single-flight";
+        AtomicInteger tokenRequestCount = new AtomicInteger(0);
+        CountDownLatch tokenRequestLatch = new CountDownLatch(1);
+        Supplier<AccessToken> tokenRequest = () -> {
+            tokenRequestCount.incrementAndGet();
+            try {
+                tokenRequestLatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new AccessToken(200, "token-" + tokenRequestCount.get(), null, -1);
+        };
+        int callers = 8;
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<CompletableFuture<CompletableFuture<AccessToken>>> renewals = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            renewals.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    startLatch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return tokenManager.renewAccessToken(key, null, -1, tokenRequest);
+            }));
+        }
+        startLatch.countDown();
+        List<CompletableFuture<AccessToken>> accessTokens = new ArrayList<>();
+        for (CompletableFuture<CompletableFuture<AccessToken>> renewal : renewals) {
+            accessTokens.add(renewal.get(5, TimeUnit.SECONDS));
+        }
+        tokenRequestLatch.countDown();
+        for (CompletableFuture<AccessToken> accessToken : accessTokens) {
+            Assert.assertEquals(accessToken.get(5, TimeUnit.SECONDS).getAccessToken(), "token-1");
+        }
+        Assert.assertEquals(tokenRequestCount.get(), 1);
+        Assert.assertEquals(tokenManager.getAccessToken(key).getAccessToken(), "token-1");
+
+        // the access token rejected by the endpoint is renewed once, however many requests were rejected
+        List<CompletableFuture<AccessToken>> renewedTokens = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            renewedTokens.add(tokenManager.renewAccessToken(key, "token-1", -1, tokenRequest));
+        }
+        for (CompletableFuture<AccessToken> accessToken : renewedTokens) {
+            Assert.assertEquals(accessToken.get(5, TimeUnit.SECONDS).getAccessToken(), "token-2");
+        }
+        Assert.assertEquals(tokenRequestCount.get(), 2);
+    }
+
+    /**
+     * Creating test for refreshing access tokens which expire sooner than the refresh skew.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testRefreshShortLivedAccessToken() throws Exception {
+        log.info("Creating test for refreshing access tokens which expire sooner than the refresh skew.");
+        Assert.assertEquals(OAuthTokenManager.getRefreshDelay(3600000, 30000, 0), 3570000);
+        Assert.assertEquals(OAuthTokenManager.getRefreshDelay(20000, 30000, 0), 10000);
+        Assert.assertEquals(OAuthTokenManager.getRefreshDelay(20000, 0, 0), 20000);
+        Assert.assertEquals(OAuthTokenManager.getRefreshDelay(20000, 30000, 30000), 0);
+
+        OAuthTokenManager tokenManager = OAuthTokenManager.getInstance();
+        String key = "short-lived";
+        AtomicInteger tokenRequestCount = new AtomicInteger(0);
+        Supplier<AccessToken> tokenRequest = () -> new AccessToken(200, "token-" + tokenRequestCount.incrementAndGet(),
+                null, System.currentTimeMillis() + 400);
+        tokenManager.renewAccessToken(key, null, 30000, tokenRequest).get(5, TimeUnit.SECONDS);
+        // the access token is used, hence it is refreshed halfway through its lifetime rather than immediately
+        long end = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < end) {
+            tokenManager.getAccessToken(key);
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(tokenRequestCount.get() > 1, "Access token was not refreshed");
+        Assert.assertTrue(tokenRequestCount.get() <= 8, "Access token was refreshed " + tokenRequestCount.get() +
+                " times in a second");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTestCase {
+    private static final Logger log = Logger.getLogger(ConcurrencyLimiterTestCase.class);
+
+    /**
+     * Creating test for adapting the concurrency limit to failed, slow and fast responses.
+     *
+     * @throws Exception Interrupted exception
+     */
+    @Test
+    public void testAdditiveIncreaseMultiplicativeDecrease() throws Exception {
+        log.info("Creating test for adapting the concurrency limit to failed, slow and fast responses.");
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("http://localhost:8005/abc", "test", 20, 1, 100, 0.5,
+                2.0);
+        Thread.sleep(20);
+        // the first response sets the minimum round trip time
+        complete(limiter, 10, 20, 200);
+        Assert.assertEquals(limiter.getLimit(), 20);
+
+        // a 5xx response halves the limit
+        long failedStartTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        limiter.admit();
+        limiter.onResult(failedStartTime, 20, 503);
+        Assert.assertEquals(limiter.getLimit(), 10);
+        Assert.assertEquals(limiter.getLimitDecreases(), 1);
+
+        // the other responses of the requests sent before the decrease do not decrease the limit again
+        limiter.admit();
+        limiter.onResult(failedStartTime, 20, 503);
+        Assert.assertEquals(limiter.getLimit(), 10);
+
+        // a response slower than the tolerance times the minimum round trip time halves the limit
+        Thread.sleep(60);
+        complete(limiter, 50, 10, 200);
+        Assert.assertEquals(limiter.getLimit(), 5);
+        Assert.assertEquals(limiter.getLimitDecreases(), 2);
+
+        // fast responses grow the limit by one per limit responses while the requests in flight use it
+        for (int i = 0; i < 5; i++) {
+            complete(limiter, 10, 5, 200);
+        }
+        Assert.assertEquals(limiter.getLimit(), 5);
+        complete(limiter, 10, 5, 200);
+        Assert.assertEquals(limiter.getLimit(), 6);
+
+        // fast responses of an idle sink do not grow the limit
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, 10, 1, 200);
+        }
+        Assert.assertEquals(limiter.getLimit(), 6);
+        Assert.assertEquals(limiter.getLimitDecreases(), 2);
+        Assert.assertEquals(limiter.getInFlightRequests(), 0);
+    }
+
+    private static void complete(ConcurrencyLimiter limiter, long rtt, int inFlightRequests, int statusCode) {
+        limiter.admit();
+        limiter.onResult(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(rtt), inFlightRequests, statusCode);
+    }
+}
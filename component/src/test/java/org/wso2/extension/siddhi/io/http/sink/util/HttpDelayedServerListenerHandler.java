@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Http test server which handles requests concurrently and responds to each of them after a delay, with the request
+ * body or a fixed response. The first requests can be failed with status code 503. It counts the requests it
+ * received, and the most requests it was handling at the same time.
+ */
+public class HttpDelayedServerListenerHandler implements Runnable {
+    private static final Logger logger = Logger.getLogger(HttpDelayedServerListenerHandler.class);
+    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private final AtomicInteger activeRequests = new AtomicInteger(0);
+    private final AtomicInteger maxActiveRequests = new AtomicInteger(0);
+    private final int port;
+    private final long delay;
+    private final String response;
+    private final AtomicInteger failures;
+    private HttpServer server;
+    private ExecutorService executorService;
+
+    public HttpDelayedServerListenerHandler(int port, long delay) {
+        this(port, delay, null);
+    }
+
+    public HttpDelayedServerListenerHandler(int port, long delay, String response) {
+        this(port, delay, response, 0);
+    }
+
+    public HttpDelayedServerListenerHandler(int port, long delay, String response, int failures) {
+        this.port = port;
+        this.delay = delay;
+        this.response = response;
+        this.failures = new AtomicInteger(failures);
+    }
+
+    @Override
+    public void run() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 5);
+            server.createContext("/abc", this::handle);
+            executorService = Executors.newCachedThreadPool();
+            server.setExecutor(executorService);
+            server.start();
+        } catch (IOException e) {
+            logger.error("Error in creating test server.", e);
+        }
+    }
+
+    private void handle(HttpExchange event) throws IOException {
+        int active = activeRequests.incrementAndGet();
+        maxActiveRequests.accumulateAndGet(active, Math::max);
+        requestCount.incrementAndGet();
+        try {
+            String body = IOUtils.toString(event.getRequestBody(), StandardCharsets.UTF_8);
+            byte[] response = (this.response == null ? body : this.response).getBytes(StandardCharsets.UTF_8);
+            int statusCode = failures.getAndDecrement() > 0 ? HttpURLConnection.HTTP_UNAVAILABLE :
+                    HttpURLConnection.HTTP_OK;
+            Thread.sleep(delay);
+            event.sendResponseHeaders(statusCode, response.length);
+            event.getResponseBody().write(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeRequests.decrementAndGet();
+            event.close();
+        }
+    }
+
+    public void shutdown() {
+        if (server != null) {
+            logger.info("Shutting down");
+            server.stop(1);
+            executorService.shutdownNow();
+        }
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getMaxActiveRequests() {
+        return maxActiveRequests.get();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+public class HttpFormUrlEncoderTestCase {
+    private static final Logger log = Logger.getLogger(HttpFormUrlEncoderTestCase.class);
+
+    /**
+     * Creating test for encoding form parameters the same as URLEncoder.
+     *
+     * @throws Exception Unsupported encoding exception
+     */
+    @Test
+    public void testEncodeSameAsURLEncoder() throws Exception {
+        log.info("Creating test for encoding form parameters the same as URLEncoder.");
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("grant_type", "client_credentials");
+        params.put("scope", "read write");
+        params.put("reserved", "a+b=c&d/e?f%g~h*i.j-k_l");
+        params.put("latin", "caf\u00e9 na\u00efve");
+        params.put("cjk", "\u65e5\u672c\u8a9e");
+        params.put("emoji", "\uD83D\uDE00 smile");
+        params.put("unpaired high", "a\uD83Db");
+        params.put("unpaired low", "a\uDE00b");
+        params.put("unpaired at end", "a\uD83D");
+        params.put("reversed pair", "\uDE00\uD83D");
+        params.put("number", 42);
+        params.put("", "");
+        String expected = encodeWithURLEncoder(params);
+
+        Assert.assertEquals(HttpFormUrlEncoder.encode(params), expected);
+        Assert.assertEquals(HttpFormUrlEncoder.encodedLength(params),
+                expected.getBytes(StandardCharsets.US_ASCII).length);
+        ByteBuf buffer = Unpooled.buffer();
+        HttpFormUrlEncoder.encode(params, buffer);
+        Assert.assertEquals(buffer.toString(StandardCharsets.US_ASCII), expected);
+        buffer.release();
+    }
+
+    private static String encodeWithURLEncoder(Map<String, ?> params) throws UnsupportedEncodingException {
+        StringJoiner joiner = new StringJoiner("&");
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            joiner.add(URLEncoder.encode(param.getKey(), "UTF-8") + "=" +
+                    URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
+        }
+        return joiner.toString();
+    }
+}
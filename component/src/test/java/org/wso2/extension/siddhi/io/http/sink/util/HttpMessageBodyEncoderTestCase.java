@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.sink.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class HttpMessageBodyEncoderTestCase {
+    private static final Logger log = Logger.getLogger(HttpMessageBodyEncoderTestCase.class);
+
+    @DataProvider(name = "messageBodies")
+    public Object[][] messageBodies() {
+        return new Object[][]{
+                {"empty", ""},
+                {"ascii", "{\"symbol\":\"WSO2\",\"price\":55.6}"},
+                {"latin", "caf\u00E9 na\u00EFve \u00A9"},
+                {"cjk", "\u65E5\u672C\u8A9E \u0915\u093F"},
+                {"surrogate pair", "\uD83D\uDE00 smile \uD834\uDD1E"},
+                {"surrogate pair at end", "smile \uD83D\uDE00"},
+                {"lone high surrogate", "a\uD83Db"},
+                {"lone low surrogate", "a\uDE00b"},
+                {"lone surrogate at end", "a\uD83D"},
+                {"reversed pair", "\uDE00\uD83D"},
+                {"mixed", "x\u00E9\u65E5\uD83D\uDE00\uD83Dy"}
+        };
+    }
+
+    /**
+     * Creating test for encoding message bodies the same as String.getBytes into heap and direct buffers.
+     *
+     * @param name        the name of the message body.
+     * @param messageBody the message body.
+     */
+    @Test(dataProvider = "messageBodies")
+    public void testEncodeSameAsGetBytes(String name, String messageBody) {
+        log.info("Creating test for encoding a message body with " + name + " characters.");
+        byte[] expected = messageBody.getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(HttpMessageBodyEncoder.utf8Length(messageBody), expected.length);
+        for (boolean direct : new boolean[]{false, true}) {
+            ByteBuf buffer = new HttpMessageBodyEncoder(direct).encode(messageBody);
+            try {
+                Assert.assertEquals(buffer.readableBytes(), expected.length);
+                Assert.assertEquals(buffer.capacity(), expected.length);
+                Assert.assertEquals(ByteBufUtil.getBytes(buffer), expected);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+}
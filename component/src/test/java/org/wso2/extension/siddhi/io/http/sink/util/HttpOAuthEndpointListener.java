@@ -29,6 +29,7 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test Server Listener Manger for API end point.
@@ -36,14 +37,29 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HttpOAuthEndpointListener implements HttpHandler {
     private AtomicBoolean isEventArrived = new AtomicBoolean(false);
+    private AtomicInteger requestCount = new AtomicInteger(0);
+    private AtomicInteger unauthorizedCount = new AtomicInteger(0);
     private StringBuilder stringBuilder;
     private Headers headers;
     private int responseCode;
+    private long delay;
+    private String response;
 
 
     public HttpOAuthEndpointListener() {
     }
 
+    /**
+     * Creates a listener which responds after a delay with a fixed response instead of the request body.
+     *
+     * @param delay    the delay of each response in milliseconds.
+     * @param response the response.
+     */
+    public HttpOAuthEndpointListener(long delay, String response) {
+        this.delay = delay;
+        this.response = response;
+    }
+
     @Override
     public void handle(HttpExchange event) throws IOException {
         // Get the paramString form the request
@@ -64,10 +80,19 @@ public class HttpOAuthEndpointListener implements HttpHandler {
         while ((line = bufferedReader.readLine()) != null) {
             stringBuilder = stringBuilder.append(line).append("\n");
         }
-        byte[] response = stringBuilder.toString().getBytes();
+        byte[] response = (this.response == null ? stringBuilder.toString() : this.response).getBytes();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         event.sendResponseHeaders(responseCode, response.length);
         event.getResponseBody().write(response);
         event.close();
+        if (responseCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
+            unauthorizedCount.incrementAndGet();
+        }
+        requestCount.incrementAndGet();
         isEventArrived.set(true);
     }
 
@@ -85,5 +110,12 @@ public class HttpOAuthEndpointListener implements HttpHandler {
         return isEventArrived.get();
     }
 
+    public AtomicInteger getRequestCount() {
+        return requestCount;
+    }
+
+    public AtomicInteger getUnauthorizedCount() {
+        return unauthorizedCount;
+    }
 
 }
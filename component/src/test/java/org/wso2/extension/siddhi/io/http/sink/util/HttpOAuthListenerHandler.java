@@ -52,8 +52,18 @@ public class HttpOAuthListenerHandler implements Runnable {
     private KeyStore keyStore;
 
     public HttpOAuthListenerHandler(int tokenEndpointPort, int oauthEndPointPort) throws KeyStoreException {
+        this(tokenEndpointPort, oauthEndPointPort, new HttpOAuthEndpointListener());
+    }
+
+    public HttpOAuthListenerHandler(int tokenEndpointPort, int oauthEndPointPort, long delay, String response)
+            throws KeyStoreException {
+        this(tokenEndpointPort, oauthEndPointPort, new HttpOAuthEndpointListener(delay, response));
+    }
+
+    private HttpOAuthListenerHandler(int tokenEndpointPort, int oauthEndPointPort,
+                                     HttpOAuthEndpointListener httpOAuthEndpointListener) throws KeyStoreException {
         this.httpOAuthTokenEndpointListener = new HttpOAuthTokenEndpointListener();
-        this.httpOAuthEndpointListener = new HttpOAuthEndpointListener();
+        this.httpOAuthEndpointListener = httpOAuthEndpointListener;
         this.tokenEndpointPort = tokenEndpointPort;
         this.oauthEndPointPort = oauthEndPointPort;
         keyStore = KeyStore.getInstance("JKS");
@@ -28,12 +28,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test Server Listener Manger for TokenEndPoint.
  */
 public class HttpOAuthTokenEndpointListener implements HttpHandler {
     private AtomicBoolean isEventArrived = new AtomicBoolean(false);
+    private AtomicInteger requestCount = new AtomicInteger(0);
 
     public HttpOAuthTokenEndpointListener() {
     }
@@ -75,10 +77,15 @@ public class HttpOAuthTokenEndpointListener implements HttpHandler {
         event.sendResponseHeaders(responseCode, response.length);
         event.getResponseBody().write(response);
         event.close();
+        requestCount.incrementAndGet();
         isEventArrived.set(true);
     }
 
     public boolean isMessageArrive() {
         return isEventArrived.get();
     }
+
+    public AtomicInteger getRequestCount() {
+        return requestCount;
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2019 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.extension.siddhi.io.http.util;
+
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ResponseCorrelationContextTestCase {
+    private static final Logger log = Logger.getLogger(ResponseCorrelationContextTestCase.class);
+    private static final List<Attribute> ATTRIBUTES = Arrays.asList(
+            new Attribute("name", Attribute.Type.STRING), new Attribute("id", Attribute.Type.INT),
+            new Attribute("country", Attribute.Type.STRING), new Attribute("payload", Attribute.Type.STRING));
+
+    /**
+     * Creating test for capturing only the attributes which the response sources request.
+     */
+    @Test
+    public void testCaptureRequestedAttributes() {
+        log.info("Creating test for capturing only the attributes which the response sources request.");
+        ResponseCorrelationContext.Schema schema = new ResponseCorrelationContext.Schema(ATTRIBUTES,
+                new String[]{"country", "headers", "name", "country"});
+        Object[] data = {"wso2", 100, "sri-lanka", "a large payload"};
+        ResponseCorrelationContext context = new ResponseCorrelationContext(schema, data, null);
+        data[0] = "reused";
+
+        int[] positions = schema.getPositions(new String[]{"name", "id", "country", "payload", "headers"});
+        Assert.assertEquals(positions, new int[]{1, -1, 0, -1, -1});
+        Assert.assertEquals(context.getValue(positions[0]), "wso2");
+        Assert.assertEquals(context.getValue(positions[2]), "sri-lanka");
+        Assert.assertNull(context.getValue(positions[1]));
+    }
+
+    /**
+     * Creating test for resolving the positions of two sources which request different attributes.
+     */
+    @Test
+    public void testSourcesWithDifferentAttributes() {
+        log.info("Creating test for resolving the positions of two sources which request different attributes.");
+        String[] successNames = {"name", "id"};
+        String[] errorNames = {"country"};
+        String[] requestedNames = {"name", "id", "country"};
+        ResponseCorrelationContext context = new ResponseCorrelationContext(
+                new ResponseCorrelationContext.Schema(ATTRIBUTES, requestedNames),
+                new Object[]{"wso2", 100, "sri-lanka", "a large payload"}, null);
+
+        int[] successPositions = context.getSchema().getPositions(successNames);
+        Assert.assertEquals(context.getValue(successPositions[0]), "wso2");
+        Assert.assertEquals(context.getValue(successPositions[1]), 100);
+        int[] errorPositions = context.getSchema().getPositions(errorNames);
+        Assert.assertEquals(context.getValue(errorPositions[0]), "sri-lanka");
+        Assert.assertSame(context.getSchema().getCapturedNames(), requestedNames);
+    }
+
+    /**
+     * Creating test for capturing no attributes when no source requests any.
+     */
+    @Test
+    public void testCaptureNoAttributes() {
+        log.info("Creating test for capturing no attributes when no source requests any.");
+        ResponseCorrelationContext.Schema schema = new ResponseCorrelationContext.Schema(ATTRIBUTES, new String[0]);
+        ResponseCorrelationContext context = new ResponseCorrelationContext(schema,
+                new Object[]{"wso2", 100, "sri-lanka", "a large payload"}, "target/downloads");
+
+        Assert.assertEquals(schema.getPositions(new String[]{"name"}), new int[]{-1});
+        Assert.assertNull(context.getValue(-1));
+        Assert.assertEquals(context.getDownloadPath(), "target/downloads");
+    }
+}